@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import static android.net.wifi.WifiInfo.SECURITY_TYPE_OPEN;
+import static android.net.wifi.WifiInfo.SECURITY_TYPE_PSK;
+
+import static com.android.wifitrackerlib.StandardWifiEntry.ssidAndSecurityTypeToStandardWifiEntryKey;
+
+import android.content.Context;
+import android.net.NetworkCapabilities;
+import android.net.wifi.ScanResult;
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiManager;
+import android.net.wifi.hotspot2.PasspointConfiguration;
+import android.net.wifi.hotspot2.pps.Credential;
+import android.net.wifi.hotspot2.pps.HomeSp;
+import android.net.wifi.sharedconnectivity.app.HotspotNetwork;
+import android.net.wifi.sharedconnectivity.app.KnownNetwork;
+import android.net.wifi.sharedconnectivity.app.NetworkProviderInfo;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+/**
+ * Microbenchmarks for building WifiEntry summaries, which happens for every entry on each list
+ * update while the picker is displayed.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SummaryBenchmark {
+    @Rule public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+    private WifiTrackerInjector mInjector;
+    private WifiManager mWifiManager;
+    private Handler mHandler;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mInjector = new WifiTrackerInjector(mContext);
+        mWifiManager = mContext.getSystemService(WifiManager.class);
+        mHandler = new Handler(Looper.getMainLooper());
+    }
+
+    @Test
+    public void standardWifiEntry_unsaved() {
+        final ScanResult scan = new ScanResult();
+        scan.SSID = "ssid";
+        scan.BSSID = "01:23:45:67:89:ab";
+        scan.capabilities = "[ESS]";
+        scan.frequency = 5180;
+        scan.level = -50;
+        final StandardWifiEntry entry = new StandardWifiEntry(mInjector, mHandler,
+                ssidAndSecurityTypeToStandardWifiEntryKey("ssid", SECURITY_TYPE_OPEN),
+                null /* configs */, Collections.singletonList(scan), mWifiManager,
+                false /* forSavedNetworksPage */);
+        measureSummary(entry);
+    }
+
+    @Test
+    public void standardWifiEntry_saved() {
+        final WifiConfiguration config = new WifiConfiguration();
+        config.SSID = "\"ssid\"";
+        config.networkId = 1;
+        config.setSecurityParams(WifiConfiguration.SECURITY_TYPE_PSK);
+        final StandardWifiEntry entry = new StandardWifiEntry(mInjector, mHandler,
+                ssidAndSecurityTypeToStandardWifiEntryKey("ssid", SECURITY_TYPE_PSK),
+                Collections.singletonList(config), null /* scanResults */, mWifiManager,
+                false /* forSavedNetworksPage */);
+        measureSummary(entry);
+    }
+
+    @Test
+    public void passpointWifiEntry() {
+        final PasspointConfiguration passpointConfig = new PasspointConfiguration();
+        final HomeSp homeSp = new HomeSp();
+        homeSp.setFqdn("fqdn");
+        homeSp.setFriendlyName("Friendly name");
+        passpointConfig.setHomeSp(homeSp);
+        passpointConfig.setCredential(new Credential());
+        final PasspointWifiEntry entry = new PasspointWifiEntry(mInjector, mHandler,
+                passpointConfig, mWifiManager, false /* forSavedNetworksPage */);
+        measureSummary(entry);
+    }
+
+    @Test
+    public void mergedCarrierEntry() {
+        final MergedCarrierEntry entry = new MergedCarrierEntry(mInjector, mHandler,
+                mWifiManager, false /* forSavedNetworksPage */, 1 /* subscriptionId */);
+        measureSummary(entry);
+    }
+
+    @Test
+    public void knownNetworkEntry() {
+        final KnownNetwork knownNetwork = new KnownNetwork.Builder()
+                .setNetworkSource(KnownNetwork.NETWORK_SOURCE_NEARBY_SELF)
+                .setSsid("ssid")
+                .addSecurityType(SECURITY_TYPE_PSK)
+                .setNetworkProviderInfo(buildNetworkProviderInfo())
+                .build();
+        final KnownNetworkEntry entry = new KnownNetworkEntry(mInjector, mHandler,
+                ssidAndSecurityTypeToStandardWifiEntryKey("ssid", SECURITY_TYPE_PSK),
+                mWifiManager, null /* sharedConnectivityManager */, knownNetwork);
+        measureSummary(entry);
+    }
+
+    @Test
+    public void hotspotNetworkEntry() {
+        final HotspotNetwork hotspotNetwork = new HotspotNetwork.Builder()
+                .setDeviceId(1)
+                .setNetworkProviderInfo(buildNetworkProviderInfo())
+                .setHostNetworkType(HotspotNetwork.NETWORK_TYPE_CELLULAR)
+                .setNetworkName("Carrier")
+                .setHotspotSsid("Instant Hotspot")
+                .addHotspotSecurityType(SECURITY_TYPE_PSK)
+                .build();
+        final HotspotNetworkEntry entry = new HotspotNetworkEntry(mInjector, mContext, mHandler,
+                mWifiManager, null /* sharedConnectivityManager */, hotspotNetwork);
+        measureSummary(entry);
+    }
+
+    @Test
+    public void connectedDescription() {
+        final NetworkCapabilities capabilities = new NetworkCapabilities.Builder()
+                .addTransportType(NetworkCapabilities.TRANSPORT_WIFI)
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)
+                .build();
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            Utils.getConnectedDescription(mContext, null /* wifiConfiguration */, capabilities,
+                    true /* isDefaultNetwork */, false /* isLowQuality */,
+                    null /* connectivityReport */);
+        }
+    }
+
+    private void measureSummary(WifiEntry entry) {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            entry.getSummary(true /* concise */);
+        }
+    }
+
+    private static NetworkProviderInfo buildNetworkProviderInfo() {
+        return new NetworkProviderInfo.Builder("My Phone", "Pixel 7")
+                .setDeviceType(NetworkProviderInfo.DEVICE_TYPE_PHONE)
+                .setBatteryPercentage(100)
+                .setConnectionStrength(3)
+                .build();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import android.net.wifi.ScanResult;
+import android.util.ArrayMap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ScanSchedulingPolicy which scans more often while the visible BSSIDs or their signal strengths
+ * are changing, and backs off exponentially while successive scans are identical.
+ */
+public class AdaptiveScanSchedulingPolicy implements ScanSchedulingPolicy {
+    // Shortest interval used while the scan results are changing, unless the default interval is
+    // shorter than that or the scans of the app are throttled.
+    @VisibleForTesting
+    static final long MIN_SCAN_INTERVAL_MILLIS = 5_000;
+    // The interval is multiplied by at most this factor while the scan results are stable.
+    @VisibleForTesting
+    static final int MAX_BACKOFF_MULTIPLIER = 8;
+    // Fraction of the BSSIDs which must have appeared, disappeared or changed signal bucket for
+    // the scan results to be considered changing.
+    private static final float CHURN_THRESHOLD = 0.25f;
+    // Width of the RSSI buckets in dBm. Smaller fluctuations are not considered changes.
+    private static final int RSSI_BUCKET_DBM = 10;
+
+    private final long mDefaultIntervalMillis;
+    private final long mMinIntervalMillis;
+    private final long mMaxIntervalMillis;
+
+    private long mIntervalMillis;
+    private @ScanIntervalReason int mReason = SCAN_INTERVAL_REASON_DEFAULT;
+    // RSSI bucket of each BSSID in the previous scan results.
+    @Nullable private Map<String, Integer> mLastRssiBuckets;
+
+    /**
+     * Creates a policy which varies the interval around the given default interval.
+     *
+     * @param isScanThrottled whether the framework throttles the scans of the app, in which case
+     *                        the interval is never shortened below the default interval since the
+     *                        extra scans would be rejected.
+     */
+    public AdaptiveScanSchedulingPolicy(long defaultIntervalMillis, boolean isScanThrottled) {
+        mDefaultIntervalMillis = defaultIntervalMillis;
+        mMinIntervalMillis = isScanThrottled
+                ? defaultIntervalMillis
+                : Math.min(defaultIntervalMillis,
+                        Math.max(defaultIntervalMillis / 2, MIN_SCAN_INTERVAL_MILLIS));
+        mMaxIntervalMillis = defaultIntervalMillis * MAX_BACKOFF_MULTIPLIER;
+        mIntervalMillis = defaultIntervalMillis;
+    }
+
+    @WorkerThread
+    @Override
+    public void onScanningStarted() {
+        mLastRssiBuckets = null;
+        setInterval(mDefaultIntervalMillis, SCAN_INTERVAL_REASON_DEFAULT);
+    }
+
+    @WorkerThread
+    @Override
+    public void onScanResultsAvailable(@NonNull List<ScanResult> scanResults) {
+        final Map<String, Integer> rssiBuckets = new ArrayMap<>(scanResults.size());
+        for (ScanResult scanResult : scanResults) {
+            if (scanResult.BSSID != null) {
+                rssiBuckets.put(scanResult.BSSID,
+                        Math.floorDiv(scanResult.level, RSSI_BUCKET_DBM));
+            }
+        }
+        final Map<String, Integer> lastRssiBuckets = mLastRssiBuckets;
+        mLastRssiBuckets = rssiBuckets;
+        if (lastRssiBuckets == null) {
+            return;
+        }
+
+        int numChanges = 0;
+        int numBssids = rssiBuckets.size();
+        for (Map.Entry<String, Integer> entry : rssiBuckets.entrySet()) {
+            final Integer lastBucket = lastRssiBuckets.get(entry.getKey());
+            if (!entry.getValue().equals(lastBucket)) {
+                numChanges++;
+            }
+        }
+        for (String bssid : lastRssiBuckets.keySet()) {
+            if (!rssiBuckets.containsKey(bssid)) {
+                numChanges++;
+                numBssids++;
+            }
+        }
+
+        if (numChanges == 0) {
+            setInterval(Math.min(Math.max(mIntervalMillis, mDefaultIntervalMillis) * 2,
+                    mMaxIntervalMillis), SCAN_INTERVAL_REASON_STABLE);
+        } else if (numChanges >= CHURN_THRESHOLD * numBssids) {
+            setInterval(mMinIntervalMillis, SCAN_INTERVAL_REASON_CHURN);
+        } else {
+            setInterval(mDefaultIntervalMillis, SCAN_INTERVAL_REASON_DEFAULT);
+        }
+    }
+
+    @WorkerThread
+    @Override
+    public void onConnectionChanged() {
+        if (mIntervalMillis > mDefaultIntervalMillis) {
+            setInterval(mDefaultIntervalMillis, SCAN_INTERVAL_REASON_CONNECTION_CHANGED);
+        }
+    }
+
+    @WorkerThread
+    @Override
+    public long getScanIntervalMillis() {
+        return mIntervalMillis;
+    }
+
+    @WorkerThread
+    @Override
+    public @ScanIntervalReason int getScanIntervalReason() {
+        return mReason;
+    }
+
+    private void setInterval(long intervalMillis, @ScanIntervalReason int reason) {
+        mIntervalMillis = intervalMillis;
+        mReason = reason;
+    }
+}
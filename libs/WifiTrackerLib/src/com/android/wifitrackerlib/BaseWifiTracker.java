@@ -44,14 +44,19 @@ import android.net.wifi.sharedconnectivity.app.SharedConnectivityManager;
 import android.net.wifi.sharedconnectivity.app.SharedConnectivitySettingsState;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
+import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.Log;
 
 import androidx.annotation.AnyThread;
+import androidx.annotation.GuardedBy;
 import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 import androidx.core.os.BuildCompat;
 import androidx.lifecycle.Lifecycle;
@@ -60,8 +65,20 @@ import androidx.lifecycle.OnLifecycleEvent;
 
 import java.time.Clock;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntBinaryOperator;
+import java.util.function.ObjIntConsumer;
 
 /**
  * Base class for WifiTracker functionality.
@@ -99,6 +116,29 @@ public class BaseWifiTracker {
 
     private boolean mIsInitialized = false;
     private boolean mIsScanningDisabled = false;
+    // Whether onStart() was ever called. Must be accessed only by the main thread.
+    private boolean mHasStarted = false;
+    // Incremented for each batch of scan results, so that the deferred stages of the processing
+    // of older batches can be dropped. Must be accessed only by the worker thread.
+    private int mScanResultsGeneration;
+    // Last Wi-Fi network reported by the network callback. Must be accessed only by the worker
+    // thread.
+    @Nullable private Network mLastWifiNetwork;
+    // Decides the interval between scans. Must be accessed only by the worker thread.
+    @NonNull private ScanSchedulingPolicy mScanSchedulingPolicy;
+    // Interval and reason last reported by mScanSchedulingPolicy.
+    private volatile long mCurrentScanIntervalMillis;
+    private volatile @ScanSchedulingPolicy.ScanIntervalReason int mCurrentScanIntervalReason =
+            ScanSchedulingPolicy.SCAN_INTERVAL_REASON_DEFAULT;
+    // Listeners notified of the tracker callbacks, starting with the one passed at construction.
+    private final List<ListenerRecord> mListenerRecords = new CopyOnWriteArrayList<>();
+    // Scans returned by the last call of fetchScanResults(), until they are handed to the
+    // scheduling policy as the results of a new scan.
+    @Nullable private volatile List<ScanResult> mLastFetchedScanResults;
+    // Number of callbacks merged into a callback of the same kind pending for the same listener.
+    private final AtomicInteger mNumConflatedCallbacks = new AtomicInteger();
+    // Batches the onUpdated() deliveries of the WifiEntries created with mMainHandler.
+    @NonNull private final WifiEntryUpdateBatcher mUpdateBatcher;
 
     // Registered on the worker thread
     private final BroadcastReceiver mBroadcastReceiver = new BroadcastReceiver() {
@@ -118,7 +158,16 @@ public class BaseWifiTracker {
                 notifyOnWifiStateChanged();
                 handleWifiStateChangedAction();
             } else if (WifiManager.SCAN_RESULTS_AVAILABLE_ACTION.equals(action)) {
+                mScanResultsGeneration++;
                 handleScanResultsAvailableAction(intent);
+                // Take the scans fetched while handling the broadcast, if any, so that they are
+                // not mistaken for the results of a later scan.
+                final List<ScanResult> newScanResults = mLastFetchedScanResults;
+                mLastFetchedScanResults = null;
+                if (newScanResults != null
+                        && intent.getBooleanExtra(WifiManager.EXTRA_RESULTS_UPDATED, true)) {
+                    mScanner.onScanResultsAvailable(newScanResults);
+                }
             } else if (WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION.equals(action)) {
                 handleConfiguredNetworksChangedAction(intent);
             } else if (WifiManager.NETWORK_STATE_CHANGED_ACTION.equals(action)) {
@@ -143,21 +192,34 @@ public class BaseWifiTracker {
     protected final ConnectivityDiagnosticsManager mConnectivityDiagnosticsManager;
     protected final Handler mMainHandler;
     protected final Handler mWorkerHandler;
+    protected final Clock mClock;
     protected final long mMaxScanAgeMillis;
     protected final long mScanIntervalMillis;
     protected final ScanResultUpdater mScanResultUpdater;
 
     @Nullable protected SharedConnectivityManager mSharedConnectivityManager = null;
+    // Shares the registrations, scan results and scan requests with the other trackers of the
+    // process, or null if this tracker registers on its own.
+    @Nullable private final WifiTrackerHub mHub;
 
     // Network request for listening on changes to Wifi link properties and network capabilities
     // such as captive portal availability.
-    private final NetworkRequest mNetworkRequest = new NetworkRequest.Builder()
+    static final NetworkRequest NETWORK_REQUEST = new NetworkRequest.Builder()
             .clearCapabilities()
             .addCapability(NetworkCapabilities.NET_CAPABILITY_NOT_VPN)
             .addTransportType(TRANSPORT_WIFI)
             .addTransportType(TRANSPORT_CELLULAR) // For VCN-over-Wifi
             .build();
 
+    // Max number of channels for which a refresh scan is worth it compared to a full scan.
+    private static final int MAX_REFRESH_SCAN_CHANNELS = 16;
+    // Factor by which the interval between full scans is stretched while refresh scans are issued
+    // in between.
+    private static final int REFRESH_SCAN_FULL_SCAN_INTERVAL_FACTOR = 2;
+    // Min interval between the partial updates of the scan results streamed from a scan.
+    @VisibleForTesting
+    static final long PARTIAL_SCAN_UPDATE_INTERVAL_MILLIS = 250;
+
     private final ConnectivityManager.NetworkCallback mNetworkCallback =
             new ConnectivityManager.NetworkCallback(
                     ConnectivityManager.NetworkCallback.FLAG_INCLUDE_LOCATION_INFO) {
@@ -172,12 +234,20 @@ public class BaseWifiTracker {
                 @WorkerThread
                 public void onCapabilitiesChanged(@NonNull Network network,
                         @NonNull NetworkCapabilities networkCapabilities) {
+                    if (!network.equals(mLastWifiNetwork)) {
+                        mLastWifiNetwork = network;
+                        mScanner.onConnectionChanged();
+                    }
                     handleNetworkCapabilitiesChanged(network, networkCapabilities);
                 }
 
                 @Override
                 @WorkerThread
                 public void onLost(@NonNull Network network) {
+                    if (network.equals(mLastWifiNetwork)) {
+                        mLastWifiNetwork = null;
+                        mScanner.onConnectionChanged();
+                    }
                     handleNetworkLost(network);
                 }
             };
@@ -355,13 +425,28 @@ public class BaseWifiTracker {
         }
         mMainHandler = mainHandler;
         mWorkerHandler = workerHandler;
+        mClock = clock;
         mMaxScanAgeMillis = maxScanAgeMillis;
         mScanIntervalMillis = scanIntervalMillis;
         mListener = listener;
+        if (listener != null) {
+            mListenerRecords.add(new ListenerRecord(listener, mainHandler::post,
+                    0 /* minUpdateIntervalMillis */));
+        }
         mTag = tag;
+        mUpdateBatcher = injector.getWifiEntryUpdateBatcher(mainHandler);
+        if (listener != null) {
+            mUpdateBatcher.setBatchCallback(this::notifyOnWifiEntriesUpdated);
+        }
 
+        mHub = injector.getWifiTrackerHub();
         mScanResultUpdater = new ScanResultUpdater(clock,
                 maxScanAgeMillis + scanIntervalMillis);
+        final ScanSchedulingPolicy scanSchedulingPolicy =
+                injector.createScanSchedulingPolicy(scanIntervalMillis);
+        mScanSchedulingPolicy = scanSchedulingPolicy != null
+                ? scanSchedulingPolicy : new FixedScanSchedulingPolicy(scanIntervalMillis);
+        mCurrentScanIntervalMillis = scanIntervalMillis;
         mScanner = new BaseWifiTracker.Scanner(workerHandler.getLooper());
 
         if (lifecycle != null) { // Need to add after mScanner is initialized.
@@ -373,12 +458,105 @@ public class BaseWifiTracker {
      * Disable the scanning mechanism permanently.
      */
     public void disableScanning() {
-        mIsScanningDisabled = true;
+        disableScanLoop();
         // This method indicates SystemUI usage, which shouldn't output verbose logs since it's
         // always up.
         mInjector.disableVerboseLogging();
     }
 
+    /**
+     * Disable the scanning mechanism permanently, without affecting verbose logging.
+     */
+    void disableScanLoop() {
+        mIsScanningDisabled = true;
+    }
+
+    /**
+     * Returns whether onStart() was ever called.
+     */
+    @MainThread
+    boolean hasStarted() {
+        return mHasStarted;
+    }
+
+    /**
+     * Replaces the policy deciding the interval between scans.
+     */
+    @AnyThread
+    public void setScanSchedulingPolicy(@NonNull ScanSchedulingPolicy scanSchedulingPolicy) {
+        mWorkerHandler.post(() -> {
+            mScanSchedulingPolicy = scanSchedulingPolicy;
+            mScanner.updateScanInterval();
+        });
+    }
+
+    /**
+     * Returns the current interval in milliseconds between the scans requested by the tracker.
+     */
+    @AnyThread
+    public long getScanIntervalMillis() {
+        return mCurrentScanIntervalMillis;
+    }
+
+    /**
+     * Returns the reason for {@link #getScanIntervalMillis()}.
+     */
+    @AnyThread
+    public @ScanSchedulingPolicy.ScanIntervalReason int getScanIntervalReason() {
+        return mCurrentScanIntervalReason;
+    }
+
+    /**
+     * Returns the number of listener callbacks which were not posted to the main thread since a
+     * callback of the same kind was still pending.
+     */
+    @AnyThread
+    public int getNumConflatedCallbacks() {
+        return mNumConflatedCallbacks.get();
+    }
+
+    /**
+     * Registers a listener to be notified of the tracker callbacks on the given executor, in
+     * addition to the listener passed at construction.
+     *
+     * Callbacks reporting that the state of the tracker changed are delivered to the listener at
+     * most once per minUpdateIntervalMillis for each kind of callback. Changes made in between are
+     * merged into a single callback delivered at the end of the interval.
+     */
+    @AnyThread
+    protected void addListener(@NonNull Executor executor,
+            @NonNull BaseWifiTrackerCallback listener, long minUpdateIntervalMillis) {
+        mListenerRecords.add(new ListenerRecord(listener, executor, minUpdateIntervalMillis));
+        mUpdateBatcher.setBatchCallback(this::notifyOnWifiEntriesUpdated);
+    }
+
+    /**
+     * Unregisters a listener registered with
+     * {@link #addListener(Executor, BaseWifiTrackerCallback, long)}. Callbacks already handed to
+     * its executor may still be delivered. The listener passed at construction cannot be removed.
+     */
+    @AnyThread
+    protected void removeListener(@NonNull BaseWifiTrackerCallback listener) {
+        for (ListenerRecord record : mListenerRecords) {
+            if (record.mListener == listener && record.mListener != mListener) {
+                record.mIsRemoved = true;
+                record.cancelThrottles();
+                mListenerRecords.remove(record);
+            }
+        }
+    }
+
+    /**
+     * Removes the pending throttle timers of the listeners, so that no callbacks held back by
+     * them are delivered once the tracker is stopped.
+     */
+    @AnyThread
+    private void cancelListenerThrottles() {
+        for (ListenerRecord record : mListenerRecords) {
+            record.cancelThrottles();
+        }
+    }
+
     /**
      * Returns the LifecycleObserver to listen on the app's lifecycle state.
      */
@@ -395,26 +573,20 @@ public class BaseWifiTracker {
         if (isVerboseLoggingEnabled()) {
             Log.v(mTag, "onStart");
         }
+        mHasStarted = true;
         mScanner.onStart();
         mWorkerHandler.post(() -> {
-            IntentFilter filter = new IntentFilter();
-            filter.addAction(WifiManager.WIFI_STATE_CHANGED_ACTION);
-            filter.addAction(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION);
-            filter.addAction(WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION);
-            filter.addAction(WifiManager.NETWORK_STATE_CHANGED_ACTION);
-            if (isVerboseLoggingEnabled()) {
-                filter.addAction(WifiManager.RSSI_CHANGED_ACTION);
-            }
-            filter.addAction(TelephonyManager.ACTION_DEFAULT_DATA_SUBSCRIPTION_CHANGED);
-            filter.setPriority(IntentFilter.SYSTEM_HIGH_PRIORITY);
-            mContext.registerReceiver(mBroadcastReceiver, filter,
-                    /* broadcastPermission */ null, mWorkerHandler);
-            mConnectivityManager.registerNetworkCallback(mNetworkRequest, mNetworkCallback,
-                    mWorkerHandler);
-            mConnectivityManager.registerDefaultNetworkCallback(mDefaultNetworkCallback,
-                    mWorkerHandler);
-            mConnectivityDiagnosticsManager.registerConnectivityDiagnosticsCallback(mNetworkRequest,
-                    mConnectivityDiagnosticsExecutor, mConnectivityDiagnosticsCallback);
+            if (mHub == null) {
+                mContext.registerReceiver(mBroadcastReceiver, getIntentFilter(),
+                        /* broadcastPermission */ null, mWorkerHandler);
+                mConnectivityManager.registerNetworkCallback(NETWORK_REQUEST, mNetworkCallback,
+                        mWorkerHandler);
+                mConnectivityManager.registerDefaultNetworkCallback(mDefaultNetworkCallback,
+                        mWorkerHandler);
+                mConnectivityDiagnosticsManager.registerConnectivityDiagnosticsCallback(
+                        NETWORK_REQUEST, mConnectivityDiagnosticsExecutor,
+                        mConnectivityDiagnosticsCallback);
+            }
             if (mSharedConnectivityManager != null && mSharedConnectivityCallback != null
                     && BuildCompat.isAtLeastU()) {
                 mSharedConnectivityManager.registerCallback(mSharedConnectivityExecutor,
@@ -423,6 +595,37 @@ public class BaseWifiTracker {
             handleOnStart();
             mIsInitialized = true;
         });
+        if (mHub != null) {
+            // Attach after posting handleOnStart() so that the events replayed by the hub are
+            // handled after it.
+            mHub.attach(this);
+        }
+    }
+
+    /**
+     * Returns the IntentFilter for the broadcasts handled by this tracker, read when it starts.
+     */
+    @NonNull
+    IntentFilter getIntentFilter() {
+        return createIntentFilter(isVerboseLoggingEnabled());
+    }
+
+    /**
+     * Returns the IntentFilter for the broadcasts handled by the trackers.
+     */
+    @NonNull
+    static IntentFilter createIntentFilter(boolean includeRssiChanged) {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(WifiManager.WIFI_STATE_CHANGED_ACTION);
+        filter.addAction(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION);
+        filter.addAction(WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION);
+        filter.addAction(WifiManager.NETWORK_STATE_CHANGED_ACTION);
+        if (includeRssiChanged) {
+            filter.addAction(WifiManager.RSSI_CHANGED_ACTION);
+        }
+        filter.addAction(TelephonyManager.ACTION_DEFAULT_DATA_SUBSCRIPTION_CHANGED);
+        filter.setPriority(IntentFilter.SYSTEM_HIGH_PRIORITY);
+        return filter;
     }
 
     /**
@@ -434,13 +637,19 @@ public class BaseWifiTracker {
             Log.v(mTag, "onStop");
         }
         mScanner.onStop();
+        cancelListenerThrottles();
+        if (mHub != null) {
+            mHub.detach(this);
+        }
         mWorkerHandler.post(() -> {
             try {
-                mContext.unregisterReceiver(mBroadcastReceiver);
-                mConnectivityManager.unregisterNetworkCallback(mNetworkCallback);
-                mConnectivityManager.unregisterNetworkCallback(mDefaultNetworkCallback);
-                mConnectivityDiagnosticsManager.unregisterConnectivityDiagnosticsCallback(
-                        mConnectivityDiagnosticsCallback);
+                if (mHub == null) {
+                    mContext.unregisterReceiver(mBroadcastReceiver);
+                    mConnectivityManager.unregisterNetworkCallback(mNetworkCallback);
+                    mConnectivityManager.unregisterNetworkCallback(mDefaultNetworkCallback);
+                    mConnectivityDiagnosticsManager.unregisterConnectivityDiagnosticsCallback(
+                            mConnectivityDiagnosticsCallback);
+                }
                 if (mSharedConnectivityManager != null && mSharedConnectivityCallback != null
                         && BuildCompat.isAtLeastU()) {
                     boolean result =
@@ -462,12 +671,18 @@ public class BaseWifiTracker {
      */
     @MainThread
     public void onDestroy() {
+        cancelListenerThrottles();
+        if (mHub != null) {
+            mHub.detach(this);
+        }
         try {
-            mContext.unregisterReceiver(mBroadcastReceiver);
-            mConnectivityManager.unregisterNetworkCallback(mNetworkCallback);
-            mConnectivityManager.unregisterNetworkCallback(mDefaultNetworkCallback);
-            mConnectivityDiagnosticsManager.unregisterConnectivityDiagnosticsCallback(
-                    mConnectivityDiagnosticsCallback);
+            if (mHub == null) {
+                mContext.unregisterReceiver(mBroadcastReceiver);
+                mConnectivityManager.unregisterNetworkCallback(mNetworkCallback);
+                mConnectivityManager.unregisterNetworkCallback(mDefaultNetworkCallback);
+                mConnectivityDiagnosticsManager.unregisterConnectivityDiagnosticsCallback(
+                        mConnectivityDiagnosticsCallback);
+            }
             if (mSharedConnectivityManager != null && mSharedConnectivityCallback != null
                     && BuildCompat.isAtLeastU()) {
                 boolean result =
@@ -505,6 +720,98 @@ public class BaseWifiTracker {
         return mWifiState;
     }
 
+    /**
+     * Returns the latest scan results of WifiManager, shared with the other trackers of the process
+     * if possible.
+     */
+    @AnyThread
+    @NonNull
+    protected List<ScanResult> fetchScanResults() {
+        final List<ScanResult> scanResults = mHub != null
+                ? mHub.getScanResults() : mWifiManager.getScanResults();
+        mLastFetchedScanResults = scanResults;
+        return scanResults;
+    }
+
+    /**
+     * Returns the scans of the networks currently displayed by the tracker. The channels of these
+     * scans are refreshed between full scans if refresh scans are enabled. Trackers which do not
+     * display scanned networks return an empty list, and are scanned fully instead.
+     */
+    @WorkerThread
+    @NonNull
+    protected List<ScanResult> getDisplayedScanResults() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns the executor for issuing independent binder calls concurrently with fetchAsync().
+     */
+    @NonNull
+    protected Executor getFetchExecutor() {
+        final Executor executor = mInjector.getFetchExecutor();
+        return executor != null ? executor : Runnable::run;
+    }
+
+    /**
+     * Starts the given fetch on the given executor.
+     */
+    @NonNull
+    protected static <T> Future<T> fetchAsync(
+            @NonNull Executor executor, @NonNull Callable<T> fetch) {
+        final FutureTask<T> task = new FutureTask<>(fetch);
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Waits for the result of a fetch started with fetchAsync(), rethrowing any exception thrown
+     * by the fetch.
+     */
+    protected static <T> T getFetchResult(@NonNull Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a fetch", e);
+        }
+    }
+
+    @NonNull
+    Handler getWorkerHandler() {
+        return mWorkerHandler;
+    }
+
+    @NonNull
+    BroadcastReceiver getBroadcastReceiver() {
+        return mBroadcastReceiver;
+    }
+
+    @NonNull
+    ConnectivityManager.NetworkCallback getNetworkCallback() {
+        return mNetworkCallback;
+    }
+
+    @NonNull
+    ConnectivityManager.NetworkCallback getDefaultNetworkCallback() {
+        return mDefaultNetworkCallback;
+    }
+
+    @NonNull
+    ConnectivityDiagnosticsManager.ConnectivityDiagnosticsCallback
+            getConnectivityDiagnosticsCallback() {
+        return mConnectivityDiagnosticsCallback;
+    }
+
     /**
      * Method to run on the worker thread when onStart is invoked.
      * Data that can be updated immediately after onStart should be populated here.
@@ -530,6 +837,68 @@ public class BaseWifiTracker {
         // Do nothing.
     }
 
+    /**
+     * Returns the generation of the latest batch of scan results, for tagging the stages of its
+     * processing passed to {@link #runScanResultsStages(int, Runnable...)}.
+     */
+    @WorkerThread
+    protected final int getScanResultsGeneration() {
+        return mScanResultsGeneration;
+    }
+
+    /**
+     * Runs the given stages of the processing of the scan results of the given generation, in
+     * order.
+     *
+     * Scan processing has a lower priority than the other events handled by the worker thread:
+     * if any are waiting before a stage, such as connection state changes, the remaining stages
+     * are posted behind them instead of being run now. The remaining stages are cancelled if
+     * newer scan results arrived in the meantime, since their processing supersedes them. Only
+     * the newest batch of scan results thus reaches the last stage, so any processing done by the
+     * caller before this call, or after it returns false, is the only processing of a batch which
+     * ends up superseded.
+     *
+     * @return whether all stages were run before returning, or false if the remaining stages
+     *         were deferred.
+     */
+    @WorkerThread
+    protected boolean runScanResultsStages(int generation, @NonNull Runnable... stages) {
+        return continueScanResultsStages(generation, stages, 0 /* firstStage */,
+                true /* yieldFirst */);
+    }
+
+    @WorkerThread
+    private boolean continueScanResultsStages(int generation, @NonNull Runnable[] stages,
+            int firstStage, boolean yieldFirst) {
+        for (int i = firstStage; i < stages.length; i++) {
+            if (generation != mScanResultsGeneration) {
+                if (isVerboseLoggingEnabled()) {
+                    Log.v(mTag, "Cancelled " + (stages.length - i) + " scan processing stages"
+                            + " superseded by newer scan results");
+                }
+                return false;
+            }
+            if ((i > firstStage || yieldFirst)
+                    && !mWorkerHandler.getLooper().getQueue().isIdle()) {
+                final int nextStage = i;
+                mWorkerHandler.post(() -> continueScanResultsStages(generation, stages, nextStage,
+                        false /* yieldFirst */));
+                return false;
+            }
+            stages[i].run();
+        }
+        return true;
+    }
+
+    /**
+     * Handle the results streamed into mScanResultUpdater while a scan is still in progress.
+     * handleScanResultsAvailableAction() is called once the scan completes.
+     */
+    @WorkerThread
+    protected void handlePartialScanResults() {
+        // Do nothing.
+    }
+
     /**
      * Handle receiving the WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION broadcast
      */
@@ -697,6 +1066,11 @@ public class BaseWifiTracker {
     private class Scanner extends Handler {
         private boolean mIsStartedState = false;
         private boolean mIsWifiEnabled = false;
+        private long mLastScanUptimeMillis;
+        private final Runnable mScanLoopRunnable = this::scanLoop;
+        private final Runnable mRefreshScanRunnable = this::refreshScan;
+        private long mLastPartialScanUpdateUptimeMillis;
+        private final Runnable mPartialScanUpdateRunnable = this::publishPartialScanResults;
         private final WifiScanner.ScanListener mFirstScanListener = new WifiScanner.ScanListener() {
             @Override
             @MainThread
@@ -714,27 +1088,18 @@ public class BaseWifiTracker {
                     if (isVerboseLoggingEnabled()) {
                         Log.v(mTag, "Received scan results from first scan request.");
                     }
-                    List<ScanResult> scanResults = new ArrayList<>();
-                    if (results != null) {
-                        for (WifiScanner.ScanData scanData : results) {
-                            scanResults.addAll(List.of(scanData.getResults()));
-                        }
-                    }
-                    // Fake a SCAN_RESULTS_AVAILABLE_ACTION. The results should already be populated
-                    // in mScanResultUpdater, which is the source of truth for the child classes.
-                    mScanResultUpdater.update(scanResults);
-                    handleScanResultsAvailableAction(
-                            new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION)
-                                    .putExtra(WifiManager.EXTRA_RESULTS_UPDATED, true));
+                    // The complete results supersede any pending partial update.
+                    removeCallbacks(mPartialScanUpdateRunnable);
+                    onScanResultsAvailable(handleWifiScannerResults(results));
                     // Now start scanning via WifiManager.startScan().
-                    scanLoop();
+                    startScanLoop();
                 });
             }
 
             @Override
             @MainThread
             public void onFullResult(ScanResult fullScanResult) {
-                // No-op.
+                mWorkerHandler.post(() -> onFullScanResult(fullScanResult));
             }
 
             @Override
@@ -752,15 +1117,113 @@ public class BaseWifiTracker {
                     }
                     Log.e(mTag, "Failed to scan! Reason: " + reason + ", ");
                     // First scan failed, start scanning normally anyway.
-                    scanLoop();
+                    startScanLoop();
                 });
             }
         };
 
+        private final WifiScanner.ScanListener mRefreshScanListener =
+                new WifiScanner.ScanListener() {
+            @Override
+            @MainThread
+            public void onPeriodChanged(int periodInMs) {
+                // No-op.
+            }
+
+            @Override
+            @MainThread
+            public void onResults(WifiScanner.ScanData[] results) {
+                mWorkerHandler.post(() -> {
+                    if (!shouldScan()) {
+                        return;
+                    }
+                    if (isVerboseLoggingEnabled()) {
+                        Log.v(mTag, "Received scan results from refresh scan request.");
+                    }
+                    // Only some channels were scanned, so the results are not handed to the
+                    // scheduling policy, which compares whole scans.
+                    handleWifiScannerResults(results);
+                });
+            }
+
+            @Override
+            @MainThread
+            public void onFullResult(ScanResult fullScanResult) {
+                // No-op.
+            }
+
+            @Override
+            @MainThread
+            public void onSuccess() {
+                // No-op.
+            }
+
+            @Override
+            @MainThread
+            public void onFailure(int reason, String description) {
+                // The next full scan refreshes the results anyway.
+                Log.w(mTag, "Failed to refresh scan! Reason: " + reason);
+            }
+        };
+
         private Scanner(Looper looper) {
             super(looper);
         }
 
+        /**
+         * Streams a result of the first scan into the scan results as soon as it is received,
+         * and schedules a partial update of the scan results at a bounded rate.
+         */
+        @WorkerThread
+        private void onFullScanResult(@Nullable ScanResult fullScanResult) {
+            if (fullScanResult == null || !shouldScan()) {
+                return;
+            }
+            mScanResultUpdater.update(Collections.singletonList(fullScanResult));
+            if (hasCallbacks(mPartialScanUpdateRunnable)) {
+                return;
+            }
+            postDelayed(mPartialScanUpdateRunnable, Math.max(0,
+                    mLastPartialScanUpdateUptimeMillis + PARTIAL_SCAN_UPDATE_INTERVAL_MILLIS
+                            - SystemClock.uptimeMillis()));
+        }
+
+        @WorkerThread
+        private void publishPartialScanResults() {
+            if (!shouldScan()) {
+                return;
+            }
+            mLastPartialScanUpdateUptimeMillis = SystemClock.uptimeMillis();
+            handlePartialScanResults();
+        }
+
+        /**
+         * Updates the scan results with the results of a scan requested from WifiScanner.
+         *
+         * @return the results of the scan.
+         */
+        @WorkerThread
+        @NonNull
+        private List<ScanResult> handleWifiScannerResults(
+                @Nullable WifiScanner.ScanData[] results) {
+            List<ScanResult> scanResults = new ArrayList<>();
+            if (results != null) {
+                for (WifiScanner.ScanData scanData : results) {
+                    scanResults.addAll(List.of(scanData.getResults()));
+                }
+            }
+            // Fake a SCAN_RESULTS_AVAILABLE_ACTION. The results should already be populated
+            // in mScanResultUpdater, which is the source of truth for the child classes.
+            mScanResultUpdater.update(scanResults);
+            mScanResultsGeneration++;
+            handleScanResultsAvailableAction(
+                    new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION)
+                            .putExtra(WifiManager.EXTRA_RESULTS_UPDATED, true));
+            // The scans fetched for the fake broadcast are not the results of a new scan.
+            mLastFetchedScanResults = null;
+            return scanResults;
+        }
+
         /**
          * Called when the activity enters the Started state.
          * When this happens, evaluate if we need to start scanning.
@@ -813,6 +1276,8 @@ public class BaseWifiTracker {
                 return;
             }
             Log.i(mTag, "Scanning started");
+            mScanSchedulingPolicy.onScanningStarted();
+            updateScanInterval();
             if (BuildCompat.isAtLeastU()) {
                 // Start off with a fast scan of 2.4GHz, 5GHz, and 6GHz RNR using WifiScanner.
                 // After this is done, fall back to WifiManager.startScan() to get the rest of
@@ -837,7 +1302,7 @@ public class BaseWifiTracker {
                     Log.e(mTag, "Failed to retrieve WifiScanner!");
                 }
             }
-            scanLoop();
+            startScanLoop();
         }
 
         @WorkerThread
@@ -846,16 +1311,27 @@ public class BaseWifiTracker {
             removeCallbacksAndMessages(null);
         }
 
+        /**
+         * Starts the loop of scans via WifiManager.startScan().
+         *
+         * The app is checked to be visible once here rather than on every iteration of the loop,
+         * since the loop is stopped by the lifecycle events of the tracker.
+         */
         @WorkerThread
-        private void scanLoop() {
-            if (!shouldScan()) {
-                Log.wtf(mTag, "Scan loop called even though we shouldn't be scanning!"
+        private void startScanLoop() {
+            if (!isAppVisible()) {
+                Log.wtf(mTag, "Scan loop started even though app isn't visible anymore!"
                         + " mIsWifiEnabled=" + mIsWifiEnabled
                         + " mIsStartedState=" + mIsStartedState);
                 return;
             }
-            if (!isAppVisible()) {
-                Log.wtf(mTag, "Scan loop called even though app isn't visible anymore!"
+            scanLoop();
+        }
+
+        @WorkerThread
+        private void scanLoop() {
+            if (!shouldScan()) {
+                Log.wtf(mTag, "Scan loop called even though we shouldn't be scanning!"
                         + " mIsWifiEnabled=" + mIsWifiEnabled
                         + " mIsStartedState=" + mIsStartedState);
                 return;
@@ -865,9 +1341,185 @@ public class BaseWifiTracker {
             }
             // Remove any pending scanLoops in case possiblyStartScanning was called more than once.
             removeCallbacksAndMessages(null);
-            mWifiManager.startScan();
+            final long scanIntervalMillis = getPolicyScanIntervalMillis();
+            if (mHub == null || mHub.requestScan(scanIntervalMillis)) {
+                mWifiManager.startScan();
+                notifyOnScanRequested();
+            } else if (isVerboseLoggingEnabled()) {
+                Log.v(mTag, "Skipping scan request, another tracker scanned recently");
+            }
+            mLastScanUptimeMillis = SystemClock.uptimeMillis();
+            if (isRefreshScanEnabled()) {
+                postDelayed(mRefreshScanRunnable, scanIntervalMillis);
+            }
+            postDelayed(mScanLoopRunnable, getFullScanIntervalMillis(scanIntervalMillis));
+        }
+
+        @WorkerThread
+        private boolean isRefreshScanEnabled() {
+            return mInjector.isRefreshScanEnabled() && BuildCompat.isAtLeastU();
+        }
+
+        /**
+         * Returns the interval between full scans for the given scan interval, which is stretched
+         * if refresh scans are issued in between.
+         */
+        @WorkerThread
+        private long getFullScanIntervalMillis(long scanIntervalMillis) {
+            return isRefreshScanEnabled()
+                    ? scanIntervalMillis * REFRESH_SCAN_FULL_SCAN_INTERVAL_FACTOR
+                    : scanIntervalMillis;
+        }
+
+        /**
+         * Scans only the channels of the displayed networks with WifiScanner, to refresh their
+         * RSSI between full scans at a fraction of the radio time.
+         *
+         * Falls back to a full scan if the channels cannot be refreshed. Skipped if another
+         * tracker already refreshed its channels within the scan interval, since the next full
+         * scan is already scheduled.
+         */
+        @WorkerThread
+        private void refreshScan() {
+            if (!shouldScan()) {
+                return;
+            }
+            final Set<Integer> frequencies = new ArraySet<>();
+            for (ScanResult scanResult : getDisplayedScanResults()) {
+                frequencies.add(scanResult.frequency);
+            }
+            WifiScanner wifiScanner = mContext.getSystemService(WifiScanner.class);
+            if (frequencies.isEmpty() || frequencies.size() > MAX_REFRESH_SCAN_CHANNELS
+                    || wifiScanner == null) {
+                // Nothing to refresh, or not worth it. Scan fully rather than let the results age
+                // out.
+                scanLoop();
+                return;
+            }
+            if (mHub != null && !mHub.requestScan(getPolicyScanIntervalMillis(),
+                    true /* isRefreshScan */)) {
+                if (isVerboseLoggingEnabled()) {
+                    Log.v(mTag, "Skipping refresh scan, another tracker refreshed recently");
+                }
+                return;
+            }
+            WifiScanner.ScanSettings scanSettings = new WifiScanner.ScanSettings();
+            scanSettings.band = WifiScanner.WIFI_BAND_UNSPECIFIED;
+            scanSettings.channels = new WifiScanner.ChannelSpec[frequencies.size()];
+            int i = 0;
+            for (int frequency : frequencies) {
+                scanSettings.channels[i++] = new WifiScanner.ChannelSpec(frequency);
+            }
+            scanSettings.reportEvents = WifiScanner.REPORT_EVENT_AFTER_EACH_SCAN;
+            if (isVerboseLoggingEnabled()) {
+                Log.v(mTag, "Issuing refresh scan request from WifiScanner for " + frequencies);
+            }
+            wifiScanner.stopScan(mRefreshScanListener);
+            wifiScanner.startScan(scanSettings, mRefreshScanListener);
             notifyOnScanRequested();
-            postDelayed(this::scanLoop, mScanIntervalMillis);
+        }
+
+        /**
+         * Informs the scheduling policy of the results of a new full scan.
+         */
+        @WorkerThread
+        private void onScanResultsAvailable(@NonNull List<ScanResult> scanResults) {
+            if (!shouldScan()) {
+                return;
+            }
+            mScanSchedulingPolicy.onScanResultsAvailable(scanResults);
+            updateScanInterval();
+        }
+
+        /**
+         * Informs the scheduling policy that the Wi-Fi network changed.
+         */
+        @WorkerThread
+        private void onConnectionChanged() {
+            if (!shouldScan()) {
+                return;
+            }
+            mScanSchedulingPolicy.onConnectionChanged();
+            updateScanInterval();
+        }
+
+        /**
+         * Returns the interval chosen by the scheduling policy, capped at the max scan age so that
+         * the scans tracked after one scan do not age out of the lists before the next scan.
+         */
+        @WorkerThread
+        private long getPolicyScanIntervalMillis() {
+            return Math.min(mScanSchedulingPolicy.getScanIntervalMillis(),
+                    Math.max(mScanIntervalMillis, mMaxScanAgeMillis));
+        }
+
+        /**
+         * Publishes the interval chosen by the scheduling policy, and reschedules the pending
+         * scan relative to the last scan if the interval changed.
+         */
+        @WorkerThread
+        private void updateScanInterval() {
+            final long scanIntervalMillis = getPolicyScanIntervalMillis();
+            final int reason = mScanSchedulingPolicy.getScanIntervalReason();
+            if (scanIntervalMillis == mCurrentScanIntervalMillis
+                    && reason == mCurrentScanIntervalReason) {
+                return;
+            }
+            final boolean intervalChanged = scanIntervalMillis != mCurrentScanIntervalMillis;
+            mCurrentScanIntervalMillis = scanIntervalMillis;
+            mCurrentScanIntervalReason = reason;
+            if (isVerboseLoggingEnabled()) {
+                Log.v(mTag, "Scan interval changed to " + scanIntervalMillis + "ms, reason="
+                        + reason);
+            }
+            notifyOnScanIntervalChanged();
+            if (intervalChanged && hasCallbacks(mScanLoopRunnable)) {
+                removeCallbacks(mScanLoopRunnable);
+                postDelayed(mScanLoopRunnable, Math.max(0, mLastScanUptimeMillis
+                        + getFullScanIntervalMillis(scanIntervalMillis)
+                        - SystemClock.uptimeMillis()));
+            }
+            if (intervalChanged && hasCallbacks(mRefreshScanRunnable)) {
+                removeCallbacks(mRefreshScanRunnable);
+                postDelayed(mRefreshScanRunnable, Math.max(0,
+                        mLastScanUptimeMillis + scanIntervalMillis - SystemClock.uptimeMillis()));
+            }
+        }
+    }
+
+    /**
+     * ScanSchedulingPolicy which always scans at the given interval.
+     */
+    private static class FixedScanSchedulingPolicy implements ScanSchedulingPolicy {
+        private final long mScanIntervalMillis;
+
+        FixedScanSchedulingPolicy(long scanIntervalMillis) {
+            mScanIntervalMillis = scanIntervalMillis;
+        }
+
+        @Override
+        public void onScanningStarted() {
+            // Do nothing.
+        }
+
+        @Override
+        public void onScanResultsAvailable(@NonNull List<ScanResult> scanResults) {
+            // Do nothing.
+        }
+
+        @Override
+        public void onConnectionChanged() {
+            // Do nothing.
+        }
+
+        @Override
+        public long getScanIntervalMillis() {
+            return mScanIntervalMillis;
+        }
+
+        @Override
+        public int getScanIntervalReason() {
+            return SCAN_INTERVAL_REASON_DEFAULT;
         }
     }
 
@@ -883,9 +1535,7 @@ public class BaseWifiTracker {
      */
     @WorkerThread
     private void notifyOnWifiStateChanged() {
-        if (mListener != null) {
-            mMainHandler.post(mListener::onWifiStateChanged);
-        }
+        notifyListenersConflated("onWifiStateChanged", BaseWifiTrackerCallback::onWifiStateChanged);
     }
 
     /**
@@ -893,8 +1543,162 @@ public class BaseWifiTracker {
      */
     @WorkerThread
     private void notifyOnScanRequested() {
-        if (mListener != null) {
-            mMainHandler.post(mListener::onScanRequested);
+        notifyListeners(BaseWifiTrackerCallback::onScanRequested);
+    }
+
+    /**
+     * Posts onScanIntervalChanged callback on the main thread.
+     */
+    @WorkerThread
+    private void notifyOnScanIntervalChanged() {
+        notifyListenersConflated("onScanIntervalChanged",
+                BaseWifiTrackerCallback::onScanIntervalChanged);
+    }
+
+    /**
+     * Posts a callback to every listener on its executor.
+     */
+    @AnyThread
+    protected void notifyListeners(@NonNull Consumer<BaseWifiTrackerCallback> callback) {
+        for (ListenerRecord record : mListenerRecords) {
+            record.mExecutor.execute(() -> {
+                if (!record.mIsRemoved) {
+                    callback.accept(record.mListener);
+                }
+            });
+        }
+    }
+
+    /**
+     * Posts a callback of the given kind to every listener, unless one of the same kind is still
+     * pending for that listener or the listener was notified of that kind less than its minimum
+     * update interval ago. Callbacks which can be conflated this way must read the latest state
+     * when they run rather than capture it when posted.
+     */
+    @WorkerThread
+    protected void notifyListenersConflated(@NonNull String kind,
+            @NonNull Consumer<BaseWifiTrackerCallback> callback) {
+        notifyListenersConflated(kind, 0 /* arg */, (pendingArg, arg) -> arg,
+                (listener, arg) -> callback.accept(listener));
+    }
+
+    /**
+     * Like {@link #notifyListenersConflated(String, Consumer)}, for callbacks taking an argument.
+     * The argument of a conflated callback is merged into the argument of the pending one with
+     * mergeArgs.
+     */
+    @WorkerThread
+    protected void notifyListenersConflated(@NonNull String kind, int arg,
+            @NonNull IntBinaryOperator mergeArgs,
+            @NonNull ObjIntConsumer<BaseWifiTrackerCallback> callback) {
+        for (ListenerRecord record : mListenerRecords) {
+            record.postConflated(kind, arg, mergeArgs, callback);
+        }
+    }
+
+    /**
+     * Posts onWifiEntriesUpdated callback to every listener with the entries of a batch.
+     */
+    @MainThread
+    private void notifyOnWifiEntriesUpdated(@NonNull Set<WifiEntry> updatedEntries) {
+        notifyListeners(listener -> listener.onWifiEntriesUpdated(updatedEntries));
+    }
+
+    /**
+     * Posts onWifiConfigurationsChanged callback on the main thread.
+     */
+    @WorkerThread
+    protected void notifyOnWifiConfigurationsChanged(@NonNull Map<Integer, Integer> changeReasons) {
+        final Map<Integer, Integer> unmodifiableChangeReasons =
+                Collections.unmodifiableMap(changeReasons);
+        notifyListeners(listener -> listener.onWifiConfigurationsChanged(
+                unmodifiableChangeReasons));
+    }
+
+    /**
+     * Listener registered with the tracker, along with the state used to conflate and throttle the
+     * callbacks delivered to it.
+     */
+    private class ListenerRecord {
+        @NonNull final BaseWifiTrackerCallback mListener;
+        @NonNull final Executor mExecutor;
+        private final long mMinUpdateIntervalMillis;
+        volatile boolean mIsRemoved;
+        // Merged arguments of the callbacks waiting to be delivered, by kind.
+        @GuardedBy("this")
+        private final Map<String, Integer> mPendingArgs = new ArrayMap<>();
+        // Runnables posted to end the throttle of the kinds of callbacks delivered less than
+        // mMinUpdateIntervalMillis ago, by kind.
+        @GuardedBy("this")
+        private final ArrayMap<String, Runnable> mThrottleEndRunnables = new ArrayMap<>();
+
+        ListenerRecord(@NonNull BaseWifiTrackerCallback listener, @NonNull Executor executor,
+                long minUpdateIntervalMillis) {
+            mListener = listener;
+            mExecutor = executor;
+            mMinUpdateIntervalMillis = minUpdateIntervalMillis;
+        }
+
+        @WorkerThread
+        void postConflated(@NonNull String kind, int arg, @NonNull IntBinaryOperator mergeArgs,
+                @NonNull ObjIntConsumer<BaseWifiTrackerCallback> callback) {
+            synchronized (this) {
+                final Integer pendingArg = mPendingArgs.get(kind);
+                if (pendingArg != null) {
+                    mPendingArgs.put(kind, mergeArgs.applyAsInt(pendingArg, arg));
+                    mNumConflatedCallbacks.incrementAndGet();
+                    return;
+                }
+                mPendingArgs.put(kind, arg);
+                if (mThrottleEndRunnables.containsKey(kind)) {
+                    // Delivered once the throttle of the kind ends.
+                    return;
+                }
+            }
+            mExecutor.execute(() -> deliver(kind, callback));
+        }
+
+        @AnyThread
+        private void deliver(@NonNull String kind,
+                @NonNull ObjIntConsumer<BaseWifiTrackerCallback> callback) {
+            final int arg;
+            synchronized (this) {
+                arg = mPendingArgs.remove(kind);
+                if (mMinUpdateIntervalMillis > 0 && !mIsRemoved) {
+                    final Runnable throttleEndRunnable = () -> endThrottle(kind, callback);
+                    mThrottleEndRunnables.put(kind, throttleEndRunnable);
+                    mWorkerHandler.postDelayed(throttleEndRunnable, mMinUpdateIntervalMillis);
+                }
+            }
+            if (!mIsRemoved) {
+                callback.accept(mListener, arg);
+            }
+        }
+
+        @WorkerThread
+        private void endThrottle(@NonNull String kind,
+                @NonNull ObjIntConsumer<BaseWifiTrackerCallback> callback) {
+            synchronized (this) {
+                mThrottleEndRunnables.remove(kind);
+                if (!mPendingArgs.containsKey(kind)) {
+                    return;
+                }
+            }
+            mExecutor.execute(() -> deliver(kind, callback));
+        }
+
+        /**
+         * Removes the pending throttle timers, dropping the callbacks held back until they end.
+         */
+        @AnyThread
+        void cancelThrottles() {
+            synchronized (this) {
+                for (int i = 0; i < mThrottleEndRunnables.size(); i++) {
+                    mWorkerHandler.removeCallbacks(mThrottleEndRunnables.valueAt(i));
+                    mPendingArgs.remove(mThrottleEndRunnables.keyAt(i));
+                }
+                mThrottleEndRunnables.clear();
+            }
         }
     }
 
@@ -914,5 +1718,39 @@ public class BaseWifiTracker {
         default void onScanRequested() {
             // Do nothing.
         }
+
+        /**
+         * Called when the value for {@link #getScanIntervalMillis()} or
+         * {@link #getScanIntervalReason()} has changed.
+         */
+        @MainThread
+        default void onScanIntervalChanged() {
+            // Do nothing.
+        }
+
+        /**
+         * Called once per batch of WifiEntry updates with the entries that changed, after each of
+         * them has received WifiEntryCallback#onUpdated(). Delivered to the listener passed at
+         * construction and to every listener added with
+         * {@link #addListener(Executor, BaseWifiTrackerCallback, long)}, on its executor.
+         */
+        @MainThread
+        default void onWifiEntriesUpdated(@NonNull Set<WifiEntry> updatedEntries) {
+            // Do nothing.
+        }
+
+        /**
+         * Called when saved WifiConfigurations were added, removed or changed, after the entries
+         * of the changed configurations have been updated. Not called for the initial load of
+         * the configurations.
+         *
+         * @param changeReasons the networkId of each changed configuration mapped to
+         *                      WifiManager#CHANGE_REASON_ADDED, CHANGE_REASON_REMOVED or
+         *                      CHANGE_REASON_CONFIG_CHANGE.
+         */
+        @MainThread
+        default void onWifiConfigurationsChanged(@NonNull Map<Integer, Integer> changeReasons) {
+            // Do nothing.
+        }
     }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Table of the resource strings used to build WifiEntry descriptions.
+ *
+ * Resources#getStringArray() allocates a new array on every call and Resources#getIdentifier()
+ * looks up the framework resource by name, so the strings are loaded once per Resources and
+ * Configuration and shared by every entry until the Configuration changes. The whole Configuration
+ * is compared rather than just the locales, since its asset sequence number changes when a runtime
+ * resource overlay of these strings is enabled or disabled.
+ */
+class DescriptionStringTable {
+    // Plain string resources preloaded into the table. Resources not listed here are loaded on
+    // demand, and strings with format arguments are still formatted through the Context.
+    private static final int[] PRELOADED_STRING_IDS = new int[] {
+            R.string.wifitrackerlib_summary_separator,
+            R.string.wifi_connected_low_quality,
+            R.string.wifitrackerlib_wifi_limited_connection,
+            R.string.wifitrackerlib_checking_for_internet_access,
+            R.string.wifitrackerlib_private_dns_broken,
+            R.string.wifitrackerlib_wifi_connected_cannot_provide_internet,
+            R.string.wifitrackerlib_wifi_no_internet,
+            R.string.wifitrackerlib_wifi_no_internet_no_reconnect,
+            R.string.wifitrackerlib_wifi_disconnected,
+            R.string.wifitrackerlib_wifi_remembered,
+            R.string.wifitrackerlib_wifi_disabled_password_failure,
+            R.string.wifitrackerlib_wifi_check_password_try_again,
+            R.string.wifitrackerlib_wifi_disabled_network_failure,
+            R.string.wifitrackerlib_wifi_disabled_generic,
+            R.string.wifitrackerlib_wifi_disabled_transition_disable_indication,
+            R.string.wifitrackerlib_wifi_security_none,
+            R.string.wifitrackerlib_wifi_security_short_eap_wpa_wpa2,
+            R.string.wifitrackerlib_wifi_security_eap_wpa_wpa2,
+            R.string.wifitrackerlib_wifi_security_short_eap_wpa3,
+            R.string.wifitrackerlib_wifi_security_eap_wpa3,
+            R.string.wifitrackerlib_wifi_security_short_eap_suiteb,
+            R.string.wifitrackerlib_wifi_security_eap_suiteb,
+            R.string.wifitrackerlib_wifi_security_short_wpa_wpa2,
+            R.string.wifitrackerlib_wifi_security_wpa_wpa2,
+            R.string.wifitrackerlib_wifi_security_wep,
+            R.string.wifitrackerlib_wifi_security_short_sae,
+            R.string.wifitrackerlib_wifi_security_sae,
+            R.string.wifitrackerlib_wifi_security_short_owe,
+            R.string.wifitrackerlib_wifi_security_owe,
+            R.string.wifitrackerlib_wifi_security_short_wpa_wpa2_wpa3,
+            R.string.wifitrackerlib_wifi_security_wpa_wpa2_wpa3,
+            R.string.wifitrackerlib_wifi_security_short_eap_wpa_wpa2_wpa3,
+            R.string.wifitrackerlib_wifi_security_eap_wpa_wpa2_wpa3,
+    };
+
+    @Nullable private static volatile DescriptionStringTable sTable;
+    // Generation of the last loaded table. Tables that read through to the Context keep generation
+    // 0, since there is no Configuration to detect changes with.
+    private static final AtomicInteger sGeneration = new AtomicInteger();
+
+    // Only set for tables that read through to the Context instead of holding preloaded strings,
+    // so that the shared table never keeps a Context alive.
+    @Nullable private final Context mContext;
+    @Nullable private final Resources mResources;
+    // Copy of the Configuration the strings were loaded with.
+    @Nullable private final Configuration mConfiguration;
+    @NonNull private final SparseArray<String> mStrings = new SparseArray<>();
+    @Nullable private String[] mWifiStatus;
+    @Nullable private String mNetworkAvailableSignIn;
+    private final int mGeneration;
+
+    private DescriptionStringTable(@NonNull Context context) {
+        mContext = context;
+        mResources = null;
+        mConfiguration = null;
+        mGeneration = 0;
+    }
+
+    private DescriptionStringTable(@NonNull Resources resources,
+            @NonNull Configuration configuration) {
+        mContext = null;
+        mResources = resources;
+        mConfiguration = new Configuration(configuration);
+        mGeneration = sGeneration.incrementAndGet();
+        for (int id : PRELOADED_STRING_IDS) {
+            mStrings.put(id, resources.getString(id));
+        }
+        mWifiStatus = resources.getStringArray(R.array.wifitrackerlib_wifi_status);
+        final int signInId = resolveNetworkAvailableSignInId(resources);
+        if (signInId != 0) {
+            mNetworkAvailableSignIn = resources.getString(signInId);
+        }
+    }
+
+    /**
+     * Returns the table for the given Context, loading it if the Resources or their Configuration
+     * have changed since the last call. If the Context does not provide a Configuration, the
+     * returned table reads every string from the Context.
+     */
+    @NonNull
+    static DescriptionStringTable get(@NonNull Context context) {
+        final Resources resources = context.getResources();
+        final Configuration config = resources != null ? resources.getConfiguration() : null;
+        if (config == null) {
+            return new DescriptionStringTable(context);
+        }
+        final DescriptionStringTable table = sTable;
+        if (table != null && table.mResources == resources && table.mConfiguration.equals(config)) {
+            return table;
+        }
+        final DescriptionStringTable newTable = new DescriptionStringTable(resources, config);
+        sTable = newTable;
+        return newTable;
+    }
+
+    /**
+     * Returns the generation of this table. The generation changes whenever the table is reloaded
+     * for new Resources or a new Configuration, so strings built from a table of an older
+     * generation may be stale.
+     */
+    int getGeneration() {
+        return mGeneration;
+    }
+
+    /** Returns the string for the given resource id. */
+    @NonNull
+    String getString(int resId) {
+        if (mContext != null) {
+            return mContext.getString(resId);
+        }
+        final String string = mStrings.get(resId);
+        return string != null ? string : mResources.getString(resId);
+    }
+
+    /**
+     * Returns the R.array.wifitrackerlib_wifi_status entry at the given index, or an empty string
+     * if the index is out of bounds.
+     */
+    @NonNull
+    String getWifiStatus(int index) {
+        final String[] wifiStatus = mContext != null
+                ? mContext.getResources().getStringArray(R.array.wifitrackerlib_wifi_status)
+                : mWifiStatus;
+        return index >= wifiStatus.length ? "" : wifiStatus[index];
+    }
+
+    /** Returns the framework "Sign in to network" string. */
+    @NonNull
+    String getNetworkAvailableSignIn() {
+        if (mContext != null) {
+            return mContext.getString(resolveNetworkAvailableSignInId(mContext.getResources()));
+        }
+        if (mNetworkAvailableSignIn != null) {
+            return mNetworkAvailableSignIn;
+        }
+        return mResources.getString(resolveNetworkAvailableSignInId(mResources));
+    }
+
+    private static int resolveNetworkAvailableSignInId(@NonNull Resources resources) {
+        return resources.getIdentifier("network_available_sign_in", "string", "android");
+    }
+}
@@ -114,6 +114,68 @@ public abstract class NetworkDetailsTracker extends BaseWifiTracker {
         }
     }
 
+    /**
+     * Creates a concrete implementation of a NetworkDetailsTracker for the given WifiEntry, such as
+     * one returned by a WifiPickerTracker.
+     *
+     * If the type of the entry supports it, the tracked entry is seeded with the scans,
+     * configurations and connection state already held by the given entry, so that it can be
+     * displayed immediately without waiting for the tracker to fetch them. The seeded state is
+     * reconciled with the latest state once the tracker starts.
+     *
+     * @param wifiEntry           WifiEntry to be tracked. The entry itself is not modified.
+     * @see #createNetworkDetailsTracker(Lifecycle, Context, WifiManager, ConnectivityManager,
+     *      Handler, Handler, Clock, long, long, String)
+     */
+    public static NetworkDetailsTracker createNetworkDetailsTracker(@NonNull Lifecycle lifecycle,
+            @NonNull Context context,
+            @NonNull WifiManager wifiManager,
+            @NonNull ConnectivityManager connectivityManager,
+            @NonNull Handler mainHandler,
+            @NonNull Handler workerHandler,
+            @NonNull Clock clock,
+            long maxScanAgeMillis,
+            long scanIntervalMillis,
+            @NonNull WifiEntry wifiEntry) {
+        return createNetworkDetailsTracker(
+                new WifiTrackerInjector(context),
+                lifecycle,
+                context,
+                wifiManager,
+                connectivityManager,
+                mainHandler,
+                workerHandler,
+                clock,
+                maxScanAgeMillis,
+                scanIntervalMillis,
+                wifiEntry);
+    }
+
+    @VisibleForTesting
+    static NetworkDetailsTracker createNetworkDetailsTracker(
+            @NonNull WifiTrackerInjector injector,
+            @NonNull Lifecycle lifecycle,
+            @NonNull Context context,
+            @NonNull WifiManager wifiManager,
+            @NonNull ConnectivityManager connectivityManager,
+            @NonNull Handler mainHandler,
+            @NonNull Handler workerHandler,
+            @NonNull Clock clock,
+            long maxScanAgeMillis,
+            long scanIntervalMillis,
+            @NonNull WifiEntry wifiEntry) {
+        final String key = wifiEntry.getKey();
+        if (wifiEntry instanceof StandardWifiEntry
+                && key.startsWith(StandardWifiEntry.KEY_PREFIX)) {
+            return new StandardNetworkDetailsTracker(injector, lifecycle, context, wifiManager,
+                    connectivityManager, mainHandler, workerHandler, clock,
+                    maxScanAgeMillis, scanIntervalMillis, key, (StandardWifiEntry) wifiEntry);
+        }
+        return createNetworkDetailsTracker(injector, lifecycle, context, wifiManager,
+                connectivityManager, mainHandler, workerHandler, clock,
+                maxScanAgeMillis, scanIntervalMillis, key);
+    }
+
     /**
      * Abstract constructor for NetworkDetailsTracker.
      * Clients must use {@link NetworkDetailsTracker#createNetworkDetailsTracker} for creating
@@ -38,11 +38,13 @@ import android.util.Pair;
 
 import androidx.annotation.AnyThread;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 import androidx.lifecycle.Lifecycle;
 
 import java.time.Clock;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -185,19 +187,14 @@ public class PasspointNetworkDetailsTracker extends NetworkDetailsTracker {
     private void updatePasspointWifiEntryScans(@NonNull List<ScanResult> scanResults) {
         checkNotNull(scanResults, "Scan Result list should not be null!");
 
-        List<Pair<WifiConfiguration, Map<Integer, List<ScanResult>>>> matchingWifiConfigs =
-                mWifiManager.getAllMatchingWifiConfigs(scanResults);
-        for (Pair<WifiConfiguration, Map<Integer, List<ScanResult>>> pair : matchingWifiConfigs) {
-            final WifiConfiguration wifiConfig = pair.first;
-            final String key = uniqueIdToPasspointWifiEntryKey(wifiConfig.getKey());
-
-            if (TextUtils.equals(key, mChosenEntry.getKey())) {
-                mCurrentWifiConfig = wifiConfig;
-                mChosenEntry.updateScanResultInfo(mCurrentWifiConfig,
-                        pair.second.get(WifiManager.PASSPOINT_HOME_NETWORK),
-                        pair.second.get(WifiManager.PASSPOINT_ROAMING_NETWORK));
-                return;
-            }
+        final Pair<WifiConfiguration, Map<Integer, List<ScanResult>>> match =
+                getChosenEntryMatch(scanResults);
+        if (match != null) {
+            mCurrentWifiConfig = match.first;
+            mChosenEntry.updateScanResultInfo(mCurrentWifiConfig,
+                    match.second.get(WifiManager.PASSPOINT_HOME_NETWORK),
+                    match.second.get(WifiManager.PASSPOINT_ROAMING_NETWORK));
+            return;
         }
         // No AP in range; set scan results to null but keep the last seen WifiConfig to display
         // the previous information while out of range.
@@ -206,6 +203,37 @@ public class PasspointNetworkDetailsTracker extends NetworkDetailsTracker {
                 null /* roamingScanResults */);
     }
 
+    /**
+     * Returns the matching WifiConfiguration and scans of the chosen entry, or null if none of the
+     * scans match it.
+     *
+     * Only scans of Hotspot 2.0 APs are sent to getAllMatchingWifiConfigs(). The match is not
+     * cached across scans, since the same scans may start matching once their ANQP results arrive.
+     */
+    @WorkerThread
+    @Nullable
+    private Pair<WifiConfiguration, Map<Integer, List<ScanResult>>> getChosenEntryMatch(
+            @NonNull List<ScanResult> scanResults) {
+        final List<ScanResult> passpointScans = new ArrayList<>();
+        for (ScanResult scan : scanResults) {
+            if (scan.isPasspointNetwork()) {
+                passpointScans.add(scan);
+            }
+        }
+        if (passpointScans.isEmpty()) {
+            return null;
+        }
+
+        for (Pair<WifiConfiguration, Map<Integer, List<ScanResult>>> pair
+                : mWifiManager.getAllMatchingWifiConfigs(passpointScans)) {
+            if (TextUtils.equals(uniqueIdToPasspointWifiEntryKey(pair.first.getKey()),
+                    mChosenEntry.getKey())) {
+                return pair;
+            }
+        }
+        return null;
+    }
+
     @WorkerThread
     private void updateOsuWifiEntryScans(@NonNull List<ScanResult> scanResults) {
         checkNotNull(scanResults, "Scan Result list should not be null!");
@@ -284,6 +312,6 @@ public class PasspointNetworkDetailsTracker extends NetworkDetailsTracker {
      * Updates ScanResultUpdater with new ScanResults.
      */
     private void cacheNewScanResults() {
-        mScanResultUpdater.update(mWifiManager.getScanResults());
+        mScanResultUpdater.update(fetchScanResults());
     }
 }
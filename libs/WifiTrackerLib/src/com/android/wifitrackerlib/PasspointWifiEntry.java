@@ -394,6 +394,7 @@ public class PasspointWifiEntry extends WifiEntry implements WifiEntry.WifiEntry
                 // Do nothing.
                 return;
         }
+        incrementStateVersion();
         mWifiManager.setPasspointMeteredOverride(mPasspointConfig.getHomeSp().getFqdn(),
                 mMeteredOverride);
     }
@@ -487,6 +488,12 @@ public class PasspointWifiEntry extends WifiEntry implements WifiEntry.WifiEntry
         return "";
     }
 
+    @Override
+    protected synchronized boolean canCacheSummary() {
+        // The summary switches to the expired description once the expiration time passes.
+        return mSubscriptionExpirationTimeInMillis <= 0;
+    }
+
     @Override
     public synchronized boolean isExpired() {
         if (mSubscriptionExpirationTimeInMillis <= 0) {
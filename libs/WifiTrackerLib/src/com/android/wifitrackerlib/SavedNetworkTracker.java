@@ -41,6 +41,7 @@ import android.net.wifi.hotspot2.PasspointConfiguration;
 import android.os.Handler;
 import android.text.TextUtils;
 import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.Log;
 import android.util.Pair;
 
@@ -56,6 +57,7 @@ import androidx.lifecycle.Lifecycle;
 import java.time.Clock;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -85,8 +87,21 @@ public class SavedNetworkTracker extends BaseWifiTracker {
 
     // Cache containing saved StandardWifiEntries. Must be accessed only by the worker thread.
     private final List<StandardWifiEntry> mStandardWifiEntryCache = new ArrayList<>();
+    // Cache containing saved WifiConfigurations mapped by StandardWifiEntry key, diffed against
+    // each fetched list of configs. Must be accessed only by the worker thread.
+    private final Map<StandardWifiEntryKey, List<WifiConfiguration>> mStandardWifiConfigCache =
+            new ArrayMap<>();
+    private final WifiConfigurationDiffer mWifiConfigurationDiffer = new WifiConfigurationDiffer();
+    // SSIDs of the entries in mStandardWifiEntryCache, used to drop scans of unsaved networks
+    // before grouping them. Must be accessed only by the worker thread.
+    private final Set<String> mSavedSsids = new ArraySet<>();
     // Cache containing saved PasspointWifiEntries. Must be accessed only by the worker thread.
     private final Map<String, PasspointWifiEntry> mPasspointWifiEntryCache = new ArrayMap<>();
+    // Certificate aliases mapped to the SSIDs of the saved networks and suggestions using them.
+    // Rebuilt whenever the configured networks change, and null while the tracker is stopped
+    // since the CONFIGURED_NETWORKS_CHANGED_ACTION broadcast is not received then.
+    @GuardedBy("mLock")
+    @Nullable private Map<String, Set<String>> mCertificateAliasIndex;
 
     public SavedNetworkTracker(@NonNull Lifecycle lifecycle, @NonNull Context context,
             @NonNull WifiManager wifiManager,
@@ -158,47 +173,96 @@ public class SavedNetworkTracker extends BaseWifiTracker {
         return false;
     }
 
-    private static boolean isCertificateUsedByConfiguration(
-            WifiConfiguration config, String certAlias) {
-        if (TextUtils.isEmpty(certAlias)) return false;
-        if (config == null) return false;
-        if (config.enterpriseConfig == null) return false;
+    /**
+     * Returns the certificate aliases required by the configuration, or an empty list if the
+     * configuration does not require any certificate.
+     */
+    @NonNull
+    private static List<String> getCertificateAliasesUsedByConfiguration(
+            @Nullable WifiConfiguration config) {
+        if (config == null) return Collections.emptyList();
+        if (config.enterpriseConfig == null) return Collections.emptyList();
         WifiEnterpriseConfig ec = config.enterpriseConfig;
-        if (!ec.isEapMethodServerCertUsed()) return false;
+        if (!ec.isEapMethodServerCertUsed()) return Collections.emptyList();
         if (!hasCaCertificate(ec) && TextUtils.isEmpty(ec.getClientCertificateAlias())) {
-            return false;
+            return Collections.emptyList();
         }
 
+        List<String> certAliases = new ArrayList<>();
         String[] aliases = ec.getCaCertificateAliases();
         if (aliases != null) {
             for (String s: aliases) {
-                if (!TextUtils.isEmpty(s) && certAlias.equals(s)) {
-                    return true;
+                if (!TextUtils.isEmpty(s)) {
+                    certAliases.add(s);
                 }
             }
         }
         String clientAlias = ec.getClientCertificateAlias();
-        if (!TextUtils.isEmpty(clientAlias)
-                && certAlias.equals(clientAlias)) {
-            return true;
+        if (!TextUtils.isEmpty(clientAlias)) {
+            certAliases.add(clientAlias);
         }
-        return false;
+        return certAliases;
     }
 
     /**
-     * Check whether or not a certifiate is required by saved networks or network suggestions.
+     * Builds the certificate alias index from the given saved networks and the current network
+     * suggestions.
      */
-    @AnyThread
-    public boolean isCertificateRequired(String certAlias) {
+    @NonNull
+    private Map<String, Set<String>> buildCertificateAliasIndex(
+            @NonNull List<WifiConfiguration> configuredNetworks) {
         // Configurations from Wi-Fi Network Suggestion
         List<WifiConfiguration> configurations = mWifiManager.getNetworkSuggestions()
                 .stream().map(s -> s.getWifiConfiguration())
                 .collect(Collectors.toList());
         // Configurations from regular Wi-Fi configurations.
-        configurations.addAll(mWifiManager.getConfiguredNetworks());
+        configurations.addAll(configuredNetworks);
+
+        final Map<String, Set<String>> certificateAliasIndex = new ArrayMap<>();
+        for (WifiConfiguration config : configurations) {
+            for (String certAlias : getCertificateAliasesUsedByConfiguration(config)) {
+                Set<String> ssids = certificateAliasIndex.get(certAlias);
+                if (ssids == null) {
+                    ssids = new ArraySet<>();
+                    certificateAliasIndex.put(certAlias, ssids);
+                }
+                ssids.add(config.SSID);
+            }
+        }
+        return certificateAliasIndex;
+    }
 
-        return configurations.stream()
-                .anyMatch(c -> isCertificateUsedByConfiguration(c, certAlias));
+    @WorkerThread
+    private void updateCertificateAliasIndex(@NonNull List<WifiConfiguration> configuredNetworks) {
+        final Map<String, Set<String>> certificateAliasIndex =
+                buildCertificateAliasIndex(configuredNetworks);
+        synchronized (mLock) {
+            mCertificateAliasIndex = certificateAliasIndex;
+        }
+    }
+
+    /**
+     * Returns the current certificate alias index, or a newly built one if the tracker is not
+     * started and the index is not kept up to date.
+     */
+    @AnyThread
+    @NonNull
+    private Map<String, Set<String>> getCertificateAliasIndex() {
+        synchronized (mLock) {
+            if (mCertificateAliasIndex != null) {
+                return mCertificateAliasIndex;
+            }
+        }
+        return buildCertificateAliasIndex(mWifiManager.getConfiguredNetworks());
+    }
+
+    /**
+     * Check whether or not a certifiate is required by saved networks or network suggestions.
+     */
+    @AnyThread
+    public boolean isCertificateRequired(String certAlias) {
+        if (TextUtils.isEmpty(certAlias)) return false;
+        return getCertificateAliasIndex().containsKey(certAlias);
     }
 
     /**
@@ -209,17 +273,43 @@ public class SavedNetworkTracker extends BaseWifiTracker {
     @AnyThread
     @NonNull
     public List<String> getCertificateRequesterNames(String certAlias) {
-        // Configurations from Wi-Fi Network Suggestion
-        List<WifiConfiguration> configurations = mWifiManager.getNetworkSuggestions()
-                .stream().map(s -> s.getWifiConfiguration())
-                .collect(Collectors.toList());
-        // Configurations from regular Wi-Fi configurations.
-        configurations.addAll(mWifiManager.getConfiguredNetworks());
+        if (TextUtils.isEmpty(certAlias)) return new ArrayList<>();
+        final Set<String> ssids = getCertificateAliasIndex().get(certAlias);
+        return ssids != null ? new ArrayList<>(ssids) : new ArrayList<>();
+    }
 
-        return configurations.stream()
-                .filter(c -> isCertificateUsedByConfiguration(c, certAlias))
-                .map(c -> c.SSID).collect(Collectors.toSet())
-                .stream().collect(Collectors.toList());
+    /**
+     * Returns the names of the networks requiring each of the given certificate aliases.
+     *
+     * @return a map of each certificate alias to the list of network names requiring it. Aliases
+     *         not required by any network are mapped to an empty list.
+     */
+    @AnyThread
+    @NonNull
+    public Map<String, List<String>> getCertificateRequesterNames(
+            @NonNull Collection<String> certAliases) {
+        final Map<String, Set<String>> certificateAliasIndex = getCertificateAliasIndex();
+        final Map<String, List<String>> requesterNames = new ArrayMap<>(certAliases.size());
+        for (String certAlias : certAliases) {
+            final Set<String> ssids = TextUtils.isEmpty(certAlias)
+                    ? null : certificateAliasIndex.get(certAlias);
+            requesterNames.put(certAlias,
+                    ssids != null ? new ArrayList<>(ssids) : new ArrayList<>());
+        }
+        return requesterNames;
+    }
+
+    @MainThread
+    @Override
+    public void onStop() {
+        super.onStop();
+        // Posted after the broadcast receiver is unregistered so that no pending
+        // CONFIGURED_NETWORKS_CHANGED_ACTION can rebuild the index afterwards.
+        mWorkerHandler.post(() -> {
+            synchronized (mLock) {
+                mCertificateAliasIndex = null;
+            }
+        });
     }
 
     private List<WifiEntry> getAllWifiEntries() {
@@ -239,9 +329,11 @@ public class SavedNetworkTracker extends BaseWifiTracker {
         }
 
         // Update configs and scans
-        updateStandardWifiEntryConfigs(mWifiManager.getConfiguredNetworks());
+        final List<WifiConfiguration> configuredNetworks = mWifiManager.getConfiguredNetworks();
+        updateStandardWifiEntryConfigs(configuredNetworks);
+        updateCertificateAliasIndex(configuredNetworks);
         updatePasspointWifiEntryConfigs(mWifiManager.getPasspointConfigurations());
-        mScanResultUpdater.update(mWifiManager.getScanResults());
+        mScanResultUpdater.update(fetchScanResults());
         conditionallyUpdateScanResults(true /* lastScanSucceeded */);
 
         // Trigger callbacks manually now to avoid waiting until the first calls to update state.
@@ -272,6 +364,17 @@ public class SavedNetworkTracker extends BaseWifiTracker {
         updateWifiEntries();
     }
 
+    @WorkerThread
+    @Override
+    @NonNull
+    protected List<ScanResult> getDisplayedScanResults() {
+        final List<ScanResult> scanResults = new ArrayList<>();
+        for (StandardWifiEntry entry : mStandardWifiEntryCache) {
+            scanResults.addAll(entry.getMatchingScanResults());
+        }
+        return scanResults;
+    }
+
     @WorkerThread
     @Override
     protected void handleScanResultsAvailableAction(@Nullable Intent intent) {
@@ -285,7 +388,9 @@ public class SavedNetworkTracker extends BaseWifiTracker {
     @Override
     protected void handleConfiguredNetworksChangedAction(@Nullable Intent intent) {
         checkNotNull(intent, "Intent cannot be null!");
-        updateStandardWifiEntryConfigs(mWifiManager.getConfiguredNetworks());
+        final List<WifiConfiguration> configuredNetworks = mWifiManager.getConfiguredNetworks();
+        updateStandardWifiEntryConfigs(configuredNetworks);
+        updateCertificateAliasIndex(configuredNetworks);
         updatePasspointWifiEntryConfigs(mWifiManager.getPasspointConfigurations());
         updateWifiEntries();
     }
@@ -381,9 +486,20 @@ public class SavedNetworkTracker extends BaseWifiTracker {
     private void updateStandardWifiEntryScans(@NonNull List<ScanResult> scanResults) {
         checkNotNull(scanResults, "Scan Result list should not be null!");
 
-        // Group scans by StandardWifiEntry key
-        final Map<ScanResultKey, List<ScanResult>> scanResultsByKey = scanResults.stream()
-                .collect(Collectors.groupingBy(StandardWifiEntry.ScanResultKey::new));
+        // Group scans of saved SSIDs by StandardWifiEntry key
+        final Map<ScanResultKey, List<ScanResult>> scanResultsByKey = new ArrayMap<>();
+        for (ScanResult scan : scanResults) {
+            if (scan.SSID == null || !mSavedSsids.contains(scan.SSID)) {
+                continue;
+            }
+            final ScanResultKey scanKey = new ScanResultKey(scan);
+            List<ScanResult> scansForKey = scanResultsByKey.get(scanKey);
+            if (scansForKey == null) {
+                scansForKey = new ArrayList<>();
+                scanResultsByKey.put(scanKey, scansForKey);
+            }
+            scansForKey.add(scan);
+        }
 
         // Iterate through current entries and update each entry's scan results
         mStandardWifiEntryCache.forEach(entry -> {
@@ -438,38 +554,118 @@ public class SavedNetworkTracker extends BaseWifiTracker {
         long scanAgeWindow = mMaxScanAgeMillis;
         if (lastScanSucceeded) {
             // Scan succeeded, cache new scans
-            mScanResultUpdater.update(mWifiManager.getScanResults());
+            mScanResultUpdater.update(fetchScanResults());
         } else {
             // Scan failed, increase scan age window to prevent WifiEntry list from
             // clearing prematurely.
             scanAgeWindow += mScanIntervalMillis;
         }
-        updateStandardWifiEntryScans(mScanResultUpdater.getScanResults(scanAgeWindow));
-        updatePasspointWifiEntryScans(mScanResultUpdater.getScanResults(scanAgeWindow));
+        final List<ScanResult> scanResults = mScanResultUpdater.getScanResults(scanAgeWindow);
+        updateStandardWifiEntryScans(scanResults);
+        updatePasspointWifiEntryScans(scanResults);
     }
 
     private void updateStandardWifiEntryConfigs(@NonNull List<WifiConfiguration> configs) {
         checkNotNull(configs, "Config list should not be null!");
 
-        // Group configs by StandardWifiEntry key
-        final Map<StandardWifiEntryKey, List<WifiConfiguration>> wifiConfigsByKey = configs.stream()
-                .filter(config -> !config.carrierMerged)
-                .collect(Collectors.groupingBy(StandardWifiEntryKey::new));
+        final WifiConfigurationDiffer.Diff diff = mWifiConfigurationDiffer.update(configs);
+        // Keys of the configs that changed, or null if every entry should be updated.
+        final Set<StandardWifiEntryKey> changedKeys;
+        if (diff == null) {
+            // Group configs by StandardWifiEntry key
+            mStandardWifiConfigCache.clear();
+            for (WifiConfiguration config : configs) {
+                addToConfigCache(config);
+            }
+            changedKeys = null;
+        } else {
+            if (diff.isEmpty()) {
+                return;
+            }
+            changedKeys = new ArraySet<>();
+            for (WifiConfiguration config : diff.removedConfigs) {
+                final StandardWifiEntryKey key = removeFromConfigCache(config);
+                if (key != null) {
+                    changedKeys.add(key);
+                }
+            }
+            for (WifiConfiguration config : diff.addedConfigs) {
+                final StandardWifiEntryKey key = addToConfigCache(config);
+                if (key != null) {
+                    changedKeys.add(key);
+                }
+            }
+            notifyOnWifiConfigurationsChanged(diff.changeReasons);
+        }
 
         // Iterate through current entries and update each entry's config
+        final Set<StandardWifiEntryKey> keysWithEntries = new ArraySet<>();
         mStandardWifiEntryCache.removeIf(entry -> {
+            final StandardWifiEntryKey key = entry.getStandardWifiEntryKey();
+            keysWithEntries.add(key);
+            if (changedKeys != null && !changedKeys.contains(key)) {
+                return false;
+            }
             // Update config if available, or set to null (unsaved)
-            entry.updateConfig(wifiConfigsByKey.remove(entry.getStandardWifiEntryKey()));
+            entry.updateConfig(mStandardWifiConfigCache.get(key));
             // Entry is now unsaved, remove it.
             return !entry.isSaved();
         });
 
         // Create new entry for each unmatched config
-        for (StandardWifiEntryKey key : wifiConfigsByKey.keySet()) {
+        for (StandardWifiEntryKey key : changedKeys != null
+                ? changedKeys : mStandardWifiConfigCache.keySet()) {
+            if (keysWithEntries.contains(key) || !mStandardWifiConfigCache.containsKey(key)) {
+                continue;
+            }
             mStandardWifiEntryCache.add(new StandardWifiEntry(mInjector, mMainHandler,
-                    key, wifiConfigsByKey.get(key), null, mWifiManager,
+                    key, mStandardWifiConfigCache.get(key), null, mWifiManager,
                     true /* forSavedNetworksPage */));
         }
+
+        mSavedSsids.clear();
+        for (StandardWifiEntry entry : mStandardWifiEntryCache) {
+            mSavedSsids.add(entry.getStandardWifiEntryKey().getScanResultKey().getSsid());
+        }
+    }
+
+    /**
+     * Adds the config to the config cache.
+     *
+     * @return the key of the entry for the config, or null if the config is not shown.
+     */
+    @Nullable
+    private StandardWifiEntryKey addToConfigCache(@NonNull WifiConfiguration config) {
+        if (config.carrierMerged) {
+            return null;
+        }
+        final StandardWifiEntryKey key = new StandardWifiEntryKey(config);
+        if (!mStandardWifiConfigCache.containsKey(key)) {
+            mStandardWifiConfigCache.put(key, new ArrayList<>());
+        }
+        mStandardWifiConfigCache.get(key).add(config);
+        return key;
+    }
+
+    /**
+     * Removes the previously added config from the config cache.
+     *
+     * @return the key of the entry for the config, or null if the config is not shown.
+     */
+    @Nullable
+    private StandardWifiEntryKey removeFromConfigCache(@NonNull WifiConfiguration config) {
+        if (config.carrierMerged) {
+            return null;
+        }
+        final StandardWifiEntryKey key = new StandardWifiEntryKey(config);
+        final List<WifiConfiguration> cachedConfigs = mStandardWifiConfigCache.get(key);
+        if (cachedConfigs != null) {
+            cachedConfigs.remove(config);
+            if (cachedConfigs.isEmpty()) {
+                mStandardWifiConfigCache.remove(key);
+            }
+        }
+        return key;
     }
 
     @WorkerThread
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import android.net.wifi.ScanResult;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.List;
+
+/**
+ * Policy deciding the interval between the scans requested by a tracker while it is scanning.
+ *
+ * The policy is informed of the events that may affect the interval on the worker thread of the
+ * tracker, which re-reads the interval after each event.
+ */
+public interface ScanSchedulingPolicy {
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef(value = {
+            SCAN_INTERVAL_REASON_DEFAULT,
+            SCAN_INTERVAL_REASON_CHURN,
+            SCAN_INTERVAL_REASON_STABLE,
+            SCAN_INTERVAL_REASON_CONNECTION_CHANGED,
+    })
+
+    @interface ScanIntervalReason {}
+
+    /** The default interval of the tracker is used. */
+    int SCAN_INTERVAL_REASON_DEFAULT = 0;
+    /** The interval is shortened since the scan results are changing. */
+    int SCAN_INTERVAL_REASON_CHURN = 1;
+    /** The interval is lengthened since successive scan results are identical. */
+    int SCAN_INTERVAL_REASON_STABLE = 2;
+    /** The interval is reset since the Wi-Fi connection changed. */
+    int SCAN_INTERVAL_REASON_CONNECTION_CHANGED = 3;
+
+    /**
+     * Called when the tracker starts scanning, e.g. when it is started or Wi-Fi is enabled.
+     */
+    @WorkerThread
+    void onScanningStarted();
+
+    /**
+     * Called when the results of a new full scan are available.
+     *
+     * @param scanResults the results of the new scan only, not the scans tracked before it.
+     */
+    @WorkerThread
+    void onScanResultsAvailable(@NonNull List<ScanResult> scanResults);
+
+    /**
+     * Called when the Wi-Fi network the device is connected to changes.
+     */
+    @WorkerThread
+    void onConnectionChanged();
+
+    /**
+     * Returns the interval in milliseconds until the next scan.
+     */
+    @WorkerThread
+    long getScanIntervalMillis();
+
+    /**
+     * Returns the reason for the current interval.
+     */
+    @WorkerThread
+    @ScanIntervalReason int getScanIntervalReason();
+}
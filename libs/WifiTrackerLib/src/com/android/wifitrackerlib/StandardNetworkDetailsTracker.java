@@ -29,19 +29,23 @@ import android.net.ConnectivityManager;
 import android.net.LinkProperties;
 import android.net.Network;
 import android.net.NetworkCapabilities;
+import android.net.wifi.ScanResult;
 import android.net.wifi.WifiConfiguration;
 import android.net.wifi.WifiManager;
 import android.os.Handler;
 import android.telephony.SubscriptionManager;
+import android.text.TextUtils;
 
 import androidx.annotation.AnyThread;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 import androidx.lifecycle.Lifecycle;
 
 import java.time.Clock;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * Implementation of NetworkDetailsTracker that tracks a single StandardWifiEntry.
@@ -79,6 +83,29 @@ public class StandardNetworkDetailsTracker extends NetworkDetailsTracker {
             long maxScanAgeMillis,
             long scanIntervalMillis,
             String key) {
+        this(injector, lifecycle, context, wifiManager, connectivityManager, mainHandler,
+                workerHandler, clock, maxScanAgeMillis, scanIntervalMillis, key,
+                null /* seedEntry */);
+    }
+
+    /**
+     * Creates a tracker for the given key. If a seed entry of the same key is given, the tracked
+     * entry starts out with the seed entry's scans, configs and connection state instead of
+     * fetching them, and is reconciled with the latest state once the tracker starts.
+     */
+    StandardNetworkDetailsTracker(
+            @NonNull WifiTrackerInjector injector,
+            @NonNull Lifecycle lifecycle,
+            @NonNull Context context,
+            @NonNull WifiManager wifiManager,
+            @NonNull ConnectivityManager connectivityManager,
+            @NonNull Handler mainHandler,
+            @NonNull Handler workerHandler,
+            @NonNull Clock clock,
+            long maxScanAgeMillis,
+            long scanIntervalMillis,
+            String key,
+            @Nullable StandardWifiEntry seedEntry) {
         super(injector, lifecycle, context, wifiManager, connectivityManager,
                 mainHandler, workerHandler, clock, maxScanAgeMillis, scanIntervalMillis, TAG);
         mKey = new StandardWifiEntryKey(key);
@@ -89,10 +116,14 @@ public class StandardNetworkDetailsTracker extends NetworkDetailsTracker {
             mChosenEntry = new StandardWifiEntry(mInjector, mMainHandler, mKey,
                     mWifiManager, false /* forSavedNetworksPage */);
         }
-        // It is safe to call updateStartInfo() in the main thread here since onStart() won't have
-        // a chance to post handleOnStart() on the worker thread until the main thread finishes
-        // calling this constructor.
-        updateStartInfo();
+        // It is safe to call updateStartInfo() or seedStartInfo() in the main thread here since
+        // onStart() won't have a chance to post handleOnStart() on the worker thread until the
+        // main thread finishes calling this constructor.
+        if (seedEntry != null && TextUtils.equals(seedEntry.getKey(), key)) {
+            seedStartInfo(seedEntry);
+        } else {
+            updateStartInfo();
+        }
     }
 
     @AnyThread
@@ -114,6 +145,13 @@ public class StandardNetworkDetailsTracker extends NetworkDetailsTracker {
         conditionallyUpdateScanResults(true /* lastScanSucceeded */);
     }
 
+    @WorkerThread
+    @Override
+    @NonNull
+    protected List<ScanResult> getDisplayedScanResults() {
+        return mChosenEntry.getMatchingScanResults();
+    }
+
     @WorkerThread
     @Override
     protected void handleScanResultsAvailableAction(@NonNull Intent intent) {
@@ -157,6 +195,18 @@ public class StandardNetworkDetailsTracker extends NetworkDetailsTracker {
         }
     }
 
+    /**
+     * Seeds the tracked entry from an entry of the same key without any binder calls. The seeded
+     * state is replaced by updateStartInfo() in handleOnStart().
+     */
+    private void seedStartInfo(@NonNull StandardWifiEntry seedEntry) {
+        final List<ScanResult> scanResults = seedEntry.getMatchingScanResults();
+        mScanResultUpdater.update(scanResults);
+        mChosenEntry.updateScanResultInfo(scanResults);
+        mChosenEntry.updateConfig(seedEntry.getMatchingWifiConfigs());
+        mChosenEntry.seedConnectionInfo(seedEntry);
+    }
+
     /**
      * Updates the tracked entry's scan results up to the max scan age (or more, if the last scan
      * was unsuccessful). If Wifi is disabled, the tracked entry's level will be cleared.
@@ -169,7 +219,7 @@ public class StandardNetworkDetailsTracker extends NetworkDetailsTracker {
 
         long scanAgeWindow = mMaxScanAgeMillis;
         if (lastScanSucceeded) {
-            mScanResultUpdater.update(mWifiManager.getScanResults());
+            mScanResultUpdater.update(fetchScanResults());
         } else {
             // Scan failed, increase scan age window to prevent WifiEntry list from
             // clearing prematurely.
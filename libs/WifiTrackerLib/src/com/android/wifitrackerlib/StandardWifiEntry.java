@@ -89,7 +89,6 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.StringJoiner;
-import java.util.stream.Collectors;
 
 /**
  * WifiEntry representation of a logical Wi-Fi network, uniquely identified by SSID and security.
@@ -100,6 +99,13 @@ public class StandardWifiEntry extends WifiEntry {
     static final String TAG = "StandardWifiEntry";
     public static final String KEY_PREFIX = "StandardWifiEntry:";
 
+    // Bands listed in the verbose scan description, in order.
+    private static final int[][] VERBOSE_BAND_FREQ_RANGES = new int[][] {
+            {MIN_FREQ_24GHZ, MAX_FREQ_24GHZ},
+            {MIN_FREQ_5GHZ, MAX_FREQ_5GHZ},
+            {MIN_FREQ_6GHZ, MAX_FREQ_6GHZ},
+            {MIN_FREQ_60GHZ, MAX_FREQ_60GHZ}};
+
     @NonNull private final StandardWifiEntryKey mKey;
 
     // Map of security type to matching scan results
@@ -113,10 +119,21 @@ public class StandardWifiEntry extends WifiEntry {
     // If no WifiConfigurations are available, then these should match the most appropriate security
     // type (e.g. PSK for an PSK/SAE entry, OWE for an Open/OWE entry).
     @NonNull private final List<ScanResult> mTargetScanResults = new ArrayList<>();
+    // mTargetScanResults split into the bands of VERBOSE_BAND_FREQ_RANGES and sorted by descending
+    // level, for the verbose scan description. Built on demand and cleared whenever the target
+    // scans change.
+    @Nullable private List<List<ScanResult>> mTargetScanResultsByBand;
+    // Affiliated MLO link descriptions of the 11be scans in mTargetScanResultsByBand.
+    @NonNull private final Map<ScanResult, String> mAffiliatedMloLinksDescriptions =
+            new ArrayMap<>();
     // Target WifiConfiguration for connection and displaying WifiConfiguration info
     private WifiConfiguration mTargetWifiConfig;
     private List<Integer> mTargetSecurityTypes = new ArrayList<>();
 
+    // State version published by the last updateScanResultInfo() call. A scan update matching the
+    // same scans is dropped if nothing else has changed the entry in the meantime.
+    private int mMatchingScanResultsVersion = -1;
+
     private boolean mIsUserShareable = false;
 
     private boolean mShouldAutoOpenCaptivePortal = false;
@@ -542,6 +559,7 @@ public class StandardWifiEntry extends WifiEntry {
         } else if (meteredChoice == METERED_CHOICE_UNMETERED) {
             mTargetWifiConfig.meteredOverride = WifiConfiguration.METERED_OVERRIDE_NOT_METERED;
         }
+        incrementStateVersion();
         mWifiManager.save(mTargetWifiConfig, null /* listener */);
     }
 
@@ -664,8 +682,15 @@ public class StandardWifiEntry extends WifiEntry {
         return false;
     }
 
+    /**
+     * Updates the scans matching this entry.
+     *
+     * @return true if the entry was updated, or false if the matched scans are unchanged since the
+     *         last update, apart from RSSI changes within the same signal level, and the update
+     *         was dropped.
+     */
     @WorkerThread
-    synchronized void updateScanResultInfo(@Nullable List<ScanResult> scanResults)
+    synchronized boolean updateScanResultInfo(@Nullable List<ScanResult> scanResults)
             throws IllegalArgumentException {
         if (scanResults == null) scanResults = new ArrayList<>();
 
@@ -677,34 +702,82 @@ public class StandardWifiEntry extends WifiEntry {
                                 + ssid + ", Actual: " + scan.SSID + ", ScanResult: " + scan);
             }
         }
-        // Populate the cached scan result map
-        mMatchingScanResults.clear();
+        final Map<Integer, List<ScanResult>> matchingScanResults = new ArrayMap<>();
         final Set<Integer> keySecurityTypes = mKey.getScanResultKey().getSecurityTypes();
         for (ScanResult scan : scanResults) {
             for (int security : getSecurityTypesFromScanResult(scan)) {
                 if (!keySecurityTypes.contains(security) || !isSecurityTypeSupported(security)) {
                     continue;
                 }
-                if (!mMatchingScanResults.containsKey(security)) {
-                    mMatchingScanResults.put(security, new ArrayList<>());
+                if (!matchingScanResults.containsKey(security)) {
+                    matchingScanResults.put(security, new ArrayList<>());
                 }
-                mMatchingScanResults.get(security).add(scan);
+                matchingScanResults.get(security).add(scan);
             }
         }
+        // The verbose summary shows the RSSI and age of each scan, so it changes with every scan.
+        if (mMatchingScanResultsVersion == getStateVersion() && !isVerboseSummaryEnabled()
+                && hasSameScans(mMatchingScanResults, matchingScanResults)) {
+            return false;
+        }
 
+        // Populate the cached scan result map
+        mMatchingScanResults.clear();
+        mMatchingScanResults.putAll(matchingScanResults);
         updateSecurityTypes();
         updateTargetScanResultInfo();
         notifyOnUpdated();
+        mMatchingScanResultsVersion = getStateVersion();
+        return true;
     }
 
-    private synchronized void updateTargetScanResultInfo() {
-        // Update the level using the scans matching the target security type
+    /**
+     * Returns whether the given matched scans have the same BSSIDs, frequencies, capabilities and
+     * signal levels for each security type, regardless of the order of the scans.
+     */
+    private boolean hasSameScans(@NonNull Map<Integer, List<ScanResult>> oldScanResults,
+            @NonNull Map<Integer, List<ScanResult>> newScanResults) {
+        if (!oldScanResults.keySet().equals(newScanResults.keySet())) {
+            return false;
+        }
+        for (Map.Entry<Integer, List<ScanResult>> entry : newScanResults.entrySet()) {
+            final List<ScanResult> oldScans = oldScanResults.get(entry.getKey());
+            final List<ScanResult> newScans = entry.getValue();
+            if (oldScans.size() != newScans.size()) {
+                return false;
+            }
+            final Map<String, ScanResult> oldScansByBssid = new ArrayMap<>(oldScans.size());
+            for (ScanResult scan : oldScans) {
+                oldScansByBssid.put(scan.BSSID, scan);
+            }
+            if (oldScansByBssid.size() != oldScans.size()) {
+                return false;
+            }
+            for (ScanResult newScan : newScans) {
+                final ScanResult oldScan = oldScansByBssid.get(newScan.BSSID);
+                if (oldScan == null
+                        || oldScan.frequency != newScan.frequency
+                        || !TextUtils.equals(oldScan.capabilities, newScan.capabilities)
+                        || mWifiManager.calculateSignalLevel(oldScan.level)
+                                != mWifiManager.calculateSignalLevel(newScan.level)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private synchronized int getTargetLevel() {
+        // Calculate the level using the scans matching the target security type
         final ScanResult bestScanResult = getBestScanResultByLevel(mTargetScanResults);
+        return bestScanResult != null
+                ? mWifiManager.calculateSignalLevel(bestScanResult.level)
+                : WIFI_LEVEL_UNREACHABLE;
+    }
 
+    private synchronized void updateTargetScanResultInfo() {
         if (getConnectedState() == CONNECTED_STATE_DISCONNECTED) {
-            mLevel = bestScanResult != null
-                    ? mWifiManager.calculateSignalLevel(bestScanResult.level)
-                    : WIFI_LEVEL_UNREACHABLE;
+            mLevel = getTargetLevel();
         }
     }
 
@@ -721,6 +794,26 @@ public class StandardWifiEntry extends WifiEntry {
         }
     }
 
+    /**
+     * Returns the scans matching this entry across all of its security types.
+     */
+    @NonNull
+    synchronized List<ScanResult> getMatchingScanResults() {
+        final Set<ScanResult> scanResults = new ArraySet<>();
+        for (List<ScanResult> scans : mMatchingScanResults.values()) {
+            scanResults.addAll(scans);
+        }
+        return new ArrayList<>(scanResults);
+    }
+
+    /**
+     * Returns the WifiConfigurations matching this entry across all of its security types.
+     */
+    @NonNull
+    synchronized List<WifiConfiguration> getMatchingWifiConfigs() {
+        return new ArrayList<>(mMatchingWifiConfigs.values());
+    }
+
     @WorkerThread
     synchronized void updateConfig(@Nullable List<WifiConfiguration> wifiConfigs)
             throws IllegalArgumentException {
@@ -833,6 +926,8 @@ public class StandardWifiEntry extends WifiEntry {
         }
         mTargetScanResults.clear();
         mTargetScanResults.addAll(targetScanResultSet);
+        mTargetScanResultsByBand = null;
+        mAffiliatedMloLinksDescriptions.clear();
     }
 
     /**
@@ -884,46 +979,76 @@ public class StandardWifiEntry extends WifiEntry {
         if (mTargetScanResults.size() == 0) {
             return "";
         }
+        if (mTargetScanResultsByBand == null) {
+            updateTargetScanResultsByBand();
+        }
 
+        final long nowMs = SystemClock.elapsedRealtime();
         final StringBuilder description = new StringBuilder();
         description.append("[");
-        description.append(getScanResultDescription(MIN_FREQ_24GHZ, MAX_FREQ_24GHZ)).append(";");
-        description.append(getScanResultDescription(MIN_FREQ_5GHZ, MAX_FREQ_5GHZ)).append(";");
-        description.append(getScanResultDescription(MIN_FREQ_6GHZ, MAX_FREQ_6GHZ)).append(";");
-        description.append(getScanResultDescription(MIN_FREQ_60GHZ, MAX_FREQ_60GHZ));
+        for (int i = 0; i < mTargetScanResultsByBand.size(); i++) {
+            if (i > 0) {
+                description.append(";");
+            }
+            appendBandScanResultDescription(description, mTargetScanResultsByBand.get(i), nowMs);
+        }
         description.append("]");
         return description.toString();
     }
 
-    private synchronized String getScanResultDescription(int minFrequency, int maxFrequency) {
-        final List<ScanResult> scanResults = mTargetScanResults.stream()
-                .filter(scanResult -> scanResult.frequency >= minFrequency
-                        && scanResult.frequency <= maxFrequency)
-                .sorted(Comparator.comparingInt(scanResult -> -1 * scanResult.level))
-                .collect(Collectors.toList());
+    /**
+     * Splits the target scans into the bands of the verbose scan description, sorted by descending
+     * level, and builds the MLO link descriptions of any 11be scans.
+     */
+    // TODO(b/227622961): Remove the suppression once the linter recognizes BuildCompat.isAtLeastT()
+    @SuppressLint("NewApi")
+    private synchronized void updateTargetScanResultsByBand() {
+        final List<List<ScanResult>> scanResultsByBand =
+                new ArrayList<>(VERBOSE_BAND_FREQ_RANGES.length);
+        for (int[] range : VERBOSE_BAND_FREQ_RANGES) {
+            final List<ScanResult> bandScanResults = new ArrayList<>();
+            for (ScanResult scanResult : mTargetScanResults) {
+                if (scanResult.frequency >= range[0] && scanResult.frequency <= range[1]) {
+                    bandScanResults.add(scanResult);
+                }
+            }
+            bandScanResults.sort(Comparator.comparingInt(scanResult -> -1 * scanResult.level));
+            scanResultsByBand.add(bandScanResults);
+        }
+        mTargetScanResultsByBand = scanResultsByBand;
 
+        mAffiliatedMloLinksDescriptions.clear();
+        if (BuildCompat.isAtLeastT()) {
+            for (ScanResult scanResult : mTargetScanResults) {
+                if (scanResult.getWifiStandard() == ScanResult.WIFI_STANDARD_11BE) {
+                    mAffiliatedMloLinksDescriptions.put(scanResult,
+                            getAffiliatedMloLinksDescription(scanResult));
+                }
+            }
+        }
+    }
+
+    private synchronized void appendBandScanResultDescription(@NonNull StringBuilder description,
+            @NonNull List<ScanResult> scanResults, long nowMs) {
         final int scanResultCount = scanResults.size();
         if (scanResultCount == 0) {
-            return "";
+            return;
         }
 
-        final StringBuilder description = new StringBuilder();
         description.append("(").append(scanResultCount).append(")");
         if (scanResultCount > MAX_VERBOSE_LOG_DISPLAY_SCANRESULT_COUNT) {
-            final int maxLavel = scanResults.stream()
-                    .mapToInt(scanResult -> scanResult.level).max().getAsInt();
-            description.append("max=").append(maxLavel).append(",");
+            // Sorted by descending level, so the first scan has the max level.
+            description.append("max=").append(scanResults.get(0).level).append(",");
+        }
+        for (ScanResult scanResult : scanResults) {
+            appendScanResultDescription(description, scanResult, nowMs);
         }
-        final long nowMs = SystemClock.elapsedRealtime();
-        scanResults.forEach(scanResult ->
-                description.append(getScanResultDescription(scanResult, nowMs)));
-        return description.toString();
     }
 
     // TODO(b/227622961): Remove the suppression once the linter recognizes BuildCompat.isAtLeastT()
-    @SuppressLint({"NewApi", "SwitchIntDef"})
-    private synchronized String getScanResultDescription(ScanResult scanResult, long nowMs) {
-        final StringBuilder description = new StringBuilder();
+    @SuppressLint("NewApi")
+    private synchronized void appendScanResultDescription(@NonNull StringBuilder description,
+            @NonNull ScanResult scanResult, long nowMs) {
         description.append(" \n{");
         description.append(scanResult.BSSID);
         if (mWifiInfo != null && scanResult.BSSID.equals(mWifiInfo.getBSSID())) {
@@ -937,39 +1062,49 @@ public class StandardWifiEntry extends WifiEntry {
             description.append(",mldMac=").append(scanResult.getApMldMacAddress());
             description.append(",linkId=").append(scanResult.getApMloLinkId());
             description.append(",affLinks=");
-            StringJoiner affLinks = new StringJoiner(",", "[", "]");
-            for (MloLink link : scanResult.getAffiliatedMloLinks()) {
-                final int scanResultBand;
-                switch (link.getBand()) {
-                    case WifiScanner.WIFI_BAND_24_GHZ:
-                        scanResultBand = ScanResult.WIFI_BAND_24_GHZ;
-                        break;
-                    case WifiScanner.WIFI_BAND_5_GHZ:
-                        scanResultBand = ScanResult.WIFI_BAND_5_GHZ;
-                        break;
-                    case WifiScanner.WIFI_BAND_6_GHZ:
-                        scanResultBand = ScanResult.WIFI_BAND_6_GHZ;
-                        break;
-                    case WifiScanner.WIFI_BAND_60_GHZ:
-                        scanResultBand = ScanResult.WIFI_BAND_60_GHZ;
-                        break;
-                    default:
-                        Log.e(TAG, "Unknown MLO link band: " + link.getBand());
-                        scanResultBand = ScanResult.UNSPECIFIED;
-                        break;
-                }
-                affLinks.add(new StringJoiner(",", "{", "}")
-                        .add("apMacAddr=" + link.getApMacAddress())
-                        .add("freq=" + ScanResult.convertChannelToFrequencyMhzIfSupported(
-                                link.getChannel(), scanResultBand))
-                        .toString());
+            String affLinks = mAffiliatedMloLinksDescriptions.get(scanResult);
+            if (affLinks == null) {
+                affLinks = getAffiliatedMloLinksDescription(scanResult);
             }
-            description.append(affLinks.toString());
+            description.append(affLinks);
         }
         final int ageSeconds = (int) (nowMs - scanResult.timestamp / 1000) / 1000;
         description.append(",").append(ageSeconds).append("s");
         description.append("}");
-        return description.toString();
+    }
+
+    // TODO(b/227622961): Remove the suppression once the linter recognizes BuildCompat.isAtLeastT()
+    @SuppressLint({"NewApi", "SwitchIntDef"})
+    @NonNull
+    private static String getAffiliatedMloLinksDescription(@NonNull ScanResult scanResult) {
+        StringJoiner affLinks = new StringJoiner(",", "[", "]");
+        for (MloLink link : scanResult.getAffiliatedMloLinks()) {
+            final int scanResultBand;
+            switch (link.getBand()) {
+                case WifiScanner.WIFI_BAND_24_GHZ:
+                    scanResultBand = ScanResult.WIFI_BAND_24_GHZ;
+                    break;
+                case WifiScanner.WIFI_BAND_5_GHZ:
+                    scanResultBand = ScanResult.WIFI_BAND_5_GHZ;
+                    break;
+                case WifiScanner.WIFI_BAND_6_GHZ:
+                    scanResultBand = ScanResult.WIFI_BAND_6_GHZ;
+                    break;
+                case WifiScanner.WIFI_BAND_60_GHZ:
+                    scanResultBand = ScanResult.WIFI_BAND_60_GHZ;
+                    break;
+                default:
+                    Log.e(TAG, "Unknown MLO link band: " + link.getBand());
+                    scanResultBand = ScanResult.UNSPECIFIED;
+                    break;
+            }
+            affLinks.add(new StringJoiner(",", "{", "}")
+                    .add("apMacAddr=" + link.getApMacAddress())
+                    .add("freq=" + ScanResult.convertChannelToFrequencyMhzIfSupported(
+                            link.getChannel(), scanResultBand))
+                    .toString());
+        }
+        return affLinks.toString();
     }
 
     @Override
@@ -251,8 +251,9 @@ public class Utils {
             boolean isDefaultNetwork,
             boolean isLowQuality,
             @Nullable ConnectivityDiagnosticsManager.ConnectivityReport connectivityReport) {
-        final StringJoiner sj = new StringJoiner(context.getString(
-                R.string.wifitrackerlib_summary_separator));
+        final DescriptionStringTable strings = DescriptionStringTable.get(context);
+        final StringJoiner sj = new StringJoiner(
+                strings.getString(R.string.wifitrackerlib_summary_separator));
 
         boolean isValidated = networkCapabilities.hasCapability(
                 NetworkCapabilities.NET_CAPABILITY_VALIDATED);
@@ -295,36 +296,34 @@ public class Utils {
             }
         } else if (shouldShowConnected) {
             // "Connected"
-            sj.add(context.getResources().getStringArray(
-                    R.array.wifitrackerlib_wifi_status)[DetailedState.CONNECTED.ordinal()]);
+            sj.add(strings.getWifiStatus(DetailedState.CONNECTED.ordinal()));
         }
 
         if (isLowQuality) {
             // "Low quality"
-            sj.add(context.getString(R.string.wifi_connected_low_quality));
+            sj.add(strings.getString(R.string.wifi_connected_low_quality));
         }
 
         if (isCaptivePortal) {
             // "Sign in to network"
-            sj.add(context.getString(context.getResources().getIdentifier(
-                    "network_available_sign_in", "string", "android")));
+            sj.add(strings.getNetworkAvailableSignIn());
         } else if (isPartialConnectivity) {
             // "Limited connection..."
-            sj.add(context.getString(R.string.wifitrackerlib_wifi_limited_connection));
+            sj.add(strings.getString(R.string.wifitrackerlib_wifi_limited_connection));
         } else if (isCheckingForInternetAccess) {
             // "Checking for internet access..."
-            sj.add(context.getString(R.string.wifitrackerlib_checking_for_internet_access));
+            sj.add(strings.getString(R.string.wifitrackerlib_checking_for_internet_access));
         } else if (isPrivateDnsBroken) {
             // "Private DNS server cannot be accessed"
-            sj.add(context.getString(R.string.wifitrackerlib_private_dns_broken));
+            sj.add(strings.getString(R.string.wifitrackerlib_private_dns_broken));
         } else if (!isValidated) {
             if (isNoInternetExpected) {
                 // "Connected to device. Can't provide internet."
-                sj.add(context.getString(
+                sj.add(strings.getString(
                         R.string.wifitrackerlib_wifi_connected_cannot_provide_internet));
             } else {
                 // "No internet access"
-                sj.add(context.getString(R.string.wifitrackerlib_wifi_no_internet));
+                sj.add(strings.getString(R.string.wifitrackerlib_wifi_no_internet));
             }
         }
 
@@ -340,10 +339,7 @@ public class Utils {
             return "";
         }
 
-        final String[] wifiStatusArray = context.getResources()
-                .getStringArray(R.array.wifitrackerlib_wifi_status);
-        final int index = detailedState.ordinal();
-        return index >= wifiStatusArray.length ? "" : wifiStatusArray[index];
+        return DescriptionStringTable.get(context).getWifiStatus(detailedState.ordinal());
     }
 
 
@@ -356,12 +352,13 @@ public class Utils {
         if (context == null || wifiConfiguration == null) {
             return "";
         }
-        final StringJoiner sj = new StringJoiner(context.getString(
-                R.string.wifitrackerlib_summary_separator));
+        final DescriptionStringTable strings = DescriptionStringTable.get(context);
+        final StringJoiner sj = new StringJoiner(
+                strings.getString(R.string.wifitrackerlib_summary_separator));
 
         // For "Saved", "Saved by ...", and "Available via..."
         if (concise) {
-            sj.add(context.getString(R.string.wifitrackerlib_wifi_disconnected));
+            sj.add(strings.getString(R.string.wifitrackerlib_wifi_disconnected));
         } else if (forSavedNetworksPage && !wifiConfiguration.isPasspoint()) {
             if (!injector.getNoAttributionAnnotationPackages().contains(
                     wifiConfiguration.creatorName)) {
@@ -381,13 +378,13 @@ public class Utils {
                             suggestionOrSpecifierLabel));
                 }
             } else {
-                sj.add(context.getString(R.string.wifitrackerlib_wifi_remembered));
+                sj.add(strings.getString(R.string.wifitrackerlib_wifi_remembered));
             }
         }
 
         // For failure messages and disabled reasons
         final String wifiConfigFailureMessage =
-                getWifiConfigurationFailureMessage(context, wifiConfiguration);
+                getWifiConfigurationFailureMessage(strings, wifiConfiguration);
         if (!TextUtils.isEmpty(wifiConfigFailureMessage)) {
             sj.add(wifiConfigFailureMessage);
         }
@@ -415,8 +412,8 @@ public class Utils {
     }
 
     private static String getWifiConfigurationFailureMessage(
-            Context context, WifiConfiguration wifiConfiguration) {
-        if (context == null || wifiConfiguration == null) {
+            @NonNull DescriptionStringTable strings, WifiConfiguration wifiConfiguration) {
+        if (wifiConfiguration == null) {
             return "";
         }
 
@@ -426,9 +423,9 @@ public class Utils {
         if (wifiConfiguration.hasNoInternetAccess()) {
             if (networkSelectionStatus.getNetworkSelectionStatus()
                     == NETWORK_SELECTION_PERMANENTLY_DISABLED) {
-                return context.getString(R.string.wifitrackerlib_wifi_no_internet_no_reconnect);
+                return strings.getString(R.string.wifitrackerlib_wifi_no_internet_no_reconnect);
             }
-            return context.getString(R.string.wifitrackerlib_wifi_no_internet);
+            return strings.getString(R.string.wifitrackerlib_wifi_no_internet);
         }
         if (networkSelectionStatus.getNetworkSelectionStatus() != NETWORK_SELECTION_ENABLED) {
             switch (networkSelectionStatus.getNetworkSelectionDisableReason()) {
@@ -436,26 +433,26 @@ public class Utils {
                     if (!networkSelectionStatus.hasEverConnected()
                             && networkSelectionStatus.getDisableReasonCounter(
                                     NetworkSelectionStatus.DISABLED_AUTHENTICATION_FAILURE) > 0) {
-                        return context.getString(
+                        return strings.getString(
                                 R.string.wifitrackerlib_wifi_disabled_password_failure);
                     }
                     break;
                 case NetworkSelectionStatus.DISABLED_AUTHENTICATION_FAILURE:
                 case NetworkSelectionStatus.DISABLED_AUTHENTICATION_NO_CREDENTIALS:
                 case NetworkSelectionStatus.DISABLED_AUTHENTICATION_NO_SUBSCRIPTION:
-                    return context.getString(
+                    return strings.getString(
                             R.string.wifitrackerlib_wifi_disabled_password_failure);
                 case NetworkSelectionStatus.DISABLED_BY_WRONG_PASSWORD:
-                    return context.getString(R.string.wifitrackerlib_wifi_check_password_try_again);
+                    return strings.getString(R.string.wifitrackerlib_wifi_check_password_try_again);
                 case NetworkSelectionStatus.DISABLED_DHCP_FAILURE:
-                    return context.getString(R.string.wifitrackerlib_wifi_disabled_network_failure);
+                    return strings.getString(R.string.wifitrackerlib_wifi_disabled_network_failure);
                 case NetworkSelectionStatus.DISABLED_ASSOCIATION_REJECTION:
-                    return context.getString(R.string.wifitrackerlib_wifi_disabled_generic);
+                    return strings.getString(R.string.wifitrackerlib_wifi_disabled_generic);
                 case NetworkSelectionStatus.DISABLED_NO_INTERNET_PERMANENT:
                 case NetworkSelectionStatus.DISABLED_NO_INTERNET_TEMPORARY:
-                    return context.getString(R.string.wifitrackerlib_wifi_no_internet_no_reconnect);
+                    return strings.getString(R.string.wifitrackerlib_wifi_no_internet_no_reconnect);
                 case DISABLED_TRANSITION_DISABLE_INDICATION:
-                    return context.getString(
+                    return strings.getString(
                             R.string.wifitrackerlib_wifi_disabled_transition_disable_indication);
                 default:
                     break;
@@ -465,31 +462,31 @@ public class Utils {
             // before, which usually indicates the credentials are wrong.
             if (networkSelectionStatus.getDisableReasonCounter(DISABLED_AUTHENTICATION_FAILURE) > 0
                     && !networkSelectionStatus.hasEverConnected()) {
-                return context.getString(R.string.wifitrackerlib_wifi_disabled_password_failure);
+                return strings.getString(R.string.wifitrackerlib_wifi_disabled_password_failure);
             }
         }
         switch (wifiConfiguration.getRecentFailureReason()) {
             case WifiConfiguration.RECENT_FAILURE_AP_UNABLE_TO_HANDLE_NEW_STA:
             case WifiConfiguration.RECENT_FAILURE_REFUSED_TEMPORARILY:
             case WifiConfiguration.RECENT_FAILURE_DISCONNECTION_AP_BUSY:
-                return context.getString(R.string
+                return strings.getString(R.string
                         .wifitrackerlib_wifi_ap_unable_to_handle_new_sta);
             case WifiConfiguration.RECENT_FAILURE_POOR_CHANNEL_CONDITIONS:
-                return context.getString(R.string.wifitrackerlib_wifi_poor_channel_conditions);
+                return strings.getString(R.string.wifitrackerlib_wifi_poor_channel_conditions);
             case WifiConfiguration.RECENT_FAILURE_MBO_ASSOC_DISALLOWED_UNSPECIFIED:
             case WifiConfiguration.RECENT_FAILURE_MBO_ASSOC_DISALLOWED_AIR_INTERFACE_OVERLOADED:
             case WifiConfiguration.RECENT_FAILURE_MBO_ASSOC_DISALLOWED_AUTH_SERVER_OVERLOADED:
-                return context.getString(R.string
+                return strings.getString(R.string
                         .wifitrackerlib_wifi_mbo_assoc_disallowed_cannot_connect);
             case WifiConfiguration.RECENT_FAILURE_MBO_ASSOC_DISALLOWED_MAX_NUM_STA_ASSOCIATED:
-                return context.getString(R.string
+                return strings.getString(R.string
                         .wifitrackerlib_wifi_mbo_assoc_disallowed_max_num_sta_associated);
             case WifiConfiguration.RECENT_FAILURE_MBO_ASSOC_DISALLOWED_INSUFFICIENT_RSSI:
             case WifiConfiguration.RECENT_FAILURE_OCE_RSSI_BASED_ASSOCIATION_REJECTION:
-                return context.getString(R.string
+                return strings.getString(R.string
                         .wifitrackerlib_wifi_mbo_oce_assoc_disallowed_insufficient_rssi);
             case WifiConfiguration.RECENT_FAILURE_NETWORK_NOT_FOUND:
-                return context.getString(R.string.wifitrackerlib_wifi_network_not_found);
+                return strings.getString(R.string.wifitrackerlib_wifi_network_not_found);
             default:
                 // do nothing
         }
@@ -601,10 +598,7 @@ public class Utils {
             return "";
         }
 
-        String[] wifiStatusArray = context.getResources()
-                .getStringArray(R.array.wifitrackerlib_wifi_status);
-        int index = detailedState.ordinal();
-        return index >= wifiStatusArray.length ? "" : wifiStatusArray[index];
+        return DescriptionStringTable.get(context).getWifiStatus(detailedState.ordinal());
     }
 
     /**
@@ -1217,43 +1211,44 @@ public class Utils {
      */
     public static String getSecurityString(@NonNull Context context,
             @NonNull List<Integer> securityTypes, boolean concise) {
+        final DescriptionStringTable strings = DescriptionStringTable.get(context);
         if (securityTypes.size() == 0) {
-            return concise ? "" : context.getString(R.string.wifitrackerlib_wifi_security_none);
+            return concise ? "" : strings.getString(R.string.wifitrackerlib_wifi_security_none);
         }
         if (securityTypes.size() == 1) {
             final int security = securityTypes.get(0);
             switch(security) {
                 case SECURITY_TYPE_EAP:
-                    return concise ? context.getString(
+                    return concise ? strings.getString(
                             R.string.wifitrackerlib_wifi_security_short_eap_wpa_wpa2) :
-                            context.getString(
+                            strings.getString(
                                     R.string.wifitrackerlib_wifi_security_eap_wpa_wpa2);
                 case SECURITY_TYPE_EAP_WPA3_ENTERPRISE:
-                    return concise ? context.getString(
+                    return concise ? strings.getString(
                             R.string.wifitrackerlib_wifi_security_short_eap_wpa3) :
-                            context.getString(
+                            strings.getString(
                                     R.string.wifitrackerlib_wifi_security_eap_wpa3);
                 case SECURITY_TYPE_EAP_WPA3_ENTERPRISE_192_BIT:
-                    return concise ? context.getString(
+                    return concise ? strings.getString(
                             R.string.wifitrackerlib_wifi_security_short_eap_suiteb) :
-                            context.getString(R.string.wifitrackerlib_wifi_security_eap_suiteb);
+                            strings.getString(R.string.wifitrackerlib_wifi_security_eap_suiteb);
                 case SECURITY_TYPE_PSK:
-                    return concise ? context.getString(
+                    return concise ? strings.getString(
                             R.string.wifitrackerlib_wifi_security_short_wpa_wpa2) :
-                            context.getString(
+                            strings.getString(
                                     R.string.wifitrackerlib_wifi_security_wpa_wpa2);
                 case SECURITY_TYPE_WEP:
-                    return context.getString(R.string.wifitrackerlib_wifi_security_wep);
+                    return strings.getString(R.string.wifitrackerlib_wifi_security_wep);
                 case SECURITY_TYPE_SAE:
-                    return concise ? context.getString(
+                    return concise ? strings.getString(
                             R.string.wifitrackerlib_wifi_security_short_sae) :
-                            context.getString(R.string.wifitrackerlib_wifi_security_sae);
+                            strings.getString(R.string.wifitrackerlib_wifi_security_sae);
                 case SECURITY_TYPE_OWE:
-                    return concise ? context.getString(
+                    return concise ? strings.getString(
                             R.string.wifitrackerlib_wifi_security_short_owe) :
-                            context.getString(R.string.wifitrackerlib_wifi_security_owe);
+                            strings.getString(R.string.wifitrackerlib_wifi_security_owe);
                 case SECURITY_TYPE_OPEN:
-                    return concise ? "" : context.getString(
+                    return concise ? "" : strings.getString(
                             R.string.wifitrackerlib_wifi_security_none);
             }
         }
@@ -1261,28 +1256,28 @@ public class Utils {
             if (securityTypes.contains(SECURITY_TYPE_OPEN)
                     && securityTypes.contains(SECURITY_TYPE_OWE)) {
                 StringJoiner sj = new StringJoiner("/");
-                sj.add(context.getString(R.string.wifitrackerlib_wifi_security_none));
-                sj.add(concise ? context.getString(
+                sj.add(strings.getString(R.string.wifitrackerlib_wifi_security_none));
+                sj.add(concise ? strings.getString(
                         R.string.wifitrackerlib_wifi_security_short_owe) :
-                        context.getString(R.string.wifitrackerlib_wifi_security_owe));
+                        strings.getString(R.string.wifitrackerlib_wifi_security_owe));
                 return sj.toString();
             }
             if (securityTypes.contains(SECURITY_TYPE_PSK)
                     && securityTypes.contains(SECURITY_TYPE_SAE)) {
-                return concise ? context.getString(
+                return concise ? strings.getString(
                         R.string.wifitrackerlib_wifi_security_short_wpa_wpa2_wpa3) :
-                        context.getString(
+                        strings.getString(
                                 R.string.wifitrackerlib_wifi_security_wpa_wpa2_wpa3);
             }
             if (securityTypes.contains(SECURITY_TYPE_EAP)
                     && securityTypes.contains(SECURITY_TYPE_EAP_WPA3_ENTERPRISE)) {
-                return concise ? context.getString(
+                return concise ? strings.getString(
                         R.string.wifitrackerlib_wifi_security_short_eap_wpa_wpa2_wpa3) :
-                        context.getString(
+                        strings.getString(
                                 R.string.wifitrackerlib_wifi_security_eap_wpa_wpa2_wpa3);
             }
         }
         // Unknown security types
-        return concise ? "" : context.getString(R.string.wifitrackerlib_wifi_security_none);
+        return concise ? "" : strings.getString(R.string.wifitrackerlib_wifi_security_none);
     }
 }
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import static android.net.wifi.WifiManager.CHANGE_REASON_ADDED;
+import static android.net.wifi.WifiManager.CHANGE_REASON_CONFIG_CHANGE;
+import static android.net.wifi.WifiManager.CHANGE_REASON_REMOVED;
+
+import static com.android.wifitrackerlib.Utils.getSecurityTypesFromWifiConfiguration;
+
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiConfiguration.NetworkSelectionStatus;
+import android.net.wifi.WifiEnterpriseConfig;
+import android.util.ArrayMap;
+import android.util.SparseArray;
+import android.util.SparseLongArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.core.os.BuildCompat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Diffs successive lists of WifiConfigurations by networkId and a fingerprint of their fields, so
+ * that trackers only need to update the cache slots and entries of the configurations that were
+ * added, removed or changed.
+ *
+ * The fingerprint covers the fields that entries display or act on, and the fields that Settings
+ * edits and saves back through WifiEntry#getWifiConfiguration(), including the enterprise
+ * credentials. The configs of unchanged networkIds are thus interchangeable with the ones the
+ * caller already holds. Only the fingerprints are kept, not the contents of the credentials.
+ *
+ * Must be accessed only by the worker thread.
+ */
+class WifiConfigurationDiffer {
+    @NonNull private SparseArray<WifiConfiguration> mConfigs = new SparseArray<>();
+    @NonNull private SparseLongArray mFingerprints = new SparseLongArray();
+    private boolean mHasConfigs = false;
+
+    /**
+     * Changes between the previous and the latest list of WifiConfigurations.
+     */
+    static class Diff {
+        // networkId mapped to WifiManager#CHANGE_REASON_ADDED, CHANGE_REASON_REMOVED or
+        // CHANGE_REASON_CONFIG_CHANGE.
+        @NonNull final Map<Integer, Integer> changeReasons = new ArrayMap<>();
+        // Previous configurations which were removed or replaced by a changed configuration.
+        @NonNull final List<WifiConfiguration> removedConfigs = new ArrayList<>();
+        // Latest configurations which were added or replace a changed configuration.
+        @NonNull final List<WifiConfiguration> addedConfigs = new ArrayList<>();
+
+        boolean isEmpty() {
+            return changeReasons.isEmpty();
+        }
+    }
+
+    /**
+     * Diffs the given configurations against the ones of the previous call and remembers them for
+     * the next call.
+     *
+     * @return the changes since the previous call, or null if there was no previous call or the
+     *         configurations cannot be told apart by networkId. The caller should then treat
+     *         every configuration as changed.
+     */
+    @WorkerThread
+    @Nullable
+    Diff update(@NonNull List<WifiConfiguration> configs) {
+        final SparseArray<WifiConfiguration> newConfigs = new SparseArray<>(configs.size());
+        final SparseLongArray newFingerprints = new SparseLongArray(configs.size());
+        boolean hasUniqueNetworkIds = true;
+        for (WifiConfiguration config : configs) {
+            if (newConfigs.indexOfKey(config.networkId) >= 0) {
+                hasUniqueNetworkIds = false;
+            }
+            newConfigs.put(config.networkId, config);
+            newFingerprints.put(config.networkId, computeFingerprint(config));
+        }
+        final boolean hadConfigs = mHasConfigs;
+        final SparseArray<WifiConfiguration> oldConfigs = mConfigs;
+        final SparseLongArray oldFingerprints = mFingerprints;
+        mHasConfigs = hasUniqueNetworkIds;
+        mConfigs = newConfigs;
+        mFingerprints = newFingerprints;
+        if (!hadConfigs || !hasUniqueNetworkIds) {
+            return null;
+        }
+
+        final Diff diff = new Diff();
+        for (int i = 0; i < oldConfigs.size(); i++) {
+            final int networkId = oldConfigs.keyAt(i);
+            if (newConfigs.indexOfKey(networkId) < 0) {
+                diff.changeReasons.put(networkId, CHANGE_REASON_REMOVED);
+                diff.removedConfigs.add(oldConfigs.valueAt(i));
+            }
+        }
+        for (int i = 0; i < newConfigs.size(); i++) {
+            final int networkId = newConfigs.keyAt(i);
+            final int oldIndex = oldConfigs.indexOfKey(networkId);
+            if (oldIndex < 0) {
+                diff.changeReasons.put(networkId, CHANGE_REASON_ADDED);
+                diff.addedConfigs.add(newConfigs.valueAt(i));
+            } else if (oldFingerprints.get(networkId) != newFingerprints.valueAt(i)) {
+                diff.changeReasons.put(networkId, CHANGE_REASON_CONFIG_CHANGE);
+                diff.removedConfigs.add(oldConfigs.valueAt(oldIndex));
+                diff.addedConfigs.add(newConfigs.valueAt(i));
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * Returns a fingerprint of the fields of the configuration that WifiEntries display or act on,
+     * or that Settings edits.
+     */
+    private static long computeFingerprint(@NonNull WifiConfiguration config) {
+        final NetworkSelectionStatus status = config.getNetworkSelectionStatus();
+        long fingerprint = Objects.hash(
+                config.SSID,
+                config.BSSID,
+                config.getKey(),
+                getSecurityTypesFromWifiConfiguration(config),
+                config.allowedKeyManagement,
+                config.allowedProtocols,
+                config.allowedPairwiseCiphers,
+                config.allowedGroupCiphers,
+                config.requirePmf,
+                config.preSharedKey,
+                Arrays.hashCode(config.wepKeys),
+                config.wepTxKeyIndex,
+                config.hiddenSSID,
+                config.status,
+                config.isEphemeral(),
+                config.isPasspoint(),
+                config.fromWifiNetworkSuggestion,
+                config.fromWifiNetworkSpecifier,
+                config.carrierMerged,
+                config.carrierId,
+                config.subscriptionId,
+                config.creatorName,
+                config.creatorUid,
+                config.shared,
+                config.meteredHint,
+                config.meteredOverride,
+                config.macRandomizationSetting,
+                config.getRandomizedMacAddress(),
+                config.allowAutojoin,
+                config.hasNoInternetAccess(),
+                config.isNoInternetAccessExpected(),
+                config.getRecentFailureReason(),
+                Objects.toString(config.getIpConfiguration()));
+        fingerprint = 31 * fingerprint + Objects.hash(
+                status.getNetworkSelectionStatus(),
+                status.getNetworkSelectionDisableReason(),
+                status.getDisableTime(),
+                status.hasEverConnected());
+        final int maxDisableReason = NetworkSelectionStatus.getMaxNetworkSelectionDisableReason();
+        for (int reason = 0; reason <= maxDisableReason; reason++) {
+            fingerprint = 31 * fingerprint + status.getDisableReasonCounter(reason);
+        }
+        final WifiEnterpriseConfig enterpriseConfig = config.enterpriseConfig;
+        if (enterpriseConfig != null) {
+            fingerprint = 31 * fingerprint + Objects.hash(
+                    enterpriseConfig.getEapMethod(),
+                    enterpriseConfig.getPhase2Method(),
+                    enterpriseConfig.getIdentity(),
+                    enterpriseConfig.getAnonymousIdentity(),
+                    enterpriseConfig.getPassword(),
+                    enterpriseConfig.getDomainSuffixMatch(),
+                    enterpriseConfig.getAltSubjectMatch(),
+                    enterpriseConfig.getCaPath(),
+                    enterpriseConfig.getClientCertificateAlias(),
+                    Arrays.hashCode(enterpriseConfig.getCaCertificateAliases()),
+                    enterpriseConfig.getOcsp(),
+                    enterpriseConfig.getRealm(),
+                    enterpriseConfig.getPlmn(),
+                    enterpriseConfig.getWapiCertSuite());
+            if (BuildCompat.isAtLeastT()) {
+                fingerprint = 31 * fingerprint
+                        + Boolean.hashCode(enterpriseConfig.isTrustOnFirstUseEnabled());
+            }
+        }
+        return fingerprint;
+    }
+}
@@ -39,6 +39,7 @@ import android.os.Handler;
 import android.text.TextUtils;
 
 import androidx.annotation.AnyThread;
+import androidx.annotation.GuardedBy;
 import androidx.annotation.IntDef;
 import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
@@ -59,7 +60,6 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.StringJoiner;
-import java.util.stream.Collectors;
 
 /**
  * Base class for an entry representing a Wi-Fi network in a Wi-Fi picker/settings.
@@ -206,6 +206,10 @@ public class WifiEntry {
      */
     protected static final int MAX_VERBOSE_LOG_DISPLAY_SCANRESULT_COUNT = 4;
 
+    // IPv4 subnet masks indexed by prefix length, filled in as they are first needed. Racing
+    // writers store equal strings, so no locking is needed.
+    private static final String[] SUBNET_MASKS = new String[33];
+
     /**
      * Default comparator for sorting WifiEntries on a Wi-Fi picker list.
      */
@@ -239,6 +243,8 @@ public class WifiEntry {
     // Callback associated with this WifiEntry. Subclasses should call its methods appropriately.
     private WifiEntryCallback mListener;
     protected final Handler mCallbackHandler;
+    // Batches onUpdated() deliveries with the other entries sharing mCallbackHandler.
+    @NonNull private final WifiEntryUpdateBatcher mUpdateBatcher;
 
     protected int mLevel = WIFI_LEVEL_UNREACHABLE;
     protected WifiInfo mWifiInfo;
@@ -248,7 +254,13 @@ public class WifiEntry {
     protected Network mDefaultNetwork;
     protected NetworkCapabilities mDefaultNetworkCapabilities;
     protected ConnectivityDiagnosticsManager.ConnectivityReport mConnectivityReport;
+    // Published snapshot of the connection info. Never modified once assigned, so it can be
+    // copied without reparsing; updates assign a new snapshot instead.
     protected ConnectedInfo mConnectedInfo;
+    // Copy of the LinkProperties that the IP fields of mConnectedInfo were derived from.
+    @GuardedBy("this")
+    @Nullable
+    private LinkProperties mLinkProperties;
 
     protected ConnectCallback mConnectCallback;
     protected DisconnectCallback mDisconnectCallback;
@@ -257,6 +269,19 @@ public class WifiEntry {
     protected boolean mCalledConnect = false;
     protected boolean mCalledDisconnect = false;
 
+    // Incremented every time a state change of this entry is published through notifyOnUpdated().
+    @GuardedBy("this")
+    private int mStateVersion = 0;
+    // Concise summary computed on the updating thread for mCachedSummaryVersion and the
+    // DescriptionStringTable generation mCachedSummaryGeneration. Only kept while a listener is
+    // bound, so getSummary() and toString() on displayed entries skip rebuilding the summary.
+    @GuardedBy("this")
+    private int mCachedSummaryVersion = -1;
+    @GuardedBy("this")
+    private int mCachedSummaryGeneration = -1;
+    @GuardedBy("this")
+    @Nullable
+    private String mCachedSummary;
 
     private Optional<ManageSubscriptionAction> mManageSubscriptionAction = Optional.empty();
 
@@ -271,6 +296,7 @@ public class WifiEntry {
         mCallbackHandler = callbackHandler;
         mForSavedNetworksPage = forSavedNetworksPage;
         mWifiManager = wifiManager;
+        mUpdateBatcher = mInjector.getWifiEntryUpdateBatcher(callbackHandler);
     }
 
     // Info available for all WifiEntries //
@@ -317,6 +343,12 @@ public class WifiEntry {
     /** Returns the display summary, it's a concise summary. */
     @NonNull
     public String getSummary() {
+        synchronized (this) {
+            if (mCachedSummary != null && mCachedSummaryVersion == mStateVersion
+                    && mCachedSummaryGeneration == getStringTableGeneration()) {
+                return mCachedSummary;
+            }
+        }
         return getSummary(true /* concise */);
     }
 
@@ -515,6 +547,10 @@ public class WifiEntry {
     /**
      * Returns the ConnectedInfo object pertaining to an active connection.
      *
+     * The returned object is a copy which is not updated with later changes to the connection.
+     * ConnectedInfo exposes public fields that callers may reassign, so the published snapshot is
+     * never handed out directly.
+     *
      * Returns null if getConnectedState() != CONNECTED_STATE_CONNECTED.
      */
     @Nullable
@@ -552,7 +588,7 @@ public class WifiEntry {
          */
         public ConnectedInfo(@NonNull ConnectedInfo other) {
             frequencyMhz = other.frequencyMhz;
-            dnsServers = new ArrayList<>(dnsServers);
+            dnsServers = new ArrayList<>(other.dnsServers);
             linkSpeedMbps = other.linkSpeedMbps;
             ipAddress = other.ipAddress;
             ipv6Addresses = new ArrayList<>(other.ipv6Addresses);
@@ -801,16 +837,76 @@ public class WifiEntry {
         void onUpdated();
     }
 
+    /**
+     * Schedules WifiEntryCallback#onUpdated() on the callback handler. Updates are coalesced, so
+     * there is at most one pending delivery per entry regardless of how many times this is called.
+     */
     @AnyThread
     protected void notifyOnUpdated() {
-        if (mListener != null) {
-            mCallbackHandler.post(() -> {
-                final WifiEntryCallback listener = mListener;
-                if (listener != null) {
-                    listener.onUpdated();
-                }
-            });
+        incrementStateVersion();
+        final boolean hasListener = mListener != null;
+        if (hasListener) {
+            updateCachedSummary();
+        }
+        if (hasListener || mUpdateBatcher.hasBatchCallback()) {
+            mUpdateBatcher.enqueue(this);
+        }
+    }
+
+    @MainThread
+    void deliverOnUpdated() {
+        final WifiEntryCallback listener;
+        synchronized (this) {
+            listener = mListener;
+        }
+        if (listener != null) {
+            listener.onUpdated();
+        }
+    }
+
+    /**
+     * Invalidates any state derived from the current state of the entry, such as the cached
+     * summary. Subclasses should call this if they change state without calling notifyOnUpdated().
+     */
+    @AnyThread
+    protected synchronized void incrementStateVersion() {
+        mStateVersion++;
+    }
+
+    /**
+     * Returns the current state version, which changes with every update of this entry.
+     */
+    @AnyThread
+    protected synchronized int getStateVersion() {
+        return mStateVersion;
+    }
+
+    /**
+     * Returns whether the concise summary only changes along with the state version. Entries whose
+     * summary depends on the wall clock should return false.
+     */
+    protected boolean canCacheSummary() {
+        return true;
+    }
+
+    private synchronized void updateCachedSummary() {
+        if (!canCacheSummary()) {
+            mCachedSummary = null;
+            return;
         }
+        // Read the generation first, so a summary built from a newer table is rebuilt once more
+        // rather than kept for the wrong generation.
+        mCachedSummaryGeneration = getStringTableGeneration();
+        mCachedSummary = getSummary(true /* concise */);
+        mCachedSummaryVersion = mStateVersion;
+    }
+
+    /**
+     * Returns the generation of the strings the summary is built from, which changes along with
+     * the locale or any other Configuration change.
+     */
+    private int getStringTableGeneration() {
+        return DescriptionStringTable.get(mContext).getGeneration();
     }
 
     /**
@@ -976,6 +1072,7 @@ public class WifiEntry {
         if (wifiInfo == null) {
             mWifiInfo = null;
             mConnectedInfo = null;
+            mLinkProperties = null;
             updateSecurityTypes();
             return;
         }
@@ -996,12 +1093,11 @@ public class WifiEntry {
                 });
             }
 
-            if (mConnectedInfo == null) {
-                mConnectedInfo = new ConnectedInfo();
-            }
-            mConnectedInfo.frequencyMhz = mWifiInfo.getFrequency();
-            mConnectedInfo.linkSpeedMbps = mWifiInfo.getLinkSpeed();
-            mConnectedInfo.wifiStandard = mWifiInfo.getWifiStandard();
+            final ConnectedInfo connectedInfo = copyConnectedInfo();
+            connectedInfo.frequencyMhz = mWifiInfo.getFrequency();
+            connectedInfo.linkSpeedMbps = mWifiInfo.getLinkSpeed();
+            connectedInfo.wifiStandard = mWifiInfo.getWifiStandard();
+            publishConnectedInfo(connectedInfo);
         }
         updateSecurityTypes();
     }
@@ -1039,6 +1135,51 @@ public class WifiEntry {
         notifyOnUpdated();
     }
 
+    /**
+     * Seeds the connection state of this entry from another entry of the same network, e.g. one
+     * already held by a WifiPickerTracker, so that it can be shown before the first callbacks
+     * arrive.
+     */
+    @AnyThread
+    void seedConnectionInfo(@NonNull WifiEntry other) {
+        final WifiInfo wifiInfo;
+        final NetworkInfo networkInfo;
+        final Network network;
+        final NetworkCapabilities networkCapabilities;
+        final LinkProperties linkProperties;
+        final Network defaultNetwork;
+        final NetworkCapabilities defaultNetworkCapabilities;
+        final ConnectivityDiagnosticsManager.ConnectivityReport connectivityReport;
+        synchronized (other) {
+            wifiInfo = other.mWifiInfo;
+            networkInfo = other.mNetworkInfo;
+            network = other.mNetwork;
+            networkCapabilities = other.mNetworkCapabilities;
+            linkProperties = other.mLinkProperties;
+            defaultNetwork = other.mDefaultNetwork;
+            defaultNetworkCapabilities = other.mDefaultNetworkCapabilities;
+            connectivityReport = other.mConnectivityReport;
+        }
+        synchronized (this) {
+            if (network != null && networkCapabilities != null) {
+                onNetworkCapabilitiesChanged(network, networkCapabilities);
+            }
+            if (wifiInfo != null && networkInfo != null) {
+                onPrimaryWifiInfoChanged(wifiInfo, networkInfo);
+            }
+            if (network != null && linkProperties != null
+                    && getConnectedState() == CONNECTED_STATE_CONNECTED) {
+                updateLinkProperties(network, linkProperties);
+            }
+            if (defaultNetwork != null && defaultNetworkCapabilities != null) {
+                onDefaultNetworkCapabilitiesChanged(defaultNetwork, defaultNetworkCapabilities);
+            }
+            if (connectivityReport != null) {
+                updateConnectivityReport(connectivityReport);
+            }
+        }
+    }
+
     /**
      * Updates this WifiEntry as the default network if it matches.
      */
@@ -1073,45 +1214,85 @@ public class WifiEntry {
         if (!network.equals(mNetwork)) {
             return;
         }
-
-        if (mConnectedInfo == null) {
-            mConnectedInfo = new ConnectedInfo();
+        if (mConnectedInfo != null && linkProperties.equals(mLinkProperties)) {
+            return;
         }
+        // Keep a copy, since the caller may modify or share the given instance.
+        mLinkProperties = new LinkProperties(linkProperties);
+
+        final ConnectedInfo connectedInfo = copyConnectedInfo();
+        connectedInfo.ipAddress = null;
+        connectedInfo.subnetMask = null;
+        connectedInfo.gateway = null;
         // Find IPv4 and IPv6 addresses, and subnet mask
         List<String> ipv6Addresses = new ArrayList<>();
         for (LinkAddress addr : linkProperties.getLinkAddresses()) {
             if (addr.getAddress() instanceof Inet4Address) {
-                mConnectedInfo.ipAddress = addr.getAddress().getHostAddress();
-                try {
-                    InetAddress all = InetAddress.getByAddress(
-                            new byte[]{(byte) 255, (byte) 255, (byte) 255, (byte) 255});
-                    mConnectedInfo.subnetMask = getNetworkPart(
-                            all, addr.getPrefixLength()).getHostAddress();
-                } catch (UnknownHostException | IllegalArgumentException e) {
-                    // Leave subnet null;
-                }
+                connectedInfo.ipAddress = addr.getAddress().getHostAddress();
+                connectedInfo.subnetMask = getSubnetMask(addr.getPrefixLength());
             } else if (addr.getAddress() instanceof Inet6Address) {
                 ipv6Addresses.add(addr.getAddress().getHostAddress());
             }
         }
-        mConnectedInfo.ipv6Addresses = ipv6Addresses;
+        connectedInfo.ipv6Addresses = ipv6Addresses;
 
         // Find IPv4 default gateway.
         for (RouteInfo routeInfo : linkProperties.getRoutes()) {
             if (routeInfo.isDefaultRoute() && routeInfo.getDestination().getAddress()
                     instanceof Inet4Address && routeInfo.hasGateway()) {
-                mConnectedInfo.gateway = routeInfo.getGateway().getHostAddress();
+                connectedInfo.gateway = routeInfo.getGateway().getHostAddress();
                 break;
             }
         }
 
         // Find DNS servers
-        mConnectedInfo.dnsServers = linkProperties.getDnsServers().stream()
-                .map(InetAddress::getHostAddress).collect(Collectors.toList());
+        final List<InetAddress> dnsServers = linkProperties.getDnsServers();
+        connectedInfo.dnsServers = new ArrayList<>(dnsServers.size());
+        for (InetAddress dnsServer : dnsServers) {
+            connectedInfo.dnsServers.add(dnsServer.getHostAddress());
+        }
 
+        publishConnectedInfo(connectedInfo);
         notifyOnUpdated();
     }
 
+    /**
+     * Returns a modifiable copy of the current connection info to build the next snapshot from.
+     */
+    @NonNull
+    private synchronized ConnectedInfo copyConnectedInfo() {
+        return mConnectedInfo != null ? new ConnectedInfo(mConnectedInfo) : new ConnectedInfo();
+    }
+
+    private synchronized void publishConnectedInfo(@NonNull ConnectedInfo connectedInfo) {
+        connectedInfo.dnsServers = Collections.unmodifiableList(connectedInfo.dnsServers);
+        connectedInfo.ipv6Addresses = Collections.unmodifiableList(connectedInfo.ipv6Addresses);
+        mConnectedInfo = connectedInfo;
+    }
+
+    /**
+     * Returns the dotted IPv4 subnet mask for the given prefix length, or null if the prefix
+     * length is invalid.
+     */
+    @Nullable
+    private static String getSubnetMask(int prefixLength) {
+        if (prefixLength < 0 || prefixLength >= SUBNET_MASKS.length) {
+            return null;
+        }
+        String subnetMask = SUBNET_MASKS[prefixLength];
+        if (subnetMask == null) {
+            try {
+                InetAddress all = InetAddress.getByAddress(
+                        new byte[]{(byte) 255, (byte) 255, (byte) 255, (byte) 255});
+                subnetMask = getNetworkPart(all, prefixLength).getHostAddress();
+            } catch (UnknownHostException | IllegalArgumentException e) {
+                return null;
+            }
+            SUBNET_MASKS[prefixLength] = subnetMask;
+        }
+        return subnetMask;
+    }
+
     // Method for WifiTracker to update a connected WifiEntry's validation status.
     @WorkerThread
     synchronized void updateConnectivityReport(
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import android.util.ArrayMap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable, column-oriented copy of the display state of the WifiEntries published by a
+ * WifiPickerTracker in one update.
+ *
+ * Each row describes one WifiEntry, starting with the active entries followed by the other
+ * entries in the order of {@link WifiPickerTracker#getWifiEntries()}. The columns are read once on
+ * the worker thread when the entries are published, so rows can be bound without taking the lock
+ * of each WifiEntry.
+ */
+public final class WifiEntryColumns {
+    /** The WifiEntry is saved. */
+    public static final int FLAG_SAVED = 1 << 0;
+    /** The WifiEntry is a network suggestion. */
+    public static final int FLAG_SUGGESTION = 1 << 1;
+    /** The WifiEntry is a Passpoint subscription. */
+    public static final int FLAG_SUBSCRIPTION = 1 << 2;
+    /** The WifiEntry can be connected to. */
+    public static final int FLAG_CAN_CONNECT = 1 << 3;
+    /** The WifiEntry is one of the active entries. */
+    public static final int FLAG_ACTIVE = 1 << 4;
+
+    static final WifiEntryColumns EMPTY = new WifiEntryColumns(0 /* numRows */,
+            0 /* numActiveRows */);
+
+    private final int mNumRows;
+    private final int mNumActiveRows;
+    @NonNull private final String[] mKeys;
+    @NonNull private final String[] mTitles;
+    @NonNull private final int[] mLevels;
+    @NonNull private final int[] mSecurityMasks;
+    @NonNull private final int[] mConnectedStates;
+    @NonNull private final int[] mFlags;
+    // Rows whose key is new or whose columns differ from the previous columns.
+    @NonNull private final BitSet mChangedRows;
+
+    private WifiEntryColumns(int numRows, int numActiveRows) {
+        mNumRows = numRows;
+        mNumActiveRows = numActiveRows;
+        mKeys = new String[numRows];
+        mTitles = new String[numRows];
+        mLevels = new int[numRows];
+        mSecurityMasks = new int[numRows];
+        mConnectedStates = new int[numRows];
+        mFlags = new int[numRows];
+        mChangedRows = new BitSet(numRows);
+    }
+
+    /**
+     * Reads the columns of the given entries, marking the rows which changed since the given
+     * previous columns.
+     */
+    @WorkerThread
+    @NonNull
+    static WifiEntryColumns create(@NonNull List<WifiEntry> activeWifiEntries,
+            @NonNull List<WifiEntry> wifiEntries, @NonNull WifiEntryColumns previous) {
+        final WifiEntryColumns columns = new WifiEntryColumns(
+                activeWifiEntries.size() + wifiEntries.size(), activeWifiEntries.size());
+        int row = 0;
+        for (WifiEntry entry : activeWifiEntries) {
+            columns.setRow(row++, entry, FLAG_ACTIVE);
+        }
+        for (WifiEntry entry : wifiEntries) {
+            columns.setRow(row++, entry, 0 /* extraFlags */);
+        }
+        columns.setChangedRows(previous, columns.mChangedRows);
+        return columns;
+    }
+
+    /**
+     * Sets the bits of the rows whose key is not in the given columns, or whose columns differ
+     * from the row of the same key there.
+     */
+    private void setChangedRows(@NonNull WifiEntryColumns since, @NonNull BitSet changedRows) {
+        final Map<String, Integer> sinceRows = new ArrayMap<>(since.mNumRows);
+        for (int i = 0; i < since.mNumRows; i++) {
+            sinceRows.put(since.mKeys[i], i);
+        }
+        for (int i = 0; i < mNumRows; i++) {
+            final Integer sinceRow = sinceRows.get(mKeys[i]);
+            if (sinceRow == null || !isRowEqual(i, since, sinceRow)) {
+                changedRows.set(i);
+            }
+        }
+    }
+
+    private void setRow(int row, @NonNull WifiEntry entry, int extraFlags) {
+        mKeys[row] = entry.getKey();
+        mTitles[row] = Objects.toString(entry.getTitle(), "");
+        mLevels[row] = entry.getLevel();
+        int securityMask = 0;
+        for (int securityType : entry.getSecurityTypes()) {
+            if (securityType >= 0 && securityType < Integer.SIZE) {
+                securityMask |= 1 << securityType;
+            }
+        }
+        mSecurityMasks[row] = securityMask;
+        mConnectedStates[row] = entry.getConnectedState();
+        int flags = extraFlags;
+        if (entry.isSaved()) {
+            flags |= FLAG_SAVED;
+        }
+        if (entry.isSuggestion()) {
+            flags |= FLAG_SUGGESTION;
+        }
+        if (entry.isSubscription()) {
+            flags |= FLAG_SUBSCRIPTION;
+        }
+        if (entry.canConnect()) {
+            flags |= FLAG_CAN_CONNECT;
+        }
+        mFlags[row] = flags;
+    }
+
+    private boolean isRowEqual(int row, @NonNull WifiEntryColumns other, int otherRow) {
+        return mLevels[row] == other.mLevels[otherRow]
+                && mSecurityMasks[row] == other.mSecurityMasks[otherRow]
+                && mConnectedStates[row] == other.mConnectedStates[otherRow]
+                && mFlags[row] == other.mFlags[otherRow]
+                && Objects.equals(mTitles[row], other.mTitles[otherRow]);
+    }
+
+    /** Returns the number of rows. */
+    public int getRowCount() {
+        return mNumRows;
+    }
+
+    /** Returns the number of rows describing active entries, which come first. */
+    public int getActiveRowCount() {
+        return mNumActiveRows;
+    }
+
+    /** Returns the key of the WifiEntry of the row. */
+    @NonNull
+    public String getKey(int row) {
+        return mKeys[row];
+    }
+
+    /** Returns the title of the WifiEntry of the row. */
+    @NonNull
+    public String getTitle(int row) {
+        return mTitles[row];
+    }
+
+    /** Returns the signal level of the WifiEntry of the row. */
+    public int getLevel(int row) {
+        return mLevels[row];
+    }
+
+    /**
+     * Returns the security types of the WifiEntry of the row as a bitmask with the bit
+     * (1 << WifiInfo#SECURITY_TYPE_*) set for each of its security types.
+     */
+    public int getSecurityMask(int row) {
+        return mSecurityMasks[row];
+    }
+
+    /** Returns the WifiEntry#CONNECTED_STATE_* value of the WifiEntry of the row. */
+    @WifiEntry.ConnectedState
+    public int getConnectedState(int row) {
+        return mConnectedStates[row];
+    }
+
+    /** Returns the FLAG_* values set for the WifiEntry of the row. */
+    public int getFlags(int row) {
+        return mFlags[row];
+    }
+
+    /**
+     * Returns whether the row describes a WifiEntry which was not in the previous columns, or
+     * whose columns changed since then.
+     *
+     * The previous columns are the ones built by the previous update of the tracker, which a
+     * listener may not have seen if its callbacks were conflated or throttled. Use
+     * {@link #getChangedRows(WifiEntryColumns)} with the columns last bound instead.
+     */
+    public boolean isRowChanged(int row) {
+        if (row < 0 || row >= mNumRows) {
+            throw new IndexOutOfBoundsException("row " + row + " of " + mNumRows);
+        }
+        return mChangedRows.get(row);
+    }
+
+    /** Returns whether any row changed since the previous columns. */
+    public boolean hasChangedRows() {
+        return !mChangedRows.isEmpty();
+    }
+
+    /**
+     * Returns the rows describing a WifiEntry which was not in the given columns, or whose
+     * columns changed since then, e.g. since the columns a listener last bound.
+     */
+    @NonNull
+    public BitSet getChangedRows(@NonNull WifiEntryColumns since) {
+        final BitSet changedRows = new BitSet(mNumRows);
+        if (since != this) {
+            setChangedRows(since, changedRows);
+        }
+        return changedRows;
+    }
+}
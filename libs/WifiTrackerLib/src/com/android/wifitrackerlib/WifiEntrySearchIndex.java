@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import android.icu.lang.UCharacter;
+import android.util.ArrayMap;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable index of the titles of the WifiEntries published by a WifiPickerTracker, for finding
+ * the entries whose title starts with a given prefix regardless of case.
+ *
+ * The case-folded titles are kept sorted so that a search is a binary search for the range of
+ * matching titles. The sorted titles are carried over from the previous index, so that an update
+ * only has to sort the titles of the entries which were added or retitled, merge them into the
+ * previous titles, and map the entries to their rows in picker order.
+ */
+class WifiEntrySearchIndex {
+    static final WifiEntrySearchIndex EMPTY = new WifiEntrySearchIndex(
+            new String[0], new String[0], Collections.emptyMap(), Collections.emptyList());
+
+    // Case-folded titles in ascending order, and the keys of their entries.
+    @NonNull private final String[] mFoldedTitles;
+    @NonNull private final String[] mKeys;
+    // Titles of the entries by key, to detect whether the sorted titles can be reused.
+    @NonNull private final Map<String, String> mTitlesByKey;
+    // Entries in picker order.
+    @NonNull private final List<WifiEntry> mWifiEntries;
+    // Row of each entry in mWifiEntries by key.
+    @NonNull private final Map<String, Integer> mRowsByKey;
+
+    private WifiEntrySearchIndex(@NonNull String[] foldedTitles, @NonNull String[] keys,
+            @NonNull Map<String, String> titlesByKey, @NonNull List<WifiEntry> wifiEntries) {
+        mFoldedTitles = foldedTitles;
+        mKeys = keys;
+        mTitlesByKey = titlesByKey;
+        mWifiEntries = wifiEntries;
+        mRowsByKey = new ArrayMap<>(wifiEntries.size());
+        for (int row = 0; row < wifiEntries.size(); row++) {
+            mRowsByKey.put(wifiEntries.get(row).getKey(), row);
+        }
+    }
+
+    /**
+     * Creates the index of the given entries, whose columns were read into the given columns.
+     * The sorted titles of the previous index are reused for the entries whose title did not
+     * change.
+     */
+    @WorkerThread
+    @NonNull
+    static WifiEntrySearchIndex create(@NonNull WifiEntrySearchIndex previous,
+            @NonNull WifiEntryColumns columns, @NonNull List<WifiEntry> wifiEntries) {
+        final int numRows = columns.getRowCount();
+        final ArrayMap<String, String> titlesByKey = new ArrayMap<>(numRows);
+        for (int row = 0; row < numRows; row++) {
+            titlesByKey.put(columns.getKey(row), columns.getTitle(row));
+        }
+        final List<WifiEntry> unmodifiableWifiEntries = Collections.unmodifiableList(wifiEntries);
+        if (titlesByKey.equals(previous.mTitlesByKey)) {
+            return new WifiEntrySearchIndex(previous.mFoldedTitles, previous.mKeys,
+                    previous.mTitlesByKey, unmodifiableWifiEntries);
+        }
+
+        // Sort the titles of the entries which are new or whose title changed.
+        final List<Integer> addedIndices = new ArrayList<>();
+        for (int i = 0; i < titlesByKey.size(); i++) {
+            if (!titlesByKey.valueAt(i).equals(previous.mTitlesByKey.get(titlesByKey.keyAt(i)))) {
+                addedIndices.add(i);
+            }
+        }
+        final int numAdded = addedIndices.size();
+        final String[] addedFoldedTitles = new String[numAdded];
+        final String[] addedKeys = new String[numAdded];
+        final Integer[] order = new Integer[numAdded];
+        final String[] unsortedFoldedTitles = new String[numAdded];
+        for (int i = 0; i < numAdded; i++) {
+            order[i] = i;
+            unsortedFoldedTitles[i] = fold(titlesByKey.valueAt(addedIndices.get(i)));
+        }
+        Arrays.sort(order, (i, j) -> unsortedFoldedTitles[i].compareTo(unsortedFoldedTitles[j]));
+        for (int i = 0; i < numAdded; i++) {
+            addedFoldedTitles[i] = unsortedFoldedTitles[order[i]];
+            addedKeys[i] = titlesByKey.keyAt(addedIndices.get(order[i]));
+        }
+
+        // Merge them into the previous titles of the entries which are still there unchanged.
+        final int numTitles = titlesByKey.size();
+        final String[] foldedTitles = new String[numTitles];
+        final String[] keys = new String[numTitles];
+        int previousIndex = 0;
+        int addedIndex = 0;
+        int index = 0;
+        while (index < numTitles) {
+            if (previousIndex < previous.mKeys.length) {
+                final String previousKey = previous.mKeys[previousIndex];
+                final String title = titlesByKey.get(previousKey);
+                if (title == null || !title.equals(previous.mTitlesByKey.get(previousKey))) {
+                    // Removed, or retitled and thus among the added titles.
+                    previousIndex++;
+                    continue;
+                }
+                if (addedIndex >= numAdded || previous.mFoldedTitles[previousIndex]
+                        .compareTo(addedFoldedTitles[addedIndex]) <= 0) {
+                    foldedTitles[index] = previous.mFoldedTitles[previousIndex];
+                    keys[index++] = previousKey;
+                    previousIndex++;
+                    continue;
+                }
+            }
+            foldedTitles[index] = addedFoldedTitles[addedIndex];
+            keys[index++] = addedKeys[addedIndex++];
+        }
+        return new WifiEntrySearchIndex(foldedTitles, keys, titlesByKey, unmodifiableWifiEntries);
+    }
+
+    /**
+     * Returns the entries whose title starts with the given prefix, ignoring case, in picker
+     * order.
+     */
+    @AnyThread
+    @NonNull
+    List<WifiEntry> search(@NonNull String prefix) {
+        final String foldedPrefix = fold(prefix);
+        if (foldedPrefix.isEmpty()) {
+            return mWifiEntries;
+        }
+        // Find the first title not less than the prefix. Titles equal to each other may repeat, so
+        // Arrays.binarySearch() cannot be used.
+        int index = 0;
+        int end = mFoldedTitles.length;
+        while (index < end) {
+            final int mid = (index + end) >>> 1;
+            if (mFoldedTitles[mid].compareTo(foldedPrefix) < 0) {
+                index = mid + 1;
+            } else {
+                end = mid;
+            }
+        }
+        final List<Integer> rows = new ArrayList<>();
+        for (; index < mFoldedTitles.length && mFoldedTitles[index].startsWith(foldedPrefix);
+                index++) {
+            rows.add(mRowsByKey.get(mKeys[index]));
+        }
+        Collections.sort(rows);
+        final List<WifiEntry> wifiEntries = new ArrayList<>(rows.size());
+        for (int row : rows) {
+            wifiEntries.add(mWifiEntries.get(row));
+        }
+        return wifiEntries;
+    }
+
+    /**
+     * Returns the full case folding of the given title, so that titles differing only in case
+     * (including e.g. "ß" and "SS") fold to the same string. A null title folds to "".
+     */
+    @NonNull
+    private static String fold(@Nullable String title) {
+        if (title == null) {
+            return "";
+        }
+        return UCharacter.foldCase(title, true /* defaultmapping */);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import android.os.Handler;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.GuardedBy;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Coalesces WifiEntry update notifications into a single message on the callback handler.
+ *
+ * Entries that change while a delivery is already pending join that delivery instead of posting
+ * their own message, so each entry has at most one pending update and a whole update cycle is
+ * delivered with one message.
+ */
+class WifiEntryUpdateBatcher {
+    @NonNull private final Handler mHandler;
+    private final Object mLock = new Object();
+    // Keyed by identity since WifiEntry#equals() only compares keys.
+    @GuardedBy("mLock")
+    @NonNull private Set<WifiEntry> mPendingEntries = newEntrySet();
+    @GuardedBy("mLock")
+    private boolean mIsDeliveryPosted = false;
+    @Nullable private volatile BatchCallback mBatchCallback;
+
+    /**
+     * Callback for the set of WifiEntries updated in a delivery.
+     */
+    interface BatchCallback {
+        /**
+         * Called after WifiEntryCallback#onUpdated() has been delivered to each updated entry.
+         *
+         * @param updatedEntries the entries which were updated since the last delivery.
+         */
+        @MainThread
+        void onWifiEntriesUpdated(@NonNull Set<WifiEntry> updatedEntries);
+    }
+
+    WifiEntryUpdateBatcher(@NonNull Handler handler) {
+        mHandler = handler;
+    }
+
+    @NonNull
+    Handler getHandler() {
+        return mHandler;
+    }
+
+    /** Sets the callback receiving the entries updated in each delivery. */
+    void setBatchCallback(@Nullable BatchCallback batchCallback) {
+        mBatchCallback = batchCallback;
+    }
+
+    /** Returns whether a callback for the whole set of updated entries is registered. */
+    boolean hasBatchCallback() {
+        return mBatchCallback != null;
+    }
+
+    /**
+     * Schedules the update of the given entry to be delivered with the next batch.
+     */
+    @AnyThread
+    void enqueue(@NonNull WifiEntry entry) {
+        synchronized (mLock) {
+            mPendingEntries.add(entry);
+            if (mIsDeliveryPosted) {
+                return;
+            }
+            mIsDeliveryPosted = true;
+        }
+        mHandler.post(this::deliverPendingUpdates);
+    }
+
+    @MainThread
+    private void deliverPendingUpdates() {
+        final Set<WifiEntry> updatedEntries;
+        synchronized (mLock) {
+            updatedEntries = mPendingEntries;
+            mPendingEntries = newEntrySet();
+            mIsDeliveryPosted = false;
+        }
+        for (WifiEntry entry : updatedEntries) {
+            entry.deliverOnUpdated();
+        }
+        final BatchCallback batchCallback = mBatchCallback;
+        if (batchCallback != null) {
+            batchCallback.onWifiEntriesUpdated(Collections.unmodifiableSet(updatedEntries));
+        }
+    }
+
+    @NonNull
+    private static Set<WifiEntry> newEntrySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
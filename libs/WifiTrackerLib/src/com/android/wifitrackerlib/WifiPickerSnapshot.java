@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compact, immutable copy of the sorted WifiEntries last shown by a WifiPickerTracker.
+ *
+ * A snapshot restored from storage is stale: it only describes what was in range when it was
+ * taken, and its entries cannot be connected to or otherwise acted on. It should only be displayed
+ * until the tracker publishes its first live list of WifiEntries.
+ */
+public class WifiPickerSnapshot {
+    private static final int FORMAT_VERSION = 1;
+
+    private final long mTimestampMillis;
+    @NonNull private final List<Entry> mEntries;
+
+    /**
+     * Compact description of a single WifiEntry.
+     */
+    public static class Entry {
+        @NonNull private final String mKey;
+        @NonNull private final String mTitle;
+        private final int mLevel;
+        @NonNull private final List<Integer> mSecurityTypes;
+        private final boolean mIsSaved;
+
+        Entry(@NonNull String key, @NonNull String title, int level,
+                @NonNull List<Integer> securityTypes, boolean isSaved) {
+            mKey = key;
+            mTitle = title;
+            mLevel = level;
+            mSecurityTypes = Collections.unmodifiableList(new ArrayList<>(securityTypes));
+            mIsSaved = isSaved;
+        }
+
+        Entry(@NonNull WifiEntryColumns columns, int row) {
+            this(columns.getKey(row), Objects.toString(columns.getTitle(row), ""),
+                    columns.getLevel(row), getSecurityTypes(columns.getSecurityMask(row)),
+                    (columns.getFlags(row) & WifiEntryColumns.FLAG_SAVED) != 0);
+        }
+
+        @NonNull
+        private static List<Integer> getSecurityTypes(int securityMask) {
+            final List<Integer> securityTypes = new ArrayList<>(Integer.bitCount(securityMask));
+            for (int securityType = 0; securityType < Integer.SIZE; securityType++) {
+                if ((securityMask & (1 << securityType)) != 0) {
+                    securityTypes.add(securityType);
+                }
+            }
+            return securityTypes;
+        }
+
+        /** Returns the key of the WifiEntry. */
+        @NonNull
+        public String getKey() {
+            return mKey;
+        }
+
+        /** Returns the title of the WifiEntry. */
+        @NonNull
+        public String getTitle() {
+            return mTitle;
+        }
+
+        /** Returns the signal level of the WifiEntry when the snapshot was taken. */
+        public int getLevel() {
+            return mLevel;
+        }
+
+        /** Returns the security types of the WifiEntry as WifiInfo#SECURITY_TYPE_* values. */
+        @NonNull
+        public List<Integer> getSecurityTypes() {
+            return mSecurityTypes;
+        }
+
+        /** Returns whether the WifiEntry was saved. */
+        public boolean isSaved() {
+            return mIsSaved;
+        }
+
+        /**
+         * Returns whether the entry describes the same WifiEntry as the given entry, apart from
+         * the signal level.
+         */
+        boolean equalsIgnoringLevel(@NonNull Entry other) {
+            return mIsSaved == other.mIsSaved
+                    && mKey.equals(other.mKey)
+                    && mTitle.equals(other.mTitle)
+                    && mSecurityTypes.equals(other.mSecurityTypes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Entry)) return false;
+            final Entry other = (Entry) o;
+            return mLevel == other.mLevel
+                    && mIsSaved == other.mIsSaved
+                    && mKey.equals(other.mKey)
+                    && mTitle.equals(other.mTitle)
+                    && mSecurityTypes.equals(other.mSecurityTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mKey, mTitle, mLevel, mSecurityTypes, mIsSaved);
+        }
+
+        @Override
+        public String toString() {
+            return mKey + ",title:" + mTitle + ",level:" + mLevel
+                    + ",security:" + mSecurityTypes + ",saved:" + mIsSaved;
+        }
+    }
+
+    WifiPickerSnapshot(long timestampMillis, @NonNull List<Entry> entries) {
+        mTimestampMillis = timestampMillis;
+        mEntries = Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    /**
+     * Returns the time in milliseconds at which the snapshot was taken, as read from the Clock
+     * passed to the WifiPickerTracker.
+     */
+    public long getTimestampMillis() {
+        return mTimestampMillis;
+    }
+
+    /**
+     * Returns the entries in the order the tracker listed them, starting with its active entries.
+     */
+    @NonNull
+    public List<Entry> getEntries() {
+        return mEntries;
+    }
+
+    /**
+     * Returns whether the snapshot has the same entries in the same order as the given snapshot,
+     * regardless of when the snapshots were taken and of the signal levels, which change with
+     * almost every scan.
+     */
+    boolean hasSameEntries(@Nullable WifiPickerSnapshot other) {
+        if (other == null || mEntries.size() != other.mEntries.size()) {
+            return false;
+        }
+        for (int i = 0; i < mEntries.size(); i++) {
+            if (!mEntries.get(i).equalsIgnoringLevel(other.mEntries.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encodes the snapshot for storage.
+     */
+    @NonNull
+    byte[] toBytes() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(mTimestampMillis);
+            out.writeInt(mEntries.size());
+            for (Entry entry : mEntries) {
+                out.writeUTF(entry.mKey);
+                out.writeUTF(entry.mTitle);
+                out.writeByte(entry.mLevel);
+                out.writeBoolean(entry.mIsSaved);
+                out.writeByte(entry.mSecurityTypes.size());
+                for (int securityType : entry.mSecurityTypes) {
+                    out.writeByte(securityType);
+                }
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw.
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a snapshot encoded by {@link #toBytes()}.
+     *
+     * @throws IOException if the bytes are not a snapshot of the current format.
+     */
+    @NonNull
+    static WifiPickerSnapshot fromBytes(@NonNull byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            final int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unknown snapshot format version " + version);
+            }
+            final long timestampMillis = in.readLong();
+            final int numEntries = in.readInt();
+            if (numEntries < 0) {
+                throw new IOException("Invalid number of entries " + numEntries);
+            }
+            final List<Entry> entries = new ArrayList<>(Math.min(numEntries, bytes.length));
+            for (int i = 0; i < numEntries; i++) {
+                final String key = in.readUTF();
+                final String title = in.readUTF();
+                final int level = in.readByte();
+                final boolean isSaved = in.readBoolean();
+                final int numSecurityTypes = in.readUnsignedByte();
+                final List<Integer> securityTypes = new ArrayList<>(numSecurityTypes);
+                for (int j = 0; j < numSecurityTypes; j++) {
+                    securityTypes.add((int) in.readByte());
+                }
+                entries.add(new Entry(key, title, level, securityTypes, isSaved));
+            }
+            return new WifiPickerSnapshot(timestampMillis, entries);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WifiPickerSnapshot{timestamp=" + mTimestampMillis + ", entries=" + mEntries + "}";
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+/**
+ * Persists the latest WifiPickerSnapshot of a WifiPickerTracker to a file.
+ *
+ * Writes are made on the given executor and are conflated, so that only the latest snapshot is
+ * written if several are submitted while a write is in progress.
+ */
+class WifiPickerSnapshotStore {
+    private static final String TAG = "WifiPickerSnapshotStore";
+
+    @NonNull private final AtomicFile mFile;
+    @NonNull private final Executor mExecutor;
+
+    private final Object mLock = new Object();
+    // Latest snapshot read from or submitted for writing to the file.
+    @GuardedBy("mLock")
+    @Nullable private WifiPickerSnapshot mLastSnapshot;
+    @GuardedBy("mLock")
+    @Nullable private WifiPickerSnapshot mPendingSnapshot;
+    @GuardedBy("mLock")
+    private boolean mIsWriteScheduled;
+
+    WifiPickerSnapshotStore(@NonNull File file, @NonNull Executor executor) {
+        mFile = new AtomicFile(file);
+        mExecutor = executor;
+    }
+
+    /**
+     * Reads the persisted snapshot from the file.
+     *
+     * @return the snapshot, or null if none was persisted or the file cannot be read.
+     */
+    @AnyThread
+    @Nullable
+    WifiPickerSnapshot read() {
+        synchronized (mLock) {
+            if (mLastSnapshot != null) {
+                return mLastSnapshot;
+            }
+        }
+        final WifiPickerSnapshot snapshot;
+        try {
+            snapshot = WifiPickerSnapshot.fromBytes(mFile.readFully());
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read snapshot from " + mFile.getBaseFile() + ": " + e);
+            return null;
+        }
+        synchronized (mLock) {
+            if (mLastSnapshot == null) {
+                mLastSnapshot = snapshot;
+            }
+            return mLastSnapshot;
+        }
+    }
+
+    /**
+     * Writes the given snapshot to the file on the executor, unless it has the same entries as the
+     * latest snapshot. Changes in signal level alone are not written, so the persisted levels are
+     * those of the last write.
+     */
+    @AnyThread
+    void write(@NonNull WifiPickerSnapshot snapshot) {
+        synchronized (mLock) {
+            if (snapshot.hasSameEntries(mLastSnapshot)) {
+                return;
+            }
+            mLastSnapshot = snapshot;
+            mPendingSnapshot = snapshot;
+            if (mIsWriteScheduled) {
+                return;
+            }
+            mIsWriteScheduled = true;
+        }
+        mExecutor.execute(this::writePendingSnapshots);
+    }
+
+    @AnyThread
+    private void writePendingSnapshots() {
+        while (true) {
+            final WifiPickerSnapshot snapshot;
+            synchronized (mLock) {
+                snapshot = mPendingSnapshot;
+                mPendingSnapshot = null;
+                if (snapshot == null) {
+                    mIsWriteScheduled = false;
+                    return;
+                }
+            }
+            FileOutputStream out = null;
+            try {
+                out = mFile.startWrite();
+                out.write(snapshot.toBytes());
+                mFile.finishWrite(out);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to write snapshot to " + mFile.getBaseFile() + ": " + e);
+                if (out != null) {
+                    mFile.failWrite(out);
+                }
+            }
+        }
+    }
+}
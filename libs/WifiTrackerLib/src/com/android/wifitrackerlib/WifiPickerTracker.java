@@ -30,9 +30,13 @@ import static com.android.wifitrackerlib.WifiEntry.WIFI_LEVEL_UNREACHABLE;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
+import android.Manifest;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.location.LocationManager;
 import android.net.ConnectivityDiagnosticsManager;
 import android.net.ConnectivityManager;
 import android.net.LinkProperties;
@@ -57,6 +61,7 @@ import android.util.ArraySet;
 import android.util.Log;
 import android.util.Pair;
 import android.util.SparseArray;
+import android.util.SparseBooleanArray;
 
 import androidx.annotation.AnyThread;
 import androidx.annotation.GuardedBy;
@@ -69,6 +74,7 @@ import androidx.annotation.WorkerThread;
 import androidx.core.os.BuildCompat;
 import androidx.lifecycle.Lifecycle;
 
+import java.io.File;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.time.Clock;
@@ -79,6 +85,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -98,8 +106,6 @@ public class WifiPickerTracker extends BaseWifiTracker {
     private static final String EXTRA_KEY_CONNECTION_STATUS_CONNECTED =
             "connection_status_connected";
 
-    private final WifiPickerTrackerCallback mListener;
-
     // Lock object for data returned by the public API
     private final Object mLock = new Object();
     // List representing the return value of the getActiveWifiEntries() API
@@ -108,6 +114,30 @@ public class WifiPickerTracker extends BaseWifiTracker {
     // List representing the return value of the getWifiEntries() API
     @GuardedBy("mLock")
     @NonNull private final List<WifiEntry> mWifiEntries = new ArrayList<>();
+    // Columns of the lists above, returned by getWifiEntryColumns()
+    @GuardedBy("mLock")
+    @NonNull private WifiEntryColumns mWifiEntryColumns = WifiEntryColumns.EMPTY;
+    // Index of the titles of the lists above, used by searchWifiEntries()
+    @GuardedBy("mLock")
+    @NonNull private WifiEntrySearchIndex mSearchIndex = WifiEntrySearchIndex.EMPTY;
+    // Whether only the active WifiEntries are maintained, set by enableConnectedOnlyMode().
+    private volatile boolean mIsConnectedOnlyMode;
+    // Prefix set by setSearchQuery(), or null if there is no search in progress.
+    @Nullable private volatile String mSearchQuery;
+    // Keys of the results of mSearchQuery last reported through onSearchResultsChanged(). Must be
+    // accessed only by the worker thread.
+    @NonNull private List<String> mLastSearchResultKeys = Collections.emptyList();
+    // Whether the lists above have been populated since construction.
+    @GuardedBy("mLock")
+    private boolean mHasLiveWifiEntries;
+    // Persisted snapshot returned by getStaleSnapshot() until the lists above are populated.
+    @GuardedBy("mLock")
+    @Nullable private WifiPickerSnapshot mStaleSnapshot;
+    // Store of the snapshot of the lists above, or null if snapshot persistence is disabled.
+    @Nullable private volatile WifiPickerSnapshotStore mSnapshotStore;
+    // Whether handleOnStart() is publishing the entries before the scans have been fetched, in
+    // which case the lists above are not persisted. Must be accessed only by the worker thread.
+    private boolean mIsFetchingStartScans;
     // NetworkRequestEntry representing a network that was connected through the NetworkRequest API
     private NetworkRequestEntry mNetworkRequestEntry;
 
@@ -120,6 +150,11 @@ public class WifiPickerTracker extends BaseWifiTracker {
     // Cache containing network request WifiConfigurations mapped by StandardWifiEntry key.
     private final ArrayMap<StandardWifiEntryKey, List<WifiConfiguration>>
             mNetworkRequestConfigCache = new ArrayMap<>();
+    // StandardWifiEntryKey of each config in the caches above, mapped by network id.
+    private final SparseArray<StandardWifiEntryKey> mConfigKeysByNetworkId = new SparseArray<>();
+    // Diffs each fetched list of configs against the configs held by the caches above.
+    // Must be accessed only by the worker thread.
+    private final WifiConfigurationDiffer mWifiConfigurationDiffer = new WifiConfigurationDiffer();
     // Cache containing visible StandardWifiEntries. Must be accessed only by the worker thread.
     private final List<StandardWifiEntry> mStandardWifiEntryCache = new ArrayList<>();
     // Cache containing available suggested StandardWifiEntries. These entries may be already
@@ -139,6 +174,12 @@ public class WifiPickerTracker extends BaseWifiTracker {
 
     private int mNumSavedNetworks;
 
+    // Number of entry scan updates dropped as unchanged in the current scan update cycle.
+    // Must be accessed only by the worker thread.
+    private int mNumDroppedEntryScanUpdatesInCycle;
+    // Number of entry scan updates dropped as unchanged in the last completed scan update cycle.
+    private volatile int mNumDroppedEntryScanUpdates;
+
     private final List<KnownNetwork> mKnownNetworkDataCache = new ArrayList<>();
     private final List<KnownNetworkEntry> mKnownNetworkEntryCache = new ArrayList<>();
     private final List<HotspotNetwork> mHotspotNetworkDataCache = new ArrayList<>();
@@ -186,7 +227,6 @@ public class WifiPickerTracker extends BaseWifiTracker {
         super(injector, lifecycle, context, wifiManager, connectivityManager,
                 mainHandler, workerHandler, clock, maxScanAgeMillis, scanIntervalMillis, listener,
                 TAG);
-        mListener = listener;
     }
 
     /**
@@ -231,6 +271,152 @@ public class WifiPickerTracker extends BaseWifiTracker {
         }
     }
 
+    /**
+     * Persists a snapshot of the sorted WifiEntries to the given file whenever they change, and
+     * restores it on the next cold start so that it may be shown until live WifiEntries are
+     * available. The file should be in app-private storage.
+     *
+     * Must be called before the tracker is started to take effect on its first start.
+     */
+    @MainThread
+    public void enableSnapshotPersistence(@NonNull File snapshotFile) {
+        mSnapshotStore = new WifiPickerSnapshotStore(snapshotFile, getFetchExecutor());
+    }
+
+    /**
+     * Returns the columns of the active WifiEntries and the WifiEntries returned by
+     * {@link #getWifiEntries()}, as of the last
+     * {@link WifiPickerTrackerCallback#onWifiEntriesChanged()} callback. Since callbacks may be
+     * conflated, rows to rebind should be found with
+     * {@link WifiEntryColumns#getChangedRows(WifiEntryColumns)} against the columns last bound.
+     */
+    @AnyThread
+    public @NonNull WifiEntryColumns getWifiEntryColumns() {
+        synchronized (mLock) {
+            return mWifiEntryColumns;
+        }
+    }
+
+    /**
+     * Returns the active WifiEntries and the WifiEntries returned by {@link #getWifiEntries()}
+     * whose title starts with the given prefix, ignoring case, in the same order.
+     */
+    @AnyThread
+    public @NonNull List<WifiEntry> searchWifiEntries(@NonNull String prefix) {
+        final WifiEntrySearchIndex searchIndex;
+        synchronized (mLock) {
+            searchIndex = mSearchIndex;
+        }
+        return searchIndex.search(prefix);
+    }
+
+    /**
+     * Sets the prefix whose results are returned by {@link #getSearchResults()}, or null to stop
+     * searching. {@link WifiPickerTrackerCallback#onSearchResultsChanged()} is called whenever
+     * the results change, either because of the new prefix or because the WifiEntries changed.
+     */
+    @AnyThread
+    public void setSearchQuery(@Nullable String prefix) {
+        mWorkerHandler.post(() -> {
+            mSearchQuery = prefix;
+            updateSearchResults();
+        });
+    }
+
+    /**
+     * Returns the results of {@link #searchWifiEntries(String)} for the prefix set by
+     * {@link #setSearchQuery(String)}, or an empty list if there is none.
+     */
+    @AnyThread
+    public @NonNull List<WifiEntry> getSearchResults() {
+        final String query = mSearchQuery;
+        if (query == null) {
+            return Collections.emptyList();
+        }
+        return searchWifiEntries(query);
+    }
+
+    /**
+     * Registers a listener to be notified on the given executor, e.g. for a consumer that needs
+     * less frequent updates than the listener passed at construction.
+     *
+     * The onWifiEntriesChanged(), onNumSavedNetworksChanged() and onNumSavedSubscriptionsChanged()
+     * callbacks are delivered to this listener at most once per minUpdateIntervalMillis each. The
+     * changes made in between are reported by a single callback at the end of the interval, with
+     * the most significant {@link WifiEntriesChangedReason} of the changes.
+     */
+    @AnyThread
+    public void addListener(@NonNull Executor executor,
+            @NonNull WifiPickerTrackerCallback listener, long minUpdateIntervalMillis) {
+        super.addListener(executor, listener, minUpdateIntervalMillis);
+    }
+
+    /**
+     * Unregisters a listener registered with
+     * {@link #addListener(Executor, WifiPickerTrackerCallback, long)}. The listener passed at
+     * construction cannot be removed this way.
+     */
+    @AnyThread
+    public void removeListener(@NonNull WifiPickerTrackerCallback listener) {
+        super.removeListener(listener);
+    }
+
+    /**
+     * Restricts the tracker to the active WifiEntries, e.g. for a status indicator which only
+     * needs the connected network and its signal level. The tracker then does not scan, ignores
+     * scan results, and skips the Passpoint and OSU matching, so {@link #getWifiEntries()} stays
+     * empty while {@link #getConnectedWifiEntry()} and {@link #getActiveWifiEntries()} are kept up
+     * to date from the network callbacks and WifiInfo changes.
+     *
+     * Must be called before the tracker is started. Verbose logging is not affected, unlike
+     * {@link #disableScanning()}.
+     *
+     * @throws IllegalStateException if the tracker was already started.
+     */
+    @MainThread
+    public void enableConnectedOnlyMode() {
+        if (hasStarted()) {
+            throw new IllegalStateException(
+                    "enableConnectedOnlyMode() must be called before the tracker is started");
+        }
+        mIsConnectedOnlyMode = true;
+        disableScanLoop();
+    }
+
+    @Override
+    @NonNull
+    IntentFilter getIntentFilter() {
+        final IntentFilter filter = super.getIntentFilter();
+        if (!mIsConnectedOnlyMode) {
+            return filter;
+        }
+        // Scan results are ignored in connected-only mode, so do not receive them at all.
+        final IntentFilter connectedOnlyFilter = new IntentFilter();
+        for (int i = 0; i < filter.countActions(); i++) {
+            if (!WifiManager.SCAN_RESULTS_AVAILABLE_ACTION.equals(filter.getAction(i))) {
+                connectedOnlyFilter.addAction(filter.getAction(i));
+            }
+        }
+        connectedOnlyFilter.setPriority(filter.getPriority());
+        return connectedOnlyFilter;
+    }
+
+    /**
+     * Returns the persisted snapshot of the WifiEntries last shown before the tracker was
+     * created, or null if there is none or live WifiEntries have since been published through
+     * {@link WifiPickerTrackerCallback#onWifiEntriesChanged()}.
+     *
+     * The snapshot is stale and its entries cannot be acted on.
+     *
+     * @see #enableSnapshotPersistence(File)
+     */
+    @AnyThread
+    public @Nullable WifiPickerSnapshot getStaleSnapshot() {
+        synchronized (mLock) {
+            return mStaleSnapshot;
+        }
+    }
+
     /**
      * Returns the MergedCarrierEntry representing the active carrier subscription.
      */
@@ -265,6 +451,15 @@ public class WifiPickerTracker extends BaseWifiTracker {
         return mPasspointConfigCache.size();
     }
 
+    /**
+     * Returns the number of WifiEntry scan updates which were dropped in the last scan update
+     * cycle since the matched scans of the entry were unchanged.
+     */
+    @AnyThread
+    public int getNumDroppedEntryScanUpdates() {
+        return mNumDroppedEntryScanUpdates;
+    }
+
     private List<WifiEntry> getAllWifiEntries() {
         List<WifiEntry> allEntries = new ArrayList<>();
         allEntries.addAll(mStandardWifiEntryCache);
@@ -305,33 +500,175 @@ public class WifiPickerTracker extends BaseWifiTracker {
             wifiEntry.clearConnectionInfo();
         }
 
-        // Update configs and scans
-        updateWifiConfigurations(mWifiManager.getPrivilegedConfiguredNetworks());
-        updatePasspointConfigurations(mWifiManager.getPasspointConfigurations());
-        mScanResultUpdater.update(mWifiManager.getScanResults());
-        conditionallyUpdateScanResults(true /* lastScanSucceeded */);
+        // The configs, scans and current network are independent of each other, so fetch them
+        // concurrently.
+        final Executor fetchExecutor = getFetchExecutor();
+        if (mSnapshotStore != null) {
+            fetchExecutor.execute(this::restoreSnapshot);
+        }
+        final Future<List<WifiConfiguration>> configsFuture =
+                fetchAsync(fetchExecutor, mWifiManager::getPrivilegedConfiguredNetworks);
+        final Future<List<PasspointConfiguration>> passpointConfigsFuture =
+                fetchAsync(fetchExecutor, mWifiManager::getPasspointConfigurations);
+        final Future<List<ScanResult>> scanResultsFuture = mIsConnectedOnlyMode
+                ? null : fetchAsync(fetchExecutor, this::fetchScanResults);
+        final Future<CurrentNetworkState> currentNetworkFuture =
+                fetchAsync(fetchExecutor, this::fetchCurrentNetworkState);
+
+        // Update configs and scans, except for the Passpoint and OSU matching which needs further
+        // binder calls. If the scans are still being fetched, the entries are published once with
+        // the configs and the current network, and again once the scans arrive.
+        updateWifiConfigurations(getFetchResult(configsFuture));
+        updatePasspointConfigurations(getFetchResult(passpointConfigsFuture));
+        final boolean isFetchingScans = scanResultsFuture != null && !scanResultsFuture.isDone();
+        if (!isFetchingScans) {
+            updateStartScanResults(scanResultsFuture);
+        }
 
         // Trigger callbacks manually now to avoid waiting until the first calls to update state.
         handleDefaultSubscriptionChanged(SubscriptionManager.getDefaultDataSubscriptionId());
-        Network currentNetwork = mWifiManager.getCurrentNetwork();
-        if (currentNetwork != null) {
-            NetworkCapabilities networkCapabilities =
-                    mConnectivityManager.getNetworkCapabilities(currentNetwork);
-            if (networkCapabilities != null) {
-                // getNetworkCapabilities(Network) obfuscates location info such as SSID and
-                // networkId, so we need to set the WifiInfo directly from WifiManager.
-                handleNetworkCapabilitiesChanged(currentNetwork,
-                        new NetworkCapabilities.Builder(networkCapabilities)
-                                .setTransportInfo(mWifiManager.getConnectionInfo())
-                                .build());
+        mIsFetchingStartScans = isFetchingScans;
+        final CurrentNetworkState currentNetworkState = getFetchResult(currentNetworkFuture);
+        if (currentNetworkState != null) {
+            if (currentNetworkState.networkCapabilities != null) {
+                handleNetworkCapabilitiesChanged(currentNetworkState.network,
+                        currentNetworkState.networkCapabilities);
             }
-            LinkProperties linkProperties = mConnectivityManager.getLinkProperties(currentNetwork);
-            if (linkProperties != null) {
-                handleLinkPropertiesChanged(currentNetwork, linkProperties);
+            if (currentNetworkState.linkProperties != null) {
+                handleLinkPropertiesChanged(currentNetworkState.network,
+                        currentNetworkState.linkProperties);
             }
         }
         notifyOnNumSavedNetworksChanged();
         notifyOnNumSavedSubscriptionsChanged();
+        if (isFetchingScans) {
+            updateWifiEntries();
+            mIsFetchingStartScans = false;
+            updateStartScanResults(scanResultsFuture);
+        }
+        // Publish the connected and standard entries first, then refine the list with the
+        // Passpoint and OSU entries in a separate message.
+        updateWifiEntries();
+        if (mIsConnectedOnlyMode) {
+            return;
+        }
+        final int generation = getScanResultsGeneration();
+        mWorkerHandler.post(() -> {
+            // Newer scan results are matched by their own processing.
+            if (generation == getScanResultsGeneration()) {
+                updatePasspointAndOsuWifiEntryScans();
+            }
+        });
+    }
+
+    /**
+     * Updates the WifiEntries with the scans fetched in handleOnStart(), except for the Passpoint
+     * and OSU matching.
+     */
+    @WorkerThread
+    private void updateStartScanResults(@Nullable Future<List<ScanResult>> scanResultsFuture) {
+        if (scanResultsFuture != null && !clearScanResultsIfWifiDisabled()) {
+            mScanResultUpdater.update(getFetchResult(scanResultsFuture));
+            updateWifiEntryScans(mScanResultUpdater.getScanResults(mMaxScanAgeMillis),
+                    false /* matchPasspoint */);
+        }
+    }
+
+    /**
+     * Reads the persisted snapshot and publishes it as the stale snapshot if no live WifiEntries
+     * have been published yet.
+     *
+     * The snapshot lists nearby networks, so it is only restored while the app could read the
+     * scans it was taken from: Wi-Fi is enabled, location is on, and the app holds the location
+     * permission.
+     */
+    @AnyThread
+    private void restoreSnapshot() {
+        final WifiPickerSnapshotStore snapshotStore = mSnapshotStore;
+        if (snapshotStore == null || !canRestoreSnapshot()) {
+            return;
+        }
+        final WifiPickerSnapshot snapshot = snapshotStore.read();
+        if (snapshot == null) {
+            return;
+        }
+        synchronized (mLock) {
+            if (mHasLiveWifiEntries) {
+                return;
+            }
+            mStaleSnapshot = snapshot;
+            // Post while holding the lock so that the callback precedes the first
+            // onWifiEntriesChanged() callback.
+            notifyListeners(listener -> ((WifiPickerTrackerCallback) listener)
+                    .onStaleSnapshotRestored(snapshot));
+        }
+    }
+
+    @AnyThread
+    private boolean canRestoreSnapshot() {
+        if (mWifiManager.getWifiState() != WifiManager.WIFI_STATE_ENABLED) {
+            return false;
+        }
+        final LocationManager locationManager = mContext.getSystemService(LocationManager.class);
+        if (locationManager == null || !locationManager.isLocationEnabled()) {
+            return false;
+        }
+        return mContext.checkSelfPermission(Manifest.permission.ACCESS_FINE_LOCATION)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    /**
+     * Current network state fetched in handleOnStart().
+     */
+    private static class CurrentNetworkState {
+        @NonNull final Network network;
+        @Nullable final NetworkCapabilities networkCapabilities;
+        @Nullable final LinkProperties linkProperties;
+
+        CurrentNetworkState(@NonNull Network network,
+                @Nullable NetworkCapabilities networkCapabilities,
+                @Nullable LinkProperties linkProperties) {
+            this.network = network;
+            this.networkCapabilities = networkCapabilities;
+            this.linkProperties = linkProperties;
+        }
+    }
+
+    /**
+     * Fetches the current network state, or returns null if there is no current network.
+     */
+    @AnyThread
+    @Nullable
+    private CurrentNetworkState fetchCurrentNetworkState() {
+        final Network currentNetwork = mWifiManager.getCurrentNetwork();
+        if (currentNetwork == null) {
+            return null;
+        }
+        NetworkCapabilities networkCapabilities =
+                mConnectivityManager.getNetworkCapabilities(currentNetwork);
+        if (networkCapabilities != null) {
+            // getNetworkCapabilities(Network) obfuscates location info such as SSID and
+            // networkId, so we need to set the WifiInfo directly from WifiManager.
+            networkCapabilities = new NetworkCapabilities.Builder(networkCapabilities)
+                    .setTransportInfo(mWifiManager.getConnectionInfo())
+                    .build();
+        }
+        return new CurrentNetworkState(currentNetwork, networkCapabilities,
+                mConnectivityManager.getLinkProperties(currentNetwork));
+    }
+
+    /**
+     * Matches the cached scans against the Passpoint and OSU providers, which handleOnStart()
+     * defers until the first list of WifiEntries has been published.
+     */
+    @WorkerThread
+    private void updatePasspointAndOsuWifiEntryScans() {
+        if (mWifiManager.getWifiState() == WifiManager.WIFI_STATE_DISABLED) {
+            return;
+        }
+        final List<ScanResult> scanResults = mScanResultUpdater.getScanResults(mMaxScanAgeMillis);
+        updatePasspointWifiEntryScans(scanResults);
+        updateOsuWifiEntryScans(scanResults);
         updateWifiEntries();
     }
 
@@ -344,13 +681,64 @@ public class WifiPickerTracker extends BaseWifiTracker {
         updateWifiEntries();
     }
 
+    @WorkerThread
+    @Override
+    @NonNull
+    protected List<ScanResult> getDisplayedScanResults() {
+        final List<ScanResult> scanResults = new ArrayList<>();
+        for (StandardWifiEntry entry : mStandardWifiEntryCache) {
+            scanResults.addAll(entry.getMatchingScanResults());
+        }
+        for (StandardWifiEntry entry : mSuggestedWifiEntryCache) {
+            scanResults.addAll(entry.getMatchingScanResults());
+        }
+        for (StandardWifiEntry entry : mKnownNetworkEntryCache) {
+            scanResults.addAll(entry.getMatchingScanResults());
+        }
+        if (mNetworkRequestEntry != null) {
+            scanResults.addAll(mNetworkRequestEntry.getMatchingScanResults());
+        }
+        return scanResults;
+    }
+
     @WorkerThread
     @Override
     protected void handleScanResultsAvailableAction(@NonNull Intent intent) {
         checkNotNull(intent, "Intent cannot be null!");
-        conditionallyUpdateScanResults(
+        if (mIsConnectedOnlyMode) {
+            return;
+        }
+        if (clearScanResultsIfWifiDisabled()) {
+            updateWifiEntries(WIFI_ENTRIES_CHANGED_REASON_SCAN_RESULTS);
+            return;
+        }
+        final List<ScanResult> scanResults = updateScanResults(
                 intent.getBooleanExtra(WifiManager.EXTRA_RESULTS_UPDATED, true));
-        updateWifiEntries(WIFI_ENTRIES_CHANGED_REASON_SCAN_RESULTS);
+        // Grouping the standard and suggested entries is not deferred, since these are the newest
+        // scan results and getWifiEntries() should reflect them as soon as this returns.
+        updateWifiEntryScans(scanResults, false /* matchPasspoint */);
+        // The Passpoint and OSU matching takes binder calls, so let any pending connection events
+        // be handled first. The remaining stages are cancelled if newer scan results arrive
+        // before they run.
+        final boolean isDeferred = !runScanResultsStages(getScanResultsGeneration(),
+                () -> updatePasspointWifiEntryScans(scanResults),
+                () -> updateOsuWifiEntryScans(scanResults),
+                () -> updateWifiEntries(WIFI_ENTRIES_CHANGED_REASON_SCAN_RESULTS));
+        if (isDeferred) {
+            // Publish the grouped entries in the meantime. This is the only publish of a cycle
+            // whose deferred stages end up superseded; the newest cycle publishes again once its
+            // Passpoint and OSU entries are matched.
+            updateWifiEntries(WIFI_ENTRIES_CHANGED_REASON_SCAN_RESULTS);
+        }
+    }
+
+    @WorkerThread
+    @Override
+    protected void handlePartialScanResults() {
+        // Defer the Passpoint and OSU matching, which takes binder calls, to the complete results.
+        updateWifiEntryScans(mScanResultUpdater.getScanResults(mMaxScanAgeMillis),
+                false /* matchPasspoint */);
+        updateWifiEntries(WIFI_ENTRIES_CHANGED_REASON_PARTIAL_SCAN_RESULTS);
     }
 
     @WorkerThread
@@ -367,7 +755,9 @@ public class WifiPickerTracker extends BaseWifiTracker {
         updateWifiConfigurations(mWifiManager.getPrivilegedConfiguredNetworks());
         updatePasspointConfigurations(mWifiManager.getPasspointConfigurations());
         // Update scans since config changes may result in different entries being shown.
-        conditionallyUpdateScanResults(false /* lastScanSucceeded */);
+        if (!mIsConnectedOnlyMode) {
+            conditionallyUpdateScanResults(false /* lastScanSucceeded */);
+        }
         notifyOnNumSavedNetworksChanged();
         notifyOnNumSavedSubscriptionsChanged();
         updateWifiEntries();
@@ -554,6 +944,7 @@ public class WifiPickerTracker extends BaseWifiTracker {
     }
 
     protected void updateWifiEntries(@WifiEntriesChangedReason int reason) {
+        final WifiEntryColumns columns;
         synchronized (mLock) {
             mActiveWifiEntries.clear();
             mActiveWifiEntries.addAll(mStandardWifiEntryCache);
@@ -579,88 +970,20 @@ public class WifiPickerTracker extends BaseWifiTracker {
                     ((StandardWifiEntry) entry).getStandardWifiEntryKey().getScanResultKey()));
             mActiveWifiEntries.sort(WifiEntry.WIFI_PICKER_COMPARATOR);
             mWifiEntries.clear();
-            final Set<ScanResultKey> scanResultKeysWithVisibleSuggestions =
-                    mSuggestedWifiEntryCache.stream()
-                            .filter(entry -> {
-                                if (entry.isUserShareable()) return true;
-                                synchronized (mLock) {
-                                    return mActiveWifiEntries.contains(entry);
-                                }
-                            })
-                            .map(entry -> entry.getStandardWifiEntryKey().getScanResultKey())
-                            .collect(Collectors.toSet());
-            Set<String> passpointUtf8Ssids = new ArraySet<>();
-            for (PasspointWifiEntry passpointWifiEntry : mPasspointWifiEntryCache.values()) {
-                passpointUtf8Ssids.addAll(passpointWifiEntry.getAllUtf8Ssids());
-            }
-            Set<ScanResultKey> knownNetworkKeys = new ArraySet<>();
-            for (KnownNetworkEntry knownNetworkEntry : mKnownNetworkEntryCache) {
-                knownNetworkKeys.add(
-                        knownNetworkEntry.getStandardWifiEntryKey().getScanResultKey());
-            }
-            Set<ScanResultKey> hotspotNetworkKeys = new ArraySet<>();
-            for (HotspotNetworkEntry hotspotNetworkEntry : mHotspotNetworkEntryCache) {
-                if (!hotspotNetworkEntry.getHotspotNetworkEntryKey().isVirtualEntry()) {
-                    hotspotNetworkKeys.add(
-                            hotspotNetworkEntry.getHotspotNetworkEntryKey().getScanResultKey());
-                }
-            }
-            Set<ScanResultKey> savedEntryKeys = new ArraySet<>();
-            for (StandardWifiEntry entry : mStandardWifiEntryCache) {
-                entry.updateAdminRestrictions();
-                if (mActiveWifiEntries.contains(entry)) {
-                    continue;
-                }
-                if (!entry.isSaved()) {
-                    if (scanResultKeysWithVisibleSuggestions
-                            .contains(entry.getStandardWifiEntryKey().getScanResultKey())) {
-                        continue;
-                    }
-                    // Filter out any unsaved entries that are already provisioned with Passpoint
-                    if (passpointUtf8Ssids.contains(entry.getSsid())) {
-                        continue;
-                    }
-                    if (mInjector.isSharedConnectivityFeatureEnabled()) {
-                        // Filter out any unsaved entries that are matched with a KnownNetworkEntry
-                        if (knownNetworkKeys
-                                .contains(entry.getStandardWifiEntryKey().getScanResultKey())) {
-                            continue;
-                        }
-                    }
-                } else {
-                    // Create a set of saved entry keys
-                    savedEntryKeys.add(entry.getStandardWifiEntryKey().getScanResultKey());
-                }
-                if (mInjector.isSharedConnectivityFeatureEnabled()) {
-                    // Filter out any entries that are matched with a HotspotNetworkEntry
-                    if (hotspotNetworkKeys
-                            .contains(entry.getStandardWifiEntryKey().getScanResultKey())) {
-                        continue;
-                    }
-                }
-                mWifiEntries.add(entry);
+            if (!mIsConnectedOnlyMode) {
+                updateInactiveWifiEntries();
             }
-            mWifiEntries.addAll(mSuggestedWifiEntryCache.stream().filter(entry ->
-                    entry.getConnectedState() == CONNECTED_STATE_DISCONNECTED
-                            && entry.isUserShareable()).collect(toList()));
-            mWifiEntries.addAll(mPasspointWifiEntryCache.values().stream().filter(entry ->
-                    entry.getConnectedState() == CONNECTED_STATE_DISCONNECTED).collect(toList()));
-            mWifiEntries.addAll(mOsuWifiEntryCache.values().stream().filter(entry ->
-                    entry.getConnectedState() == CONNECTED_STATE_DISCONNECTED
-                            && !entry.isAlreadyProvisioned()).collect(toList()));
-            mWifiEntries.addAll(getContextualWifiEntries().stream().filter(entry ->
-                    entry.getConnectedState() == CONNECTED_STATE_DISCONNECTED).collect(toList()));
-            if (mInjector.isSharedConnectivityFeatureEnabled()) {
-                mWifiEntries.addAll(mKnownNetworkEntryCache.stream().filter(entry ->
-                        (entry.getConnectedState() == CONNECTED_STATE_DISCONNECTED)
-                                && !(savedEntryKeys.contains(
-                                entry.getStandardWifiEntryKey().getScanResultKey()))).collect(
-                        toList()));
-                mWifiEntries.addAll(mHotspotNetworkEntryCache.stream().filter(entry ->
-                        entry.getConnectedState() == CONNECTED_STATE_DISCONNECTED).collect(
-                        toList()));
-            }
-            Collections.sort(mWifiEntries, WifiEntry.WIFI_PICKER_COMPARATOR);
+            mWifiEntryColumns = WifiEntryColumns.create(mActiveWifiEntries, mWifiEntries,
+                    mWifiEntryColumns);
+            columns = mWifiEntryColumns;
+            final List<WifiEntry> rowWifiEntries =
+                    new ArrayList<>(mActiveWifiEntries.size() + mWifiEntries.size());
+            rowWifiEntries.addAll(mActiveWifiEntries);
+            rowWifiEntries.addAll(mWifiEntries);
+            mSearchIndex = WifiEntrySearchIndex.create(mSearchIndex, mWifiEntryColumns,
+                    rowWifiEntries);
+            mHasLiveWifiEntries = true;
+            mStaleSnapshot = null;
             if (isVerboseLoggingEnabled()) {
                 Log.v(TAG, "onWifiEntriesChanged: reason=" + reason);
                 StringJoiner entryLog = new StringJoiner("\n");
@@ -678,9 +1001,143 @@ public class WifiPickerTracker extends BaseWifiTracker {
                 Log.v(TAG, "MergedCarrierEntry: " + mMergedCarrierEntry);
             }
         }
+        persistSnapshot(columns);
         notifyOnWifiEntriesChanged(reason);
+        updateSearchResults();
+    }
+
+    /**
+     * Notifies the listeners if the results of the current search query changed since they were
+     * last reported.
+     */
+    @WorkerThread
+    private void updateSearchResults() {
+        final String query = mSearchQuery;
+        final List<String> resultKeys;
+        if (query == null) {
+            resultKeys = Collections.emptyList();
+        } else {
+            resultKeys = searchWifiEntries(query).stream()
+                    .map(WifiEntry::getKey)
+                    .collect(toList());
+        }
+        if (resultKeys.equals(mLastSearchResultKeys)) {
+            return;
+        }
+        mLastSearchResultKeys = resultKeys;
+        notifyListenersConflated("onSearchResultsChanged",
+                listener -> ((WifiPickerTrackerCallback) listener).onSearchResultsChanged());
+    }
+
+
+    /**
+     * Fills the list returned by getWifiEntries() with the entries which are not active, sorted
+     * in picker order.
+     */
+    @GuardedBy("mLock")
+    private void updateInactiveWifiEntries() {
+        final Set<ScanResultKey> scanResultKeysWithVisibleSuggestions =
+                mSuggestedWifiEntryCache.stream()
+                        .filter(entry -> {
+                            if (entry.isUserShareable()) return true;
+                            synchronized (mLock) {
+                                return mActiveWifiEntries.contains(entry);
+                            }
+                        })
+                        .map(entry -> entry.getStandardWifiEntryKey().getScanResultKey())
+                        .collect(Collectors.toSet());
+        Set<String> passpointUtf8Ssids = new ArraySet<>();
+        for (PasspointWifiEntry passpointWifiEntry : mPasspointWifiEntryCache.values()) {
+            passpointUtf8Ssids.addAll(passpointWifiEntry.getAllUtf8Ssids());
+        }
+        Set<ScanResultKey> knownNetworkKeys = new ArraySet<>();
+        for (KnownNetworkEntry knownNetworkEntry : mKnownNetworkEntryCache) {
+            knownNetworkKeys.add(
+                    knownNetworkEntry.getStandardWifiEntryKey().getScanResultKey());
+        }
+        Set<ScanResultKey> hotspotNetworkKeys = new ArraySet<>();
+        for (HotspotNetworkEntry hotspotNetworkEntry : mHotspotNetworkEntryCache) {
+            if (!hotspotNetworkEntry.getHotspotNetworkEntryKey().isVirtualEntry()) {
+                hotspotNetworkKeys.add(
+                        hotspotNetworkEntry.getHotspotNetworkEntryKey().getScanResultKey());
+            }
+        }
+        Set<ScanResultKey> savedEntryKeys = new ArraySet<>();
+        for (StandardWifiEntry entry : mStandardWifiEntryCache) {
+            entry.updateAdminRestrictions();
+            if (mActiveWifiEntries.contains(entry)) {
+                continue;
+            }
+            if (!entry.isSaved()) {
+                if (scanResultKeysWithVisibleSuggestions
+                        .contains(entry.getStandardWifiEntryKey().getScanResultKey())) {
+                    continue;
+                }
+                // Filter out any unsaved entries that are already provisioned with Passpoint
+                if (passpointUtf8Ssids.contains(entry.getSsid())) {
+                    continue;
+                }
+                if (mInjector.isSharedConnectivityFeatureEnabled()) {
+                    // Filter out any unsaved entries that are matched with a KnownNetworkEntry
+                    if (knownNetworkKeys
+                            .contains(entry.getStandardWifiEntryKey().getScanResultKey())) {
+                        continue;
+                    }
+                }
+            } else {
+                // Create a set of saved entry keys
+                savedEntryKeys.add(entry.getStandardWifiEntryKey().getScanResultKey());
+            }
+            if (mInjector.isSharedConnectivityFeatureEnabled()) {
+                // Filter out any entries that are matched with a HotspotNetworkEntry
+                if (hotspotNetworkKeys
+                        .contains(entry.getStandardWifiEntryKey().getScanResultKey())) {
+                    continue;
+                }
+            }
+            mWifiEntries.add(entry);
+        }
+        mWifiEntries.addAll(mSuggestedWifiEntryCache.stream().filter(entry ->
+                entry.getConnectedState() == CONNECTED_STATE_DISCONNECTED
+                        && entry.isUserShareable()).collect(toList()));
+        mWifiEntries.addAll(mPasspointWifiEntryCache.values().stream().filter(entry ->
+                entry.getConnectedState() == CONNECTED_STATE_DISCONNECTED).collect(toList()));
+        mWifiEntries.addAll(mOsuWifiEntryCache.values().stream().filter(entry ->
+                entry.getConnectedState() == CONNECTED_STATE_DISCONNECTED
+                        && !entry.isAlreadyProvisioned()).collect(toList()));
+        mWifiEntries.addAll(getContextualWifiEntries().stream().filter(entry ->
+                entry.getConnectedState() == CONNECTED_STATE_DISCONNECTED).collect(toList()));
+        if (mInjector.isSharedConnectivityFeatureEnabled()) {
+            mWifiEntries.addAll(mKnownNetworkEntryCache.stream().filter(entry ->
+                    (entry.getConnectedState() == CONNECTED_STATE_DISCONNECTED)
+                            && !(savedEntryKeys.contains(
+                            entry.getStandardWifiEntryKey().getScanResultKey()))).collect(
+                    toList()));
+            mWifiEntries.addAll(mHotspotNetworkEntryCache.stream().filter(entry ->
+                    entry.getConnectedState() == CONNECTED_STATE_DISCONNECTED).collect(
+                    toList()));
+        }
+        Collections.sort(mWifiEntries, WifiEntry.WIFI_PICKER_COMPARATOR);
     }
 
+    /**
+     * Submits a snapshot of the sorted WifiEntries, read from their published columns, to the
+     * snapshot store if persistence is enabled. Empty lists and lists published before the scans
+     * were fetched are not persisted so that the last useful snapshot is kept.
+     */
+    @WorkerThread
+    private void persistSnapshot(@NonNull WifiEntryColumns columns) {
+        final WifiPickerSnapshotStore snapshotStore = mSnapshotStore;
+        if (snapshotStore == null || mIsConnectedOnlyMode || mIsFetchingStartScans
+                || columns.getRowCount() == 0) {
+            return;
+        }
+        final List<WifiPickerSnapshot.Entry> entries = new ArrayList<>(columns.getRowCount());
+        for (int row = 0; row < columns.getRowCount(); row++) {
+            entries.add(new WifiPickerSnapshot.Entry(columns, row));
+        }
+        snapshotStore.write(new WifiPickerSnapshot(mClock.millis(), entries));
+    }
 
     /**
      * Update the list returned by getWifiEntries() with the current states of the entry caches.
@@ -765,7 +1222,9 @@ public class WifiPickerTracker extends BaseWifiTracker {
             final ScanResultKey scanKey = entry.getStandardWifiEntryKey().getScanResultKey();
             newScanKeys.remove(scanKey);
             // Update scan results if available, or set to null.
-            entry.updateScanResultInfo(scanResultsByKey.get(scanKey));
+            if (!entry.updateScanResultInfo(scanResultsByKey.get(scanKey))) {
+                mNumDroppedEntryScanUpdatesInCycle++;
+            }
         });
         // Create new StandardWifiEntry objects for each leftover group of scan results.
         for (ScanResultKey scanKey: newScanKeys) {
@@ -813,7 +1272,9 @@ public class WifiPickerTracker extends BaseWifiTracker {
             final StandardWifiEntryKey entryKey = entry.getStandardWifiEntryKey();
             seenEntryKeys.add(entryKey);
             // Update scan results if available, or set to null.
-            entry.updateScanResultInfo(scanResultsByKey.get(entryKey.getScanResultKey()));
+            if (!entry.updateScanResultInfo(scanResultsByKey.get(entryKey.getScanResultKey()))) {
+                mNumDroppedEntryScanUpdatesInCycle++;
+            }
             entry.setUserShareable(userSharedEntryKeys.contains(entryKey));
         });
         // Create new StandardWifiEntry objects for each leftover config with scan results.
@@ -960,7 +1421,9 @@ public class WifiPickerTracker extends BaseWifiTracker {
             final ScanResultKey scanKey = entry.getStandardWifiEntryKey().getScanResultKey();
             newScanKeys.remove(scanKey);
             // Update scan results if available, or set to null.
-            entry.updateScanResultInfo(scanResultsByKey.get(scanKey));
+            if (!entry.updateScanResultInfo(scanResultsByKey.get(scanKey))) {
+                mNumDroppedEntryScanUpdatesInCycle++;
+            }
         });
 
         // Get network and capabilities if new network entries are being created
@@ -1066,7 +1529,9 @@ public class WifiPickerTracker extends BaseWifiTracker {
         List<ScanResult> matchedScans = scanResults.stream()
                 .filter(scan -> scanKey.equals(new ScanResultKey(scan)))
                 .collect(toList());
-        mNetworkRequestEntry.updateScanResultInfo(matchedScans);
+        if (!mNetworkRequestEntry.updateScanResultInfo(matchedScans)) {
+            mNumDroppedEntryScanUpdatesInCycle++;
+        }
     }
 
     /**
@@ -1075,6 +1540,38 @@ public class WifiPickerTracker extends BaseWifiTracker {
      */
     @WorkerThread
     private void conditionallyUpdateScanResults(boolean lastScanSucceeded) {
+        if (clearScanResultsIfWifiDisabled()) {
+            return;
+        }
+        updateWifiEntryScans(updateScanResults(lastScanSucceeded), true /* matchPasspoint */);
+    }
+
+    /**
+     * Caches the new scans if the last scan succeeded, and returns the cached scans to update the
+     * WifiEntries with.
+     */
+    @WorkerThread
+    @NonNull
+    private List<ScanResult> updateScanResults(boolean lastScanSucceeded) {
+        long scanAgeWindow = mMaxScanAgeMillis;
+        if (lastScanSucceeded) {
+            // Scan succeeded, cache new scans
+            mScanResultUpdater.update(fetchScanResults());
+        } else {
+            // Scan failed, increase scan age window to prevent WifiEntry list from
+            // clearing prematurely.
+            scanAgeWindow += mScanIntervalMillis;
+        }
+        return mScanResultUpdater.getScanResults(scanAgeWindow);
+    }
+
+    /**
+     * Clears the scans of all WifiEntries if Wi-Fi is disabled.
+     *
+     * @return true if Wi-Fi is disabled.
+     */
+    @WorkerThread
+    private boolean clearScanResultsIfWifiDisabled() {
         if (mWifiManager.getWifiState() == WifiManager.WIFI_STATE_DISABLED) {
             updateStandardWifiEntryScans(Collections.emptyList());
             updateSuggestedWifiEntryScans(Collections.emptyList());
@@ -1086,24 +1583,27 @@ public class WifiPickerTracker extends BaseWifiTracker {
             }
             updateNetworkRequestEntryScans(Collections.emptyList());
             updateContextualWifiEntryScans(Collections.emptyList());
-            return;
-        }
-
-        long scanAgeWindow = mMaxScanAgeMillis;
-        if (lastScanSucceeded) {
-            // Scan succeeded, cache new scans
-            mScanResultUpdater.update(mWifiManager.getScanResults());
-        } else {
-            // Scan failed, increase scan age window to prevent WifiEntry list from
-            // clearing prematurely.
-            scanAgeWindow += mScanIntervalMillis;
+            return true;
         }
+        return false;
+    }
 
-        List<ScanResult> scanResults = mScanResultUpdater.getScanResults(scanAgeWindow);
+    /**
+     * Updates the WifiEntries with the given scans.
+     *
+     * @param matchPasspoint whether to also match the scans against the Passpoint and OSU
+     *                       providers, which takes additional binder calls.
+     */
+    @WorkerThread
+    private void updateWifiEntryScans(@NonNull List<ScanResult> scanResults,
+            boolean matchPasspoint) {
+        mNumDroppedEntryScanUpdatesInCycle = 0;
         updateStandardWifiEntryScans(scanResults);
         updateSuggestedWifiEntryScans(scanResults);
-        updatePasspointWifiEntryScans(scanResults);
-        updateOsuWifiEntryScans(scanResults);
+        if (matchPasspoint) {
+            updatePasspointWifiEntryScans(scanResults);
+            updateOsuWifiEntryScans(scanResults);
+        }
         if (mInjector.isSharedConnectivityFeatureEnabled() && BuildCompat.isAtLeastU()) {
             updateKnownNetworkEntryScans(scanResults);
             // Updating the hotspot entries here makes the UI more reliable when switching pages or
@@ -1112,6 +1612,7 @@ public class WifiPickerTracker extends BaseWifiTracker {
         }
         updateNetworkRequestEntryScans(scanResults);
         updateContextualWifiEntryScans(scanResults);
+        mNumDroppedEntryScanUpdates = mNumDroppedEntryScanUpdatesInCycle;
     }
 
     /**
@@ -1123,58 +1624,161 @@ public class WifiPickerTracker extends BaseWifiTracker {
     @WorkerThread
     private void updateWifiConfigurations(@NonNull List<WifiConfiguration> configs) {
         checkNotNull(configs, "Config list should not be null!");
-        mStandardWifiConfigCache.clear();
-        mSuggestedConfigCache.clear();
-        mNetworkRequestConfigCache.clear();
-        for (WifiConfiguration config : configs) {
-            if (config.carrierMerged) {
-                continue;
+        final WifiConfigurationDiffer.Diff diff = mWifiConfigurationDiffer.update(configs);
+        // Keys of the configs that changed, or null if every entry should be updated.
+        final Set<StandardWifiEntryKey> changedKeys;
+        if (diff == null) {
+            mStandardWifiConfigCache.clear();
+            mSuggestedConfigCache.clear();
+            mNetworkRequestConfigCache.clear();
+            mPasspointWifiConfigCache.clear();
+            mConfigKeysByNetworkId.clear();
+            final SparseBooleanArray savedNetworkIds = new SparseBooleanArray();
+            for (WifiConfiguration config : configs) {
+                addToConfigCaches(config);
+                if (isSavedNetworkConfig(config)) {
+                    savedNetworkIds.put(config.networkId, true);
+                }
+            }
+            mNumSavedNetworks = savedNetworkIds.size();
+            changedKeys = null;
+        } else {
+            if (diff.isEmpty()) {
+                return;
             }
-            StandardWifiEntryKey standardWifiEntryKey =
-                    new StandardWifiEntryKey(config, true /* isTargetingNewNetworks */);
-            if (config.isPasspoint()) {
-                mPasspointWifiConfigCache.put(config.networkId, config);
-            } else if (config.fromWifiNetworkSuggestion) {
-                if (!mSuggestedConfigCache.containsKey(standardWifiEntryKey)) {
-                    mSuggestedConfigCache.put(standardWifiEntryKey, new ArrayList<>());
+            changedKeys = new ArraySet<>();
+            // The networkIds are unique here, so each saved config counts once.
+            for (WifiConfiguration config : diff.removedConfigs) {
+                final StandardWifiEntryKey key = removeFromConfigCaches(config);
+                if (key != null) {
+                    changedKeys.add(key);
                 }
-                mSuggestedConfigCache.get(standardWifiEntryKey).add(config);
-            } else if (config.fromWifiNetworkSpecifier) {
-                if (!mNetworkRequestConfigCache.containsKey(standardWifiEntryKey)) {
-                    mNetworkRequestConfigCache.put(standardWifiEntryKey, new ArrayList<>());
+                if (isSavedNetworkConfig(config)) {
+                    mNumSavedNetworks--;
                 }
-                mNetworkRequestConfigCache.get(standardWifiEntryKey).add(config);
-            } else {
-                if (!mStandardWifiConfigCache.containsKey(standardWifiEntryKey)) {
-                    mStandardWifiConfigCache.put(standardWifiEntryKey, new ArrayList<>());
+            }
+            for (WifiConfiguration config : diff.addedConfigs) {
+                final StandardWifiEntryKey key = addToConfigCaches(config);
+                if (key != null) {
+                    changedKeys.add(key);
+                }
+                if (isSavedNetworkConfig(config)) {
+                    mNumSavedNetworks++;
                 }
-                mStandardWifiConfigCache.get(standardWifiEntryKey).add(config);
             }
+            notifyOnWifiConfigurationsChanged(diff.changeReasons);
         }
-        mNumSavedNetworks = (int) mStandardWifiConfigCache.values().stream()
-                .flatMap(List::stream)
-                .filter(config -> !config.isEphemeral())
-                .map(config -> config.networkId)
-                .distinct()
-                .count();
 
         // Iterate through current entries and update each entry's config
-        mStandardWifiEntryCache.forEach(entry ->
-                entry.updateConfig(mStandardWifiConfigCache.get(entry.getStandardWifiEntryKey())));
+        mStandardWifiEntryCache.forEach(entry -> {
+            final StandardWifiEntryKey key = entry.getStandardWifiEntryKey();
+            if (changedKeys == null || changedKeys.contains(key)) {
+                entry.updateConfig(mStandardWifiConfigCache.get(key));
+            }
+        });
 
         // Iterate through current suggestion entries and update each entry's config
         mSuggestedWifiEntryCache.removeIf(entry -> {
-            entry.updateConfig(mSuggestedConfigCache.get(entry.getStandardWifiEntryKey()));
+            final StandardWifiEntryKey key = entry.getStandardWifiEntryKey();
+            if (changedKeys != null && !changedKeys.contains(key)) {
+                return false;
+            }
+            entry.updateConfig(mSuggestedConfigCache.get(key));
             // Remove if the suggestion does not have a config anymore.
             return !entry.isSuggestion();
         });
-        // Update suggestion scans to make sure we mark which suggestions are user-shareable.
-        updateSuggestedWifiEntryScans(mScanResultUpdater.getScanResults());
+        if (changedKeys == null || diff.addedConfigs.stream().anyMatch(
+                config -> config.fromWifiNetworkSuggestion)) {
+            // Update suggestion scans to make sure we mark which suggestions are user-shareable.
+            updateSuggestedWifiEntryScans(mScanResultUpdater.getScanResults());
+        }
 
         if (mNetworkRequestEntry != null) {
-            mNetworkRequestEntry.updateConfig(
-                    mNetworkRequestConfigCache.get(mNetworkRequestEntry.getStandardWifiEntryKey()));
+            final StandardWifiEntryKey key = mNetworkRequestEntry.getStandardWifiEntryKey();
+            if (changedKeys == null || changedKeys.contains(key)) {
+                mNetworkRequestEntry.updateConfig(mNetworkRequestConfigCache.get(key));
+            }
+        }
+    }
+
+    /**
+     * Returns the config cache that the given config belongs in, or null if it is not cached by
+     * StandardWifiEntryKey.
+     */
+    @Nullable
+    private Map<StandardWifiEntryKey, List<WifiConfiguration>> getConfigCache(
+            @NonNull WifiConfiguration config) {
+        if (config.carrierMerged || config.isPasspoint()) {
+            return null;
+        } else if (config.fromWifiNetworkSuggestion) {
+            return mSuggestedConfigCache;
+        } else if (config.fromWifiNetworkSpecifier) {
+            return mNetworkRequestConfigCache;
+        }
+        return mStandardWifiConfigCache;
+    }
+
+    /**
+     * Adds the config to its cache.
+     *
+     * @return the key of the entry for the config, or null if the config is not for a
+     *         StandardWifiEntry.
+     */
+    @Nullable
+    private StandardWifiEntryKey addToConfigCaches(@NonNull WifiConfiguration config) {
+        if (config.carrierMerged) {
+            return null;
+        }
+        if (config.isPasspoint()) {
+            mPasspointWifiConfigCache.put(config.networkId, config);
+            return null;
+        }
+        final StandardWifiEntryKey key =
+                new StandardWifiEntryKey(config, true /* isTargetingNewNetworks */);
+        final Map<StandardWifiEntryKey, List<WifiConfiguration>> cache = getConfigCache(config);
+        if (!cache.containsKey(key)) {
+            cache.put(key, new ArrayList<>());
+        }
+        cache.get(key).add(config);
+        mConfigKeysByNetworkId.put(config.networkId, key);
+        return key;
+    }
+
+    /**
+     * Removes the previously added config from its cache.
+     *
+     * @return the key of the entry for the config, or null if the config is not for a
+     *         StandardWifiEntry.
+     */
+    @Nullable
+    private StandardWifiEntryKey removeFromConfigCaches(@NonNull WifiConfiguration config) {
+        if (config.carrierMerged) {
+            return null;
         }
+        if (config.isPasspoint()) {
+            mPasspointWifiConfigCache.remove(config.networkId);
+            return null;
+        }
+        final StandardWifiEntryKey key =
+                new StandardWifiEntryKey(config, true /* isTargetingNewNetworks */);
+        final Map<StandardWifiEntryKey, List<WifiConfiguration>> cache = getConfigCache(config);
+        final List<WifiConfiguration> cachedConfigs = cache.get(key);
+        if (cachedConfigs != null) {
+            cachedConfigs.remove(config);
+            if (cachedConfigs.isEmpty()) {
+                cache.remove(key);
+            }
+        }
+        mConfigKeysByNetworkId.remove(config.networkId);
+        return key;
+    }
+
+    /**
+     * Returns whether the config counts towards getNumSavedNetworks().
+     */
+    private static boolean isSavedNetworkConfig(@NonNull WifiConfiguration config) {
+        return !config.carrierMerged && !config.isPasspoint() && !config.fromWifiNetworkSuggestion
+                && !config.fromWifiNetworkSpecifier && !config.isEphemeral();
     }
 
     @WorkerThread
@@ -1232,18 +1836,9 @@ public class WifiPickerTracker extends BaseWifiTracker {
      */
     @WorkerThread
     private void conditionallyCreateConnectedNetworkRequestEntry(@NonNull WifiInfo wifiInfo) {
-        final List<WifiConfiguration> matchingConfigs = new ArrayList<>();
-
-        if (wifiInfo != null) {
-            for (int i = 0; i < mNetworkRequestConfigCache.size(); i++) {
-                final List<WifiConfiguration> configs = mNetworkRequestConfigCache.valueAt(i);
-                if (!configs.isEmpty() && configs.get(0).networkId == wifiInfo.getNetworkId()) {
-                    matchingConfigs.addAll(configs);
-                    break;
-                }
-            }
-        }
-        if (matchingConfigs.isEmpty()) {
+        final List<WifiConfiguration> matchingConfigs =
+                getCachedConfigsForNetworkId(mNetworkRequestConfigCache, wifiInfo);
+        if (matchingConfigs == null) {
             return;
         }
 
@@ -1253,7 +1848,7 @@ public class WifiPickerTracker extends BaseWifiTracker {
                 || !mNetworkRequestEntry.getStandardWifiEntryKey().equals(entryKey)) {
             mNetworkRequestEntry = new NetworkRequestEntry(mInjector, mMainHandler,
                     entryKey, mWifiManager, false /* forSavedNetworksPage */);
-            mNetworkRequestEntry.updateConfig(matchingConfigs);
+            mNetworkRequestEntry.updateConfig(new ArrayList<>(matchingConfigs));
             updateNetworkRequestEntryScans(mScanResultUpdater.getScanResults());
         }
     }
@@ -1268,28 +1863,23 @@ public class WifiPickerTracker extends BaseWifiTracker {
             return;
         }
 
-        final int connectedNetId = wifiInfo.getNetworkId();
-        for (List<WifiConfiguration> configs : mStandardWifiConfigCache.values()) {
-            // List of configs match as long as one of them matches the connected network ID.
-            if (configs.stream()
-                    .map(config -> config.networkId)
-                    .filter(networkId -> networkId == connectedNetId)
-                    .count() == 0) {
-                continue;
-            }
-            final StandardWifiEntryKey entryKey =
-                    new StandardWifiEntryKey(configs.get(0), true /* isTargetingNewNetworks */);
-            for (StandardWifiEntry existingEntry : mStandardWifiEntryCache) {
-                if (entryKey.equals(existingEntry.getStandardWifiEntryKey())) {
-                    return;
-                }
-            }
-            final StandardWifiEntry connectedEntry =
-                    new StandardWifiEntry(mInjector, mMainHandler, entryKey, configs,
-                            null, mWifiManager, false /* forSavedNetworksPage */);
-            mStandardWifiEntryCache.add(connectedEntry);
+        // List of configs match as long as one of them matches the connected network ID.
+        final List<WifiConfiguration> configs =
+                getCachedConfigsForNetworkId(mStandardWifiConfigCache, wifiInfo);
+        if (configs == null) {
             return;
         }
+        final StandardWifiEntryKey entryKey =
+                mConfigKeysByNetworkId.get(wifiInfo.getNetworkId());
+        for (StandardWifiEntry existingEntry : mStandardWifiEntryCache) {
+            if (entryKey.equals(existingEntry.getStandardWifiEntryKey())) {
+                return;
+            }
+        }
+        final StandardWifiEntry connectedEntry =
+                new StandardWifiEntry(mInjector, mMainHandler, entryKey, configs,
+                        null, mWifiManager, false /* forSavedNetworksPage */);
+        mStandardWifiEntryCache.add(connectedEntry);
     }
 
     /**
@@ -1301,24 +1891,53 @@ public class WifiPickerTracker extends BaseWifiTracker {
         if (wifiInfo == null || wifiInfo.isPasspointAp() || wifiInfo.isOsuAp()) {
             return;
         }
-        final int connectedNetId = wifiInfo.getNetworkId();
-        for (List<WifiConfiguration> configs : mSuggestedConfigCache.values()) {
-            if (configs.isEmpty() || configs.get(0).networkId != connectedNetId) {
-                continue;
+        final List<WifiConfiguration> configs =
+                getCachedConfigsForNetworkId(mSuggestedConfigCache, wifiInfo);
+        if (configs == null) {
+            return;
+        }
+        final StandardWifiEntryKey entryKey =
+                mConfigKeysByNetworkId.get(wifiInfo.getNetworkId());
+        for (StandardWifiEntry existingEntry : mSuggestedWifiEntryCache) {
+            if (entryKey.equals(existingEntry.getStandardWifiEntryKey())) {
+                return;
             }
-            final StandardWifiEntryKey entryKey =
-                    new StandardWifiEntryKey(configs.get(0), true /* isTargetingNewNetworks */);
-            for (StandardWifiEntry existingEntry : mSuggestedWifiEntryCache) {
-                if (entryKey.equals(existingEntry.getStandardWifiEntryKey())) {
-                    return;
-                }
+        }
+        final StandardWifiEntry connectedEntry =
+                new StandardWifiEntry(mInjector, mMainHandler, entryKey, configs,
+                        null, mWifiManager, false /* forSavedNetworksPage */);
+        mSuggestedWifiEntryCache.add(connectedEntry);
+    }
+
+    /**
+     * Returns the cached configs sharing an entry with the config of the WifiInfo's network id,
+     * or null if the given cache has no config with that network id.
+     */
+    @WorkerThread
+    @Nullable
+    private List<WifiConfiguration> getCachedConfigsForNetworkId(
+            @NonNull Map<StandardWifiEntryKey, List<WifiConfiguration>> configCache,
+            @Nullable WifiInfo wifiInfo) {
+        if (wifiInfo == null) {
+            return null;
+        }
+        final int networkId = wifiInfo.getNetworkId();
+        final StandardWifiEntryKey key = mConfigKeysByNetworkId.get(networkId);
+        if (key == null) {
+            return null;
+        }
+        final List<WifiConfiguration> configs = configCache.get(key);
+        if (configs == null) {
+            return null;
+        }
+        // Other caches may hold configs with the same key, so make sure that the network id
+        // belongs to this cache.
+        for (WifiConfiguration config : configs) {
+            if (config.networkId == networkId) {
+                return configs;
             }
-            final StandardWifiEntry connectedEntry =
-                    new StandardWifiEntry(mInjector, mMainHandler, entryKey, configs,
-                            null, mWifiManager, false /* forSavedNetworksPage */);
-            mSuggestedWifiEntryCache.add(connectedEntry);
-            return;
         }
+        return null;
     }
 
     /**
@@ -1361,9 +1980,25 @@ public class WifiPickerTracker extends BaseWifiTracker {
      */
     @WorkerThread
     private void notifyOnWifiEntriesChanged(@WifiEntriesChangedReason int reason) {
-        if (mListener != null) {
-            mMainHandler.post(() -> mListener.onWifiEntriesChanged(reason));
+        notifyListenersConflated("onWifiEntriesChanged", reason,
+                WifiPickerTracker::mergeWifiEntriesChangedReasons,
+                (listener, mergedReason) -> ((WifiPickerTrackerCallback) listener)
+                        .onWifiEntriesChanged(mergedReason));
+    }
+
+    /**
+     * Returns the reason to report for two conflated onWifiEntriesChanged() callbacks. Full scan
+     * results take precedence over general changes, which take precedence over partial scan
+     * results, since the entries then reflect the most complete of the updates.
+     */
+    private static int mergeWifiEntriesChangedReasons(int pendingReason, int reason) {
+        if (pendingReason == WIFI_ENTRIES_CHANGED_REASON_PARTIAL_SCAN_RESULTS) {
+            return reason;
         }
+        if (reason == WIFI_ENTRIES_CHANGED_REASON_SCAN_RESULTS) {
+            return reason;
+        }
+        return pendingReason;
     }
 
     /**
@@ -1371,9 +2006,8 @@ public class WifiPickerTracker extends BaseWifiTracker {
      */
     @WorkerThread
     private void notifyOnNumSavedNetworksChanged() {
-        if (mListener != null) {
-            mMainHandler.post(mListener::onNumSavedNetworksChanged);
-        }
+        notifyListenersConflated("onNumSavedNetworksChanged",
+                listener -> ((WifiPickerTrackerCallback) listener).onNumSavedNetworksChanged());
     }
 
     /**
@@ -1381,21 +2015,24 @@ public class WifiPickerTracker extends BaseWifiTracker {
      */
     @WorkerThread
     private void notifyOnNumSavedSubscriptionsChanged() {
-        if (mListener != null) {
-            mMainHandler.post(mListener::onNumSavedSubscriptionsChanged);
-        }
+        notifyListenersConflated("onNumSavedSubscriptionsChanged",
+                listener -> ((WifiPickerTrackerCallback) listener)
+                        .onNumSavedSubscriptionsChanged());
     }
 
     @Retention(RetentionPolicy.SOURCE)
     @IntDef(value = {
             WIFI_ENTRIES_CHANGED_REASON_GENERAL,
             WIFI_ENTRIES_CHANGED_REASON_SCAN_RESULTS,
+            WIFI_ENTRIES_CHANGED_REASON_PARTIAL_SCAN_RESULTS,
     })
 
     public @interface WifiEntriesChangedReason {}
 
     public static final int WIFI_ENTRIES_CHANGED_REASON_GENERAL = 0;
     public static final int WIFI_ENTRIES_CHANGED_REASON_SCAN_RESULTS = 1;
+    // The entries were updated with the results received so far from a scan in progress.
+    public static final int WIFI_ENTRIES_CHANGED_REASON_PARTIAL_SCAN_RESULTS = 2;
 
     /**
      * Listener for changes to the list of visible WifiEntries as well as the number of saved
@@ -1439,5 +2076,23 @@ public class WifiPickerTracker extends BaseWifiTracker {
          */
         @MainThread
         void onNumSavedSubscriptionsChanged();
+
+        /**
+         * Called when a persisted snapshot of the WifiEntries last shown is restored on a cold
+         * start. The snapshot may be shown until the first call to onWifiEntriesChanged().
+         */
+        @MainThread
+        default void onStaleSnapshotRestored(@NonNull WifiPickerSnapshot snapshot) {
+            // Do nothing
+        }
+
+        /**
+         * Called when there are changes to
+         *      {@link #getSearchResults()}
+         */
+        @MainThread
+        default void onSearchResultsChanged() {
+            // Do nothing
+        }
     }
 }
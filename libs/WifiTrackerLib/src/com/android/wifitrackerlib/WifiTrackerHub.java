@@ -0,0 +1,508 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityDiagnosticsManager;
+import android.net.ConnectivityDiagnosticsManager.ConnectivityDiagnosticsCallback;
+import android.net.ConnectivityDiagnosticsManager.ConnectivityReport;
+import android.net.ConnectivityManager;
+import android.net.LinkProperties;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.wifi.ScanResult;
+import android.net.wifi.WifiManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.telephony.TelephonyManager;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.Log;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.GuardedBy;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Process-wide hub shared by all started BaseWifiTrackers.
+ *
+ * The hub holds a single set of broadcast, network and connectivity diagnostics registrations for
+ * as long as at least one tracker is attached, and forwards each event to the worker thread of
+ * every attached tracker. The registrations are made and removed on a single long-lived handler,
+ * so a tracker attaching right after the last one detached cancels the pending removal instead of
+ * racing with it. Each broadcast is only forwarded to the trackers whose IntentFilter has
+ * its action, and the receiver is registered for the actions of every attached tracker. Trackers
+ * attaching after the registrations were made are replayed the sticky broadcasts and the network
+ * state that the registrations initially delivered.
+ *
+ * The hub also shares the latest scan results of WifiManager between the trackers, and arbitrates
+ * scan requests so that concurrent trackers do not scan more often than their scan interval.
+ */
+class WifiTrackerHub {
+    private static final String TAG = "WifiTrackerHub";
+
+    private static final Object sInstanceLock = new Object();
+    @GuardedBy("sInstanceLock")
+    @Nullable private static WifiTrackerHub sInstance;
+
+    @NonNull private final Context mContext;
+    @NonNull private final WifiManager mWifiManager;
+    @NonNull private final ConnectivityManager mConnectivityManager;
+    @NonNull private final ConnectivityDiagnosticsManager mConnectivityDiagnosticsManager;
+
+    private final Object mLock = new Object();
+    // Attached trackers and the IntentFilter of the broadcasts each of them handles.
+    @GuardedBy("mLock")
+    @NonNull private final ArrayMap<BaseWifiTracker, IntentFilter> mTrackers = new ArrayMap<>();
+    // Handler of the hub, either injected or of a HandlerThread started on the first attach and
+    // kept for the lifetime of the process.
+    @GuardedBy("mLock")
+    @Nullable private Handler mHandler;
+    @GuardedBy("mLock")
+    @Nullable private List<ScanResult> mScanResults;
+    // Incremented whenever mScanResults is invalidated, so that a fetch racing with an
+    // invalidation does not publish outdated results.
+    @GuardedBy("mLock")
+    private int mScanResultsGeneration;
+    @GuardedBy("mLock")
+    private long mLastScanRequestMillis = -1;
+    @GuardedBy("mLock")
+    private long mLastRefreshScanRequestMillis = -1;
+
+    // Whether the network and connectivity diagnostics callbacks are registered. Only accessed by
+    // the hub's handler.
+    private boolean mIsRegistered;
+    // Broadcast receivers registered so far, each for the actions that none of the previous ones
+    // were registered for, and the union of their actions. Only accessed by the hub's handler.
+    @NonNull private final List<BroadcastReceiver> mBroadcastReceivers = new ArrayList<>();
+    @NonNull private final Set<String> mRegisteredActions = new ArraySet<>();
+
+    // State delivered by the registrations, replayed to trackers attaching later. Only accessed
+    // by the hub's handler.
+    @Nullable private Intent mWifiStateChangedIntent;
+    @Nullable private Intent mNetworkStateChangedIntent;
+    @Nullable private Intent mDefaultDataSubscriptionChangedIntent;
+    @NonNull private final Map<Network, NetworkCapabilities> mNetworkCapabilities =
+            new ArrayMap<>();
+    @NonNull private final Map<Network, LinkProperties> mLinkProperties = new ArrayMap<>();
+    @NonNull private final Map<Network, ConnectivityReport> mConnectivityReports =
+            new ArrayMap<>();
+    @Nullable private Network mDefaultNetwork;
+    @Nullable private NetworkCapabilities mDefaultNetworkCapabilities;
+
+    private class HubBroadcastReceiver extends BroadcastReceiver {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final String action = intent.getAction();
+            if (WifiManager.WIFI_STATE_CHANGED_ACTION.equals(action)) {
+                mWifiStateChangedIntent = intent;
+                invalidateScanResults();
+            } else if (WifiManager.NETWORK_STATE_CHANGED_ACTION.equals(action)) {
+                mNetworkStateChangedIntent = intent;
+            } else if (WifiManager.SCAN_RESULTS_AVAILABLE_ACTION.equals(action)) {
+                invalidateScanResults();
+            } else if (TelephonyManager.ACTION_DEFAULT_DATA_SUBSCRIPTION_CHANGED.equals(action)) {
+                mDefaultDataSubscriptionChangedIntent = intent;
+            }
+            final List<BaseWifiTracker> trackers = new ArrayList<>();
+            synchronized (mLock) {
+                for (int i = 0; i < mTrackers.size(); i++) {
+                    if (mTrackers.valueAt(i).hasAction(action)) {
+                        trackers.add(mTrackers.keyAt(i));
+                    }
+                }
+            }
+            for (BaseWifiTracker tracker : trackers) {
+                post(tracker, () -> tracker.getBroadcastReceiver().onReceive(context, intent));
+            }
+        }
+    }
+
+    private final ConnectivityManager.NetworkCallback mNetworkCallback =
+            new ConnectivityManager.NetworkCallback(
+                    ConnectivityManager.NetworkCallback.FLAG_INCLUDE_LOCATION_INFO) {
+                @Override
+                public void onLinkPropertiesChanged(@NonNull Network network,
+                        @NonNull LinkProperties lp) {
+                    mLinkProperties.put(network, lp);
+                    dispatch(tracker -> tracker.getNetworkCallback()
+                            .onLinkPropertiesChanged(network, lp));
+                }
+
+                @Override
+                public void onCapabilitiesChanged(@NonNull Network network,
+                        @NonNull NetworkCapabilities networkCapabilities) {
+                    mNetworkCapabilities.put(network, networkCapabilities);
+                    dispatch(tracker -> tracker.getNetworkCallback()
+                            .onCapabilitiesChanged(network, networkCapabilities));
+                }
+
+                @Override
+                public void onLost(@NonNull Network network) {
+                    mNetworkCapabilities.remove(network);
+                    mLinkProperties.remove(network);
+                    mConnectivityReports.remove(network);
+                    dispatch(tracker -> tracker.getNetworkCallback().onLost(network));
+                }
+            };
+
+    private final ConnectivityManager.NetworkCallback mDefaultNetworkCallback =
+            new ConnectivityManager.NetworkCallback(
+                    ConnectivityManager.NetworkCallback.FLAG_INCLUDE_LOCATION_INFO) {
+                @Override
+                public void onCapabilitiesChanged(@NonNull Network network,
+                        @NonNull NetworkCapabilities networkCapabilities) {
+                    mDefaultNetwork = network;
+                    mDefaultNetworkCapabilities = networkCapabilities;
+                    dispatch(tracker -> tracker.getDefaultNetworkCallback()
+                            .onCapabilitiesChanged(network, networkCapabilities));
+                }
+
+                @Override
+                public void onLost(@NonNull Network network) {
+                    mDefaultNetwork = null;
+                    mDefaultNetworkCapabilities = null;
+                    dispatch(tracker -> tracker.getDefaultNetworkCallback().onLost(network));
+                }
+            };
+
+    private final ConnectivityDiagnosticsCallback mConnectivityDiagnosticsCallback =
+            new ConnectivityDiagnosticsCallback() {
+                @Override
+                public void onConnectivityReportAvailable(@NonNull ConnectivityReport report) {
+                    mConnectivityReports.put(report.getNetwork(), report);
+                    dispatch(tracker -> tracker.getConnectivityDiagnosticsCallback()
+                            .onConnectivityReportAvailable(report));
+                }
+            };
+
+    /**
+     * Returns the hub shared by all trackers of the process.
+     */
+    @AnyThread
+    @NonNull
+    static WifiTrackerHub getInstance(@NonNull Context context) {
+        synchronized (sInstanceLock) {
+            if (sInstance == null) {
+                final Context appContext = context.getApplicationContext() != null
+                        ? context.getApplicationContext() : context;
+                sInstance = new WifiTrackerHub(appContext,
+                        appContext.getSystemService(WifiManager.class),
+                        appContext.getSystemService(ConnectivityManager.class),
+                        appContext.getSystemService(ConnectivityDiagnosticsManager.class),
+                        null /* handler */);
+            }
+            return sInstance;
+        }
+    }
+
+    @VisibleForTesting
+    WifiTrackerHub(@NonNull Context context,
+            @NonNull WifiManager wifiManager,
+            @NonNull ConnectivityManager connectivityManager,
+            @NonNull ConnectivityDiagnosticsManager connectivityDiagnosticsManager,
+            @Nullable Handler handler) {
+        mContext = context;
+        mWifiManager = wifiManager;
+        mConnectivityManager = connectivityManager;
+        mConnectivityDiagnosticsManager = connectivityDiagnosticsManager;
+        mHandler = handler;
+    }
+
+    /**
+     * Starts forwarding events to the given tracker, and the broadcasts of its IntentFilter. The
+     * registrations are made when the first tracker attaches, and the broadcast receiver is
+     * extended to the actions of each tracker attaching later.
+     */
+    @MainThread
+    void attach(@NonNull BaseWifiTracker tracker) {
+        final IntentFilter filter = tracker.getIntentFilter();
+        final Handler handler;
+        synchronized (mLock) {
+            if (mTrackers.containsKey(tracker)) {
+                return;
+            }
+            mTrackers.put(tracker, filter);
+            if (mHandler == null) {
+                final HandlerThread handlerThread = new HandlerThread(TAG);
+                handlerThread.start();
+                mHandler = new Handler(handlerThread.getLooper());
+            }
+            handler = mHandler;
+        }
+        handler.post(() -> {
+            if (!mIsRegistered) {
+                register(handler, filter);
+                return;
+            }
+            registerReceiver(handler, filter);
+            replayState(tracker);
+        });
+    }
+
+    /**
+     * Stops forwarding events to the given tracker. The registrations are removed when the last
+     * tracker detaches, unless another tracker attaches before the removal runs.
+     */
+    @MainThread
+    void detach(@NonNull BaseWifiTracker tracker) {
+        final Handler handler;
+        synchronized (mLock) {
+            if (mTrackers.remove(tracker) == null || !mTrackers.isEmpty()) {
+                return;
+            }
+            mScanResults = null;
+            mScanResultsGeneration++;
+            handler = mHandler;
+        }
+        handler.post(() -> {
+            synchronized (mLock) {
+                if (!mTrackers.isEmpty()) {
+                    // A tracker attached again in the meantime and keeps the registrations.
+                    return;
+                }
+            }
+            unregister();
+        });
+    }
+
+    /**
+     * Returns the latest scan results of WifiManager. The results are fetched once and shared
+     * between the trackers until the next scan results or Wi-Fi state broadcast.
+     *
+     * The binder call is made without holding the lock, so trackers fetching concurrently may
+     * each make it; the results are only shared if no broadcast invalidated them meanwhile.
+     */
+    @AnyThread
+    @NonNull
+    List<ScanResult> getScanResults() {
+        final int generation;
+        synchronized (mLock) {
+            if (mScanResults != null && !mTrackers.isEmpty()) {
+                return mScanResults;
+            }
+            generation = mScanResultsGeneration;
+        }
+        final List<ScanResult> scanResults = Collections.unmodifiableList(
+                new ArrayList<>(mWifiManager.getScanResults()));
+        synchronized (mLock) {
+            if (generation == mScanResultsGeneration && !mTrackers.isEmpty()) {
+                mScanResults = scanResults;
+            }
+        }
+        return scanResults;
+    }
+
+    /**
+     * Returns whether the caller should issue a scan, or false if another tracker already
+     * requested one within the given interval.
+     */
+    @AnyThread
+    boolean requestScan(long scanIntervalMillis) {
+        return requestScan(scanIntervalMillis, false /* isRefreshScan */);
+    }
+
+    /**
+     * Returns whether the caller should issue a scan of the given kind, or false if another
+     * tracker already requested one of the same kind within the given interval.
+     *
+     * Refresh scans only cover the channels of the caller's scan results, so they are
+     * de-duplicated separately from full scans.
+     */
+    @AnyThread
+    boolean requestScan(long scanIntervalMillis, boolean isRefreshScan) {
+        final long nowMillis = SystemClock.elapsedRealtime();
+        synchronized (mLock) {
+            final long lastRequestMillis = isRefreshScan
+                    ? mLastRefreshScanRequestMillis : mLastScanRequestMillis;
+            if (lastRequestMillis >= 0 && nowMillis - lastRequestMillis < scanIntervalMillis) {
+                return false;
+            }
+            if (isRefreshScan) {
+                mLastRefreshScanRequestMillis = nowMillis;
+            } else {
+                mLastScanRequestMillis = nowMillis;
+            }
+            return true;
+        }
+    }
+
+    @VisibleForTesting
+    @Nullable
+    Handler getHandler() {
+        synchronized (mLock) {
+            return mHandler;
+        }
+    }
+
+    @VisibleForTesting
+    boolean isAttached(@NonNull BaseWifiTracker tracker) {
+        synchronized (mLock) {
+            return mTrackers.containsKey(tracker);
+        }
+    }
+
+    private void invalidateScanResults() {
+        synchronized (mLock) {
+            mScanResults = null;
+            mScanResultsGeneration++;
+        }
+    }
+
+    private void register(@NonNull Handler handler, @NonNull IntentFilter filter) {
+        mIsRegistered = true;
+        registerReceiver(handler, filter);
+        mConnectivityManager.registerNetworkCallback(BaseWifiTracker.NETWORK_REQUEST,
+                mNetworkCallback, handler);
+        mConnectivityManager.registerDefaultNetworkCallback(mDefaultNetworkCallback, handler);
+        mConnectivityDiagnosticsManager.registerConnectivityDiagnosticsCallback(
+                BaseWifiTracker.NETWORK_REQUEST, handler::post, mConnectivityDiagnosticsCallback);
+    }
+
+    /**
+     * Registers a broadcast receiver for the actions of the given IntentFilter that no receiver
+     * was registered for yet.
+     */
+    private void registerReceiver(@NonNull Handler handler, @NonNull IntentFilter filter) {
+        final IntentFilter newFilter = new IntentFilter();
+        for (int i = 0; i < filter.countActions(); i++) {
+            final String action = filter.getAction(i);
+            if (mRegisteredActions.add(action)) {
+                newFilter.addAction(action);
+            }
+        }
+        if (newFilter.countActions() == 0) {
+            return;
+        }
+        newFilter.setPriority(filter.getPriority());
+        final BroadcastReceiver receiver = new HubBroadcastReceiver();
+        mBroadcastReceivers.add(receiver);
+        mContext.registerReceiver(receiver, newFilter, /* broadcastPermission */ null, handler);
+    }
+
+    private void unregister() {
+        if (!mIsRegistered) {
+            return;
+        }
+        mIsRegistered = false;
+        try {
+            for (BroadcastReceiver receiver : mBroadcastReceivers) {
+                mContext.unregisterReceiver(receiver);
+            }
+            mConnectivityManager.unregisterNetworkCallback(mNetworkCallback);
+            mConnectivityManager.unregisterNetworkCallback(mDefaultNetworkCallback);
+            mConnectivityDiagnosticsManager.unregisterConnectivityDiagnosticsCallback(
+                    mConnectivityDiagnosticsCallback);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Failed to unregister: " + e);
+        }
+        mBroadcastReceivers.clear();
+        mRegisteredActions.clear();
+        mWifiStateChangedIntent = null;
+        mNetworkStateChangedIntent = null;
+        mDefaultDataSubscriptionChangedIntent = null;
+        mNetworkCapabilities.clear();
+        mLinkProperties.clear();
+        mConnectivityReports.clear();
+        mDefaultNetwork = null;
+        mDefaultNetworkCapabilities = null;
+    }
+
+    /**
+     * Replays the state the registrations delivered so far to a tracker attaching later, in the
+     * order the registrations would have delivered it to the tracker itself.
+     */
+    private void replayState(@NonNull BaseWifiTracker tracker) {
+        final IntentFilter filter;
+        synchronized (mLock) {
+            filter = mTrackers.get(tracker);
+        }
+        if (filter == null) {
+            return;
+        }
+        final List<Intent> stickyIntents = new ArrayList<>();
+        for (Intent intent : new Intent[] {mWifiStateChangedIntent, mNetworkStateChangedIntent,
+                mDefaultDataSubscriptionChangedIntent}) {
+            if (intent != null && filter.hasAction(intent.getAction())) {
+                stickyIntents.add(intent);
+            }
+        }
+        final Map<Network, NetworkCapabilities> networkCapabilities =
+                new ArrayMap<>(mNetworkCapabilities);
+        final Map<Network, LinkProperties> linkProperties = new ArrayMap<>(mLinkProperties);
+        final List<ConnectivityReport> connectivityReports =
+                new ArrayList<>(mConnectivityReports.values());
+        final Network defaultNetwork = mDefaultNetwork;
+        final NetworkCapabilities defaultNetworkCapabilities = mDefaultNetworkCapabilities;
+        post(tracker, () -> {
+            for (Intent intent : stickyIntents) {
+                tracker.getBroadcastReceiver().onReceive(mContext, intent);
+            }
+            for (Map.Entry<Network, NetworkCapabilities> entry : networkCapabilities.entrySet()) {
+                tracker.getNetworkCallback().onCapabilitiesChanged(
+                        entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<Network, LinkProperties> entry : linkProperties.entrySet()) {
+                tracker.getNetworkCallback().onLinkPropertiesChanged(
+                        entry.getKey(), entry.getValue());
+            }
+            if (defaultNetwork != null && defaultNetworkCapabilities != null) {
+                tracker.getDefaultNetworkCallback().onCapabilitiesChanged(
+                        defaultNetwork, defaultNetworkCapabilities);
+            }
+            for (ConnectivityReport report : connectivityReports) {
+                tracker.getConnectivityDiagnosticsCallback().onConnectivityReportAvailable(report);
+            }
+        });
+    }
+
+    /**
+     * Forwards an event to the worker thread of each attached tracker.
+     */
+    private void dispatch(@NonNull Consumer<BaseWifiTracker> event) {
+        final List<BaseWifiTracker> trackers;
+        synchronized (mLock) {
+            trackers = new ArrayList<>(mTrackers.keySet());
+        }
+        for (BaseWifiTracker tracker : trackers) {
+            post(tracker, () -> event.accept(tracker));
+        }
+    }
+
+    private void post(@NonNull BaseWifiTracker tracker, @NonNull Runnable runnable) {
+        tracker.getWorkerHandler().post(() -> {
+            // Drop events which were queued before the tracker detached.
+            if (isAttached(tracker)) {
+                runnable.run();
+            }
+        });
+    }
+}
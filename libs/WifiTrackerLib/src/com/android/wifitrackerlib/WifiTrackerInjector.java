@@ -16,23 +16,42 @@
 
 package com.android.wifitrackerlib;
 
+import android.Manifest;
 import android.app.admin.DevicePolicyManager;
 import android.content.Context;
+import android.content.pm.PackageManager;
 import android.net.wifi.WifiManager;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.UserManager;
 import android.provider.DeviceConfig;
+import android.util.ArrayMap;
 import android.util.ArraySet;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Wrapper class for commonly referenced objects and static data.
  */
 public class WifiTrackerInjector {
     private static final String DEVICE_CONFIG_NAMESPACE = "wifi";
+    // Max number of binder calls the trackers of the process issue concurrently.
+    private static final int MAX_CONCURRENT_FETCHES = 4;
+    private static final long FETCH_THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    private static final Object sFetchExecutorLock = new Object();
+    @GuardedBy("sFetchExecutorLock")
+    @Nullable private static Executor sFetchExecutor;
 
     @NonNull private final Context mContext;
     private final boolean mIsDemoMode;
@@ -42,6 +61,8 @@ public class WifiTrackerInjector {
     @NonNull private final Set<String> mNoAttributionAnnotationPackages;
     private boolean mIsUserDebugVerboseLoggingEnabled;
     private boolean mVerboseLoggingDisabledOverride = false;
+    @GuardedBy("mWifiEntryUpdateBatchers")
+    private final Map<Looper, WifiEntryUpdateBatcher> mWifiEntryUpdateBatchers = new ArrayMap<>();
 
     // TODO(b/201571677): Migrate the rest of the common objects to WifiTrackerInjector.
     WifiTrackerInjector(@NonNull Context context) {
@@ -89,6 +110,15 @@ public class WifiTrackerInjector {
                 "shared_connectivity_enabled", false);
     }
 
+    /**
+     * Whether the trackers should refresh the channels of the visible networks with a partial
+     * scan between full scans, which are then issued less often.
+     */
+    public boolean isRefreshScanEnabled() {
+        return DeviceConfig.getBoolean(DEVICE_CONFIG_NAMESPACE,
+                "refresh_scan_enabled", false);
+    }
+
     /**
      * Whether verbose logging is enabled.
      */
@@ -104,6 +134,68 @@ public class WifiTrackerInjector {
         return !mVerboseLoggingDisabledOverride && mWifiManager.isVerboseLoggingEnabled();
     }
 
+    /**
+     * Returns the batcher for WifiEntry updates delivered on the looper of the given handler.
+     */
+    @NonNull WifiEntryUpdateBatcher getWifiEntryUpdateBatcher(@NonNull Handler handler) {
+        synchronized (mWifiEntryUpdateBatchers) {
+            WifiEntryUpdateBatcher batcher = mWifiEntryUpdateBatchers.get(handler.getLooper());
+            if (batcher == null) {
+                batcher = new WifiEntryUpdateBatcher(handler);
+                mWifiEntryUpdateBatchers.put(handler.getLooper(), batcher);
+            }
+            return batcher;
+        }
+    }
+
+    /**
+     * Returns the hub shared by the trackers of this process, or null if the tracker should make
+     * its own registrations. The hub is only used if enabled through DeviceConfig.
+     */
+    @Nullable WifiTrackerHub getWifiTrackerHub() {
+        if (!DeviceConfig.getBoolean(DEVICE_CONFIG_NAMESPACE, "wifi_tracker_hub_enabled", false)) {
+            return null;
+        }
+        return WifiTrackerHub.getInstance(mContext);
+    }
+
+    /**
+     * Returns a new policy deciding the interval between the scans of a tracker around the given
+     * default interval, or null if the tracker should always scan at the default interval.
+     *
+     * The adaptive policy is only used if enabled through DeviceConfig. It only scans faster than
+     * the default interval for apps whose scans are not throttled by the framework.
+     */
+    @Nullable ScanSchedulingPolicy createScanSchedulingPolicy(long scanIntervalMillis) {
+        if (!DeviceConfig.getBoolean(DEVICE_CONFIG_NAMESPACE,
+                "adaptive_scan_scheduling_enabled", false)) {
+            return null;
+        }
+        final boolean isScanThrottled = mContext.checkSelfPermission(
+                Manifest.permission.NETWORK_SETTINGS) != PackageManager.PERMISSION_GRANTED;
+        return new AdaptiveScanSchedulingPolicy(scanIntervalMillis, isScanThrottled);
+    }
+
+    /**
+     * Returns the executor for issuing independent binder calls concurrently, or null if they
+     * should be issued on the calling thread. The executor is shared by the trackers of the
+     * process and its threads exit while idle.
+     */
+    @Nullable Executor getFetchExecutor() {
+        synchronized (sFetchExecutorLock) {
+            if (sFetchExecutor == null) {
+                final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                        MAX_CONCURRENT_FETCHES, MAX_CONCURRENT_FETCHES,
+                        FETCH_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(),
+                        runnable -> new Thread(runnable, "WifiTrackerFetch"));
+                executor.allowCoreThreadTimeOut(true);
+                sFetchExecutor = executor;
+            }
+            return sFetchExecutor;
+        }
+    }
+
     /**
      * Permanently disables verbose logging.
      */
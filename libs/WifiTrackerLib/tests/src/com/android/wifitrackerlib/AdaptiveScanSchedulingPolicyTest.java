@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import static com.android.wifitrackerlib.ScanSchedulingPolicy.SCAN_INTERVAL_REASON_CHURN;
+import static com.android.wifitrackerlib.ScanSchedulingPolicy.SCAN_INTERVAL_REASON_CONNECTION_CHANGED;
+import static com.android.wifitrackerlib.ScanSchedulingPolicy.SCAN_INTERVAL_REASON_DEFAULT;
+import static com.android.wifitrackerlib.ScanSchedulingPolicy.SCAN_INTERVAL_REASON_STABLE;
+import static com.android.wifitrackerlib.TestUtils.buildScanResult;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.wifi.ScanResult;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class AdaptiveScanSchedulingPolicyTest {
+    private static final long SCAN_INTERVAL_MILLIS = 10_000;
+
+    private AdaptiveScanSchedulingPolicy mPolicy;
+
+    private static List<ScanResult> buildScanResults(int rssi1, int rssi2, String bssid3) {
+        return Arrays.asList(
+                buildScanResult("ssid1", "bssid1", 0, rssi1),
+                buildScanResult("ssid2", "bssid2", 0, rssi2),
+                buildScanResult("ssid3", bssid3, 0, -60));
+    }
+
+    @Before
+    public void setUp() {
+        mPolicy = new AdaptiveScanSchedulingPolicy(SCAN_INTERVAL_MILLIS,
+                false /* isScanThrottled */);
+        mPolicy.onScanningStarted();
+    }
+
+    /**
+     * Verifies that the interval doubles for each identical scan, up to the max backoff.
+     */
+    @Test
+    public void testOnScanResultsAvailable_identicalScans_backsOffExponentially() {
+        mPolicy.onScanResultsAvailable(buildScanResults(-55, -71, "bssid3"));
+        assertThat(mPolicy.getScanIntervalMillis()).isEqualTo(SCAN_INTERVAL_MILLIS);
+        assertThat(mPolicy.getScanIntervalReason()).isEqualTo(SCAN_INTERVAL_REASON_DEFAULT);
+
+        // Fluctuations within an RSSI bucket are not changes.
+        mPolicy.onScanResultsAvailable(buildScanResults(-58, -72, "bssid3"));
+        assertThat(mPolicy.getScanIntervalMillis()).isEqualTo(SCAN_INTERVAL_MILLIS * 2);
+        assertThat(mPolicy.getScanIntervalReason()).isEqualTo(SCAN_INTERVAL_REASON_STABLE);
+
+        for (int i = 0; i < 10; i++) {
+            mPolicy.onScanResultsAvailable(buildScanResults(-58, -72, "bssid3"));
+        }
+        assertThat(mPolicy.getScanIntervalMillis()).isEqualTo(
+                SCAN_INTERVAL_MILLIS * AdaptiveScanSchedulingPolicy.MAX_BACKOFF_MULTIPLIER);
+    }
+
+    /**
+     * Verifies that the interval is shortened while the scan results are changing, and returns
+     * to the default interval for minor changes.
+     */
+    @Test
+    public void testOnScanResultsAvailable_churningScans_shortensInterval() {
+        mPolicy.onScanResultsAvailable(buildScanResults(-50, -70, "bssid3"));
+
+        mPolicy.onScanResultsAvailable(buildScanResults(-80, -70, "bssid4"));
+        assertThat(mPolicy.getScanIntervalMillis()).isEqualTo(SCAN_INTERVAL_MILLIS / 2);
+        assertThat(mPolicy.getScanIntervalReason()).isEqualTo(SCAN_INTERVAL_REASON_CHURN);
+
+        mPolicy.onScanResultsAvailable(Arrays.asList(
+                buildScanResult("ssid1", "bssid1", 0, -80),
+                buildScanResult("ssid2", "bssid2", 0, -70),
+                buildScanResult("ssid4", "bssid4", 0, -60),
+                buildScanResult("ssid5", "bssid5", 0, -60),
+                buildScanResult("ssid6", "bssid6", 0, -60)));
+        mPolicy.onScanResultsAvailable(Arrays.asList(
+                buildScanResult("ssid1", "bssid1", 0, -80),
+                buildScanResult("ssid2", "bssid2", 0, -70),
+                buildScanResult("ssid4", "bssid4", 0, -60),
+                buildScanResult("ssid5", "bssid5", 0, -60),
+                buildScanResult("ssid6", "bssid6", 0, -40)));
+        assertThat(mPolicy.getScanIntervalMillis()).isEqualTo(SCAN_INTERVAL_MILLIS);
+        assertThat(mPolicy.getScanIntervalReason()).isEqualTo(SCAN_INTERVAL_REASON_DEFAULT);
+    }
+
+    /**
+     * Verifies that the interval is not shortened below the default interval if the scans of the
+     * app are throttled.
+     */
+    @Test
+    public void testOnScanResultsAvailable_churningScansWhileThrottled_keepsDefaultInterval() {
+        mPolicy = new AdaptiveScanSchedulingPolicy(SCAN_INTERVAL_MILLIS,
+                true /* isScanThrottled */);
+        mPolicy.onScanningStarted();
+        mPolicy.onScanResultsAvailable(buildScanResults(-50, -70, "bssid3"));
+
+        mPolicy.onScanResultsAvailable(buildScanResults(-80, -70, "bssid4"));
+
+        assertThat(mPolicy.getScanIntervalMillis()).isEqualTo(SCAN_INTERVAL_MILLIS);
+        assertThat(mPolicy.getScanIntervalReason()).isEqualTo(SCAN_INTERVAL_REASON_CHURN);
+    }
+
+    /**
+     * Verifies that a connection change resets a backed off interval.
+     */
+    @Test
+    public void testOnConnectionChanged_backedOff_resetsInterval() {
+        mPolicy.onScanResultsAvailable(buildScanResults(-50, -70, "bssid3"));
+        mPolicy.onScanResultsAvailable(buildScanResults(-50, -70, "bssid3"));
+        assertThat(mPolicy.getScanIntervalReason()).isEqualTo(SCAN_INTERVAL_REASON_STABLE);
+
+        mPolicy.onConnectionChanged();
+
+        assertThat(mPolicy.getScanIntervalMillis()).isEqualTo(SCAN_INTERVAL_MILLIS);
+        assertThat(mPolicy.getScanIntervalReason())
+                .isEqualTo(SCAN_INTERVAL_REASON_CONNECTION_CHANGED);
+    }
+}
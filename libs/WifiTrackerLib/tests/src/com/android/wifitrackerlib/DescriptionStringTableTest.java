@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.os.LocaleList;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Locale;
+
+public class DescriptionStringTableTest {
+    private static final int SIGN_IN_ID = 12345;
+    private static final String[] WIFI_STATUS = new String[]{"", "Scanning", "Connecting",
+            "Authenticating", "Obtaining IP address", "Connected"};
+
+    @Mock private Context mMockContext;
+    @Mock private Resources mMockResources;
+
+    private final Configuration mConfiguration = new Configuration();
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        mConfiguration.setLocales(new LocaleList(Locale.US));
+        when(mMockContext.getResources()).thenReturn(mMockResources);
+        when(mMockResources.getConfiguration()).thenReturn(mConfiguration);
+        when(mMockResources.getString(anyInt())).thenReturn("");
+        when(mMockResources.getString(R.string.wifitrackerlib_wifi_disconnected))
+                .thenReturn("Saved");
+        when(mMockResources.getStringArray(R.array.wifitrackerlib_wifi_status))
+                .thenReturn(WIFI_STATUS);
+        when(mMockResources.getIdentifier(eq("network_available_sign_in"), eq("string"),
+                eq("android"))).thenReturn(SIGN_IN_ID);
+        when(mMockResources.getString(SIGN_IN_ID)).thenReturn("Sign in to network");
+    }
+
+    /**
+     * Verifies that the strings are only loaded once for the same Resources and locale.
+     */
+    @Test
+    public void testGet_sameLocale_loadsResourcesOnce() {
+        DescriptionStringTable table = DescriptionStringTable.get(mMockContext);
+        assertThat(table.getString(R.string.wifitrackerlib_wifi_disconnected)).isEqualTo("Saved");
+        assertThat(table.getWifiStatus(5)).isEqualTo("Connected");
+        assertThat(table.getNetworkAvailableSignIn()).isEqualTo("Sign in to network");
+
+        table = DescriptionStringTable.get(mMockContext);
+        assertThat(table.getString(R.string.wifitrackerlib_wifi_disconnected)).isEqualTo("Saved");
+        assertThat(table.getWifiStatus(5)).isEqualTo("Connected");
+        assertThat(table.getWifiStatus(WIFI_STATUS.length)).isEqualTo("");
+        assertThat(table.getNetworkAvailableSignIn()).isEqualTo("Sign in to network");
+
+        verify(mMockResources, times(1)).getStringArray(R.array.wifitrackerlib_wifi_status);
+        verify(mMockResources, times(1)).getIdentifier(eq("network_available_sign_in"),
+                eq("string"), eq("android"));
+        verify(mMockResources, times(1)).getString(R.string.wifitrackerlib_wifi_disconnected);
+    }
+
+    /**
+     * Verifies that the strings are reloaded once the locale changes.
+     */
+    @Test
+    public void testGet_localeChanged_reloadsResources() {
+        DescriptionStringTable.get(mMockContext);
+
+        mConfiguration.setLocales(new LocaleList(Locale.FRANCE));
+        when(mMockResources.getString(R.string.wifitrackerlib_wifi_disconnected))
+                .thenReturn("Enregistré");
+
+        assertThat(DescriptionStringTable.get(mMockContext)
+                .getString(R.string.wifitrackerlib_wifi_disconnected)).isEqualTo("Enregistré");
+        verify(mMockResources, times(2)).getStringArray(R.array.wifitrackerlib_wifi_status);
+    }
+
+    /**
+     * Verifies that the generation only changes once the table is reloaded.
+     */
+    @Test
+    public void testGetGeneration_changesWithConfiguration() {
+        final int generation = DescriptionStringTable.get(mMockContext).getGeneration();
+
+        assertThat(DescriptionStringTable.get(mMockContext).getGeneration()).isEqualTo(generation);
+
+        mConfiguration.setLocales(new LocaleList(Locale.FRANCE));
+
+        assertThat(DescriptionStringTable.get(mMockContext).getGeneration())
+                .isNotEqualTo(generation);
+    }
+
+    /**
+     * Verifies that the strings are reloaded once a runtime resource overlay changes the assets,
+     * even though the locale is unchanged.
+     */
+    @Test
+    public void testGet_assetsChanged_reloadsResources() {
+        DescriptionStringTable.get(mMockContext);
+
+        mConfiguration.assetsSeq++;
+        when(mMockResources.getString(R.string.wifitrackerlib_wifi_disconnected))
+                .thenReturn("Remembered");
+
+        assertThat(DescriptionStringTable.get(mMockContext)
+                .getString(R.string.wifitrackerlib_wifi_disconnected)).isEqualTo("Remembered");
+        verify(mMockResources, times(2)).getStringArray(R.array.wifitrackerlib_wifi_status);
+    }
+
+    /**
+     * Verifies that strings are read through the Context if there is no Configuration to key the
+     * table on.
+     */
+    @Test
+    public void testGet_noConfiguration_readsFromContext() {
+        when(mMockResources.getConfiguration()).thenReturn(null);
+        when(mMockContext.getString(R.string.wifitrackerlib_wifi_disconnected))
+                .thenReturn("Saved");
+
+        assertThat(DescriptionStringTable.get(mMockContext)
+                .getString(R.string.wifitrackerlib_wifi_disconnected)).isEqualTo("Saved");
+        assertThat(DescriptionStringTable.get(mMockContext)
+                .getString(R.string.wifitrackerlib_wifi_disconnected)).isEqualTo("Saved");
+        verify(mMockContext, times(2)).getString(R.string.wifitrackerlib_wifi_disconnected);
+    }
+}
@@ -22,6 +22,7 @@ import static com.android.wifitrackerlib.StandardWifiEntry.ssidAndSecurityTypeTo
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.anyInt;
@@ -72,6 +73,8 @@ public class KnownNetworkEntryTest {
 
         mTestLooper = new TestLooper();
         mTestHandler = new Handler(mTestLooper.getLooper());
+        when(mMockInjector.getWifiEntryUpdateBatcher(any()))
+                .thenReturn(new WifiEntryUpdateBatcher(mTestHandler));
 
         when(mMockInjector.getContext()).thenReturn(mMockContext);
         when(mMockContext.getString(eq(R.string.wifitrackerlib_known_network_summary), anyString()))
@@ -18,6 +18,7 @@ package com.android.wifitrackerlib;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -59,6 +60,8 @@ public class MergedCarrierEntryTest {
         when(mMockNetworkCapabilities.getTransportInfo()).thenReturn(mMockWifiInfo);
         mTestLooper = new TestLooper();
         mTestHandler = new Handler(mTestLooper.getLooper());
+        when(mMockInjector.getWifiEntryUpdateBatcher(any()))
+                .thenReturn(new WifiEntryUpdateBatcher(mTestHandler));
         when(mMockInjector.getContext()).thenReturn(mMockContext);
         when(mMockContext.getMainLooper()).thenReturn(Looper.getMainLooper());
         when(mMockContext.getResources()).thenReturn(mMockResources);
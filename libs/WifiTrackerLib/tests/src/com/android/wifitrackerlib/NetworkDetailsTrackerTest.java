@@ -23,6 +23,7 @@ import static com.android.wifitrackerlib.StandardWifiEntry.StandardWifiEntryKey;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
@@ -85,6 +86,8 @@ public class NetworkDetailsTrackerTest {
         MockitoAnnotations.initMocks(this);
 
         mTestLooper = new TestLooper();
+        when(mInjector.getWifiEntryUpdateBatcher(any())).thenReturn(
+                new WifiEntryUpdateBatcher(new Handler(mTestLooper.getLooper())));
 
         when(mMockWifiManager.getScanResults()).thenReturn(new ArrayList<>());
         when(mMockWifiManager.getWifiState()).thenReturn(WifiManager.WIFI_STATE_ENABLED);
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import static com.android.wifitrackerlib.PasspointWifiEntry.uniqueIdToPasspointWifiEntryKey;
+import static com.android.wifitrackerlib.TestUtils.GOOD_RSSI;
+import static com.android.wifitrackerlib.TestUtils.buildScanResult;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.res.Resources;
+import android.net.ConnectivityDiagnosticsManager;
+import android.net.ConnectivityManager;
+import android.net.wifi.ScanResult;
+import android.net.wifi.WifiManager;
+import android.net.wifi.WifiScanner;
+import android.net.wifi.hotspot2.PasspointConfiguration;
+import android.net.wifi.hotspot2.pps.Credential;
+import android.net.wifi.hotspot2.pps.HomeSp;
+import android.os.Handler;
+import android.os.test.TestLooper;
+
+import androidx.lifecycle.Lifecycle;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class PasspointNetworkDetailsTrackerTest {
+
+    private static final long START_MILLIS = 123_456_789;
+
+    private static final long MAX_SCAN_AGE_MILLIS = 15_000;
+    private static final long SCAN_INTERVAL_MILLIS = 10_000;
+
+    @Mock private WifiTrackerInjector mInjector;
+    @Mock private Lifecycle mMockLifecycle;
+    @Mock private Context mMockContext;
+    @Mock private Resources mResources;
+    @Mock private WifiManager mMockWifiManager;
+    @Mock private WifiScanner mWifiScanner;
+    @Mock private ConnectivityManager mMockConnectivityManager;
+    @Mock private ConnectivityDiagnosticsManager mMockConnectivityDiagnosticsManager;
+    @Mock private Clock mMockClock;
+
+    private TestLooper mTestLooper;
+    private PasspointConfiguration mPasspointConfig;
+
+    private final ArgumentCaptor<BroadcastReceiver> mBroadcastReceiverCaptor =
+            ArgumentCaptor.forClass(BroadcastReceiver.class);
+
+    private PasspointNetworkDetailsTracker createTestPasspointNetworkDetailsTracker() {
+        final Handler testHandler = new Handler(mTestLooper.getLooper());
+
+        return new PasspointNetworkDetailsTracker(
+                mInjector,
+                mMockLifecycle,
+                mMockContext,
+                mMockWifiManager,
+                mMockConnectivityManager,
+                testHandler,
+                testHandler,
+                mMockClock,
+                MAX_SCAN_AGE_MILLIS,
+                SCAN_INTERVAL_MILLIS,
+                uniqueIdToPasspointWifiEntryKey(mPasspointConfig.getUniqueId()));
+    }
+
+    private static ScanResult buildPasspointScanResult(String bssid, long timestampMillis) {
+        final ScanResult scan =
+                buildScanResult("passpointSsid", bssid, timestampMillis, GOOD_RSSI);
+        scan.flags |= ScanResult.FLAG_PASSPOINT_NETWORK;
+        return scan;
+    }
+
+    private void sendScanResultsAvailable() {
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION)
+                        .putExtra(WifiManager.EXTRA_RESULTS_UPDATED, true));
+    }
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        mTestLooper = new TestLooper();
+        when(mInjector.getWifiEntryUpdateBatcher(any())).thenReturn(
+                new WifiEntryUpdateBatcher(new Handler(mTestLooper.getLooper())));
+
+        mPasspointConfig = new PasspointConfiguration();
+        final HomeSp homeSp = new HomeSp();
+        homeSp.setFqdn("fqdn");
+        homeSp.setFriendlyName("friendlyName");
+        mPasspointConfig.setHomeSp(homeSp);
+        mPasspointConfig.setCredential(new Credential());
+        when(mMockWifiManager.getPasspointConfigurations())
+                .thenReturn(Collections.singletonList(mPasspointConfig));
+        when(mMockWifiManager.getScanResults()).thenReturn(Collections.emptyList());
+        when(mMockWifiManager.getWifiState()).thenReturn(WifiManager.WIFI_STATE_ENABLED);
+        when(mMockWifiManager.calculateSignalLevel(GOOD_RSSI)).thenReturn(TestUtils.GOOD_LEVEL);
+        when(mMockContext.getResources()).thenReturn(mResources);
+        when(mMockContext.getSystemService(ConnectivityDiagnosticsManager.class))
+                .thenReturn(mMockConnectivityDiagnosticsManager);
+        when(mMockContext.getSystemService(WifiScanner.class)).thenReturn(mWifiScanner);
+        when(mMockClock.millis()).thenReturn(START_MILLIS);
+    }
+
+    /**
+     * Verifies that scans without any Hotspot 2.0 APs are not sent to getAllMatchingWifiConfigs().
+     */
+    @Test
+    public void testScanResultsAvailableAction_noPasspointScans_doesNotMatchConfigs() {
+        when(mMockWifiManager.getScanResults()).thenReturn(Collections.singletonList(
+                buildScanResult("ssid", "bssid", START_MILLIS, GOOD_RSSI)));
+        final PasspointNetworkDetailsTracker tracker = createTestPasspointNetworkDetailsTracker();
+
+        tracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        sendScanResultsAvailable();
+
+        verify(mMockWifiManager, never()).getAllMatchingWifiConfigs(any());
+    }
+
+    /**
+     * Verifies that only Hotspot 2.0 scans are matched, and that unchanged scans are matched again
+     * on the next scan results so that matches found by a later ANQP query are not missed.
+     */
+    @Test
+    public void testScanResultsAvailableAction_unchangedPasspointScans_matchesAgain() {
+        final ScanResult passpointScan = buildPasspointScanResult("bssid1", START_MILLIS);
+        when(mMockWifiManager.getScanResults()).thenReturn(Arrays.asList(
+                passpointScan, buildScanResult("ssid", "bssid2", START_MILLIS, GOOD_RSSI)));
+        final PasspointNetworkDetailsTracker tracker = createTestPasspointNetworkDetailsTracker();
+        clearInvocations(mMockWifiManager);
+
+        tracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        verify(mMockWifiManager).getAllMatchingWifiConfigs(
+                Collections.singletonList(passpointScan));
+        clearInvocations(mMockWifiManager);
+
+        sendScanResultsAvailable();
+
+        verify(mMockWifiManager).getAllMatchingWifiConfigs(
+                Collections.singletonList(passpointScan));
+    }
+}
@@ -72,6 +72,8 @@ public class PasspointWifiEntryTest {
 
         mTestLooper = new TestLooper();
         mTestHandler = new Handler(mTestLooper.getLooper());
+        when(mMockInjector.getWifiEntryUpdateBatcher(any()))
+                .thenReturn(new WifiEntryUpdateBatcher(mTestHandler));
 
         when(mMockWifiInfo.isPrimary()).thenReturn(true);
         when(mMockWifiInfo.getNetworkId()).thenReturn(WifiConfiguration.INVALID_NETWORK_ID);
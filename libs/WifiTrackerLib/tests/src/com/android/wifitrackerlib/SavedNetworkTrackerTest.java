@@ -32,6 +32,7 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -70,6 +71,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class SavedNetworkTrackerTest {
@@ -127,6 +129,8 @@ public class SavedNetworkTrackerTest {
         MockitoAnnotations.initMocks(this);
 
         mTestLooper = new TestLooper();
+        when(mInjector.getWifiEntryUpdateBatcher(any())).thenReturn(
+                new WifiEntryUpdateBatcher(new Handler(mTestLooper.getLooper())));
 
         when(mMockWifiManager.getScanResults()).thenReturn(new ArrayList<>());
         when(mMockWifiManager.getConnectionInfo()).thenReturn(mMockWifiInfo);
@@ -688,6 +692,43 @@ public class SavedNetworkTrackerTest {
                 .getCertificateRequesterNames(TEST_CACERT_NOT_REQUIRED_ALIAS).size());
     }
 
+    /**
+     * Tests that certificate lookups are answered from the index without querying the configured
+     * networks, and that the index is rebuilt when the configured networks change.
+     */
+    @Test
+    public void testCertificateRequired_usesIndexUntilConfiguredNetworksChanged() {
+        final SavedNetworkTracker savedNetworkTracker = createTestSavedNetworkTracker();
+        final WifiConfiguration config = new WifiConfiguration();
+        config.SSID = "\"ssid\"";
+        config.networkId = 1;
+        config.setSecurityParams(WifiConfiguration.SECURITY_TYPE_EAP);
+        config.enterpriseConfig.setEapMethod(WifiEnterpriseConfig.Eap.PEAP);
+        config.enterpriseConfig.setCaCertificateAliases(new String[]{"cacert"});
+        when(mMockWifiManager.getConfiguredNetworks())
+                .thenReturn(Collections.singletonList(config));
+        savedNetworkTracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        verify(mMockWifiManager, times(1)).getConfiguredNetworks();
+
+        assertThat(savedNetworkTracker.isCertificateRequired("cacert")).isTrue();
+        assertThat(savedNetworkTracker.getCertificateRequesterNames("cacert"))
+                .containsExactly("\"ssid\"");
+        final Map<String, List<String>> requesterNames = savedNetworkTracker
+                .getCertificateRequesterNames(Arrays.asList("cacert", "other"));
+        assertThat(requesterNames.get("cacert")).containsExactly("\"ssid\"");
+        assertThat(requesterNames.get("other")).isEmpty();
+        verify(mMockWifiManager, times(1)).getConfiguredNetworks();
+
+        when(mMockWifiManager.getConfiguredNetworks()).thenReturn(Collections.emptyList());
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION));
+
+        assertThat(savedNetworkTracker.isCertificateRequired("cacert")).isFalse();
+    }
+
     /**
      * Tests that a connected WifiEntry's isDefaultNetwork() will reflect updates from the default
      * network changing.
@@ -32,6 +32,7 @@ import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -106,6 +107,8 @@ public class StandardNetworkDetailsTrackerTest {
         MockitoAnnotations.initMocks(this);
 
         mTestLooper = new TestLooper();
+        when(mInjector.getWifiEntryUpdateBatcher(any())).thenReturn(
+                new WifiEntryUpdateBatcher(new Handler(mTestLooper.getLooper())));
 
         when(mMockWifiManager.isWpa3SaeSupported()).thenReturn(true);
         when(mMockWifiManager.isWpa3SuiteBSupported()).thenReturn(true);
@@ -317,4 +320,41 @@ public class StandardNetworkDetailsTrackerTest {
         // Updated with the correct SSID and ignored the different SSID.
         assertThat(tracker.getWifiEntry().getLevel()).isEqualTo(BAD_LEVEL);
     }
+
+    /**
+     * Tests that a tracker created from a picker entry is seeded with the entry's scans and configs
+     * without fetching them, and fetches them once started.
+     */
+    @Test
+    public void testCreateFromWifiEntry_seedsEntryWithoutFetching() {
+        final String ssid = "ssid";
+        final StandardWifiEntryKey key =
+                ssidAndSecurityTypeToStandardWifiEntryKey(ssid, SECURITY_NONE);
+        final WifiConfiguration config = buildWifiConfiguration(ssid);
+        final StandardWifiEntry pickerEntry = new StandardWifiEntry(mInjector,
+                new Handler(mTestLooper.getLooper()), key, mMockWifiManager,
+                false /* forSavedNetworksPage */);
+        pickerEntry.updateConfig(Collections.singletonList(config));
+        pickerEntry.updateScanResultInfo(Collections.singletonList(
+                buildScanResult(ssid, "bssid", START_MILLIS, BAD_RSSI)));
+
+        final NetworkDetailsTracker tracker = NetworkDetailsTracker.createNetworkDetailsTracker(
+                mInjector, mMockLifecycle, mMockContext, mMockWifiManager,
+                mMockConnectivityManager, new Handler(mTestLooper.getLooper()),
+                new Handler(mTestLooper.getLooper()), mMockClock, MAX_SCAN_AGE_MILLIS,
+                SCAN_INTERVAL_MILLIS, pickerEntry);
+
+        assertThat(tracker).isInstanceOf(StandardNetworkDetailsTracker.class);
+        assertThat(tracker.getWifiEntry()).isNotSameInstanceAs(pickerEntry);
+        assertThat(tracker.getWifiEntry().isSaved()).isTrue();
+        assertThat(tracker.getWifiEntry().getLevel()).isEqualTo(BAD_LEVEL);
+        verify(mMockWifiManager, never()).getPrivilegedConfiguredNetworks();
+        verify(mMockWifiManager, never()).getScanResults();
+
+        tracker.onStart();
+        mTestLooper.dispatchAll();
+
+        verify(mMockWifiManager).getPrivilegedConfiguredNetworks();
+        assertThat(tracker.getWifiEntry().isSaved()).isFalse();
+    }
 }
@@ -43,8 +43,10 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeTrue;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
@@ -53,9 +55,12 @@ import android.app.admin.DevicePolicyManager;
 import android.app.admin.WifiSsidPolicy;
 import android.content.ComponentName;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.net.ConnectivityDiagnosticsManager;
 import android.net.ConnectivityManager;
+import android.net.InetAddresses;
+import android.net.LinkAddress;
 import android.net.LinkProperties;
 import android.net.MacAddress;
 import android.net.Network;
@@ -68,6 +73,7 @@ import android.net.wifi.WifiInfo;
 import android.net.wifi.WifiManager;
 import android.net.wifi.WifiSsid;
 import android.os.Handler;
+import android.os.LocaleList;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.os.test.TestLooper;
@@ -91,6 +97,7 @@ import org.mockito.MockitoSession;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Locale;
 
 public class StandardWifiEntryTest {
     @Mock private WifiEntry.WifiEntryCallback mMockListener;
@@ -119,6 +126,8 @@ public class StandardWifiEntryTest {
 
         mTestLooper = new TestLooper();
         mTestHandler = new Handler(mTestLooper.getLooper());
+        when(mMockInjector.getWifiEntryUpdateBatcher(any()))
+                .thenReturn(new WifiEntryUpdateBatcher(mTestHandler));
 
         when(mMockNetworkCapabilities.getTransportInfo()).thenReturn(mMockWifiInfo);
         when(mMockWifiInfo.isPrimary()).thenReturn(true);
@@ -247,6 +256,120 @@ public class StandardWifiEntryTest {
         verify(mMockListener).onUpdated();
     }
 
+    /**
+     * Tests that multiple updates before the listener is notified are delivered once.
+     */
+    @Test
+    public void testNotifyOnUpdated_multipleUpdates_coalescedIntoOneCallback() {
+        final StandardWifiEntry entry = new StandardWifiEntry(
+                mMockInjector, mTestHandler,
+                ssidAndSecurityTypeToStandardWifiEntryKey("ssid", SECURITY_TYPE_OPEN),
+                null, Arrays.asList(buildScanResult("ssid", "bssid", 0)),
+                mMockWifiManager, false /* forSavedNetworksPage */);
+        entry.setListener(mMockListener);
+
+        entry.updateScanResultInfo(Arrays.asList(
+                buildScanResult("ssid", "bssid", 1, TestUtils.GOOD_RSSI)));
+        entry.updateScanResultInfo(Arrays.asList(
+                buildScanResult("ssid", "bssid", 2, TestUtils.OKAY_RSSI)));
+        entry.updateScanResultInfo(Arrays.asList(
+                buildScanResult("ssid", "bssid", 3, TestUtils.BAD_RSSI)));
+        mTestLooper.dispatchAll();
+
+        verify(mMockListener, times(1)).onUpdated();
+
+        entry.updateScanResultInfo(Arrays.asList(
+                buildScanResult("ssid", "bssid1", 4, TestUtils.GOOD_RSSI)));
+        mTestLooper.dispatchAll();
+
+        verify(mMockListener, times(2)).onUpdated();
+    }
+
+    /**
+     * Tests that a scan update is dropped if the matched scans and level are unchanged.
+     */
+    @Test
+    public void testUpdateScanResultInfo_unchangedScans_doesNotNotify() {
+        final StandardWifiEntry entry = new StandardWifiEntry(
+                mMockInjector, mTestHandler,
+                ssidAndSecurityTypeToStandardWifiEntryKey("ssid", SECURITY_TYPE_OPEN),
+                null, Arrays.asList(buildScanResult("ssid", "bssid", 0, TestUtils.GOOD_RSSI)),
+                mMockWifiManager, false /* forSavedNetworksPage */);
+        entry.setListener(mMockListener);
+
+        assertThat(entry.updateScanResultInfo(Arrays.asList(
+                buildScanResult("ssid", "bssid", 1, TestUtils.GOOD_RSSI)))).isFalse();
+        mTestLooper.dispatchAll();
+
+        verify(mMockListener, never()).onUpdated();
+
+        assertThat(entry.updateScanResultInfo(Arrays.asList(
+                buildScanResult("ssid", "bssid", 2, TestUtils.BAD_RSSI)))).isTrue();
+        mTestLooper.dispatchAll();
+
+        verify(mMockListener).onUpdated();
+        assertThat(entry.getLevel()).isEqualTo(TestUtils.BAD_LEVEL);
+    }
+
+    /**
+     * Tests that a scan update is dropped if the same BSSIDs are matched in a different order, and
+     * not dropped if a BSSID is replaced.
+     */
+    @Test
+    public void testUpdateScanResultInfo_reorderedScans_doesNotNotify() {
+        final StandardWifiEntry entry = new StandardWifiEntry(
+                mMockInjector, mTestHandler,
+                ssidAndSecurityTypeToStandardWifiEntryKey("ssid", SECURITY_TYPE_OPEN),
+                null, Arrays.asList(
+                        buildScanResult("ssid", "bssid0", 0, TestUtils.GOOD_RSSI),
+                        buildScanResult("ssid", "bssid1", 0, TestUtils.BAD_RSSI)),
+                mMockWifiManager, false /* forSavedNetworksPage */);
+        entry.setListener(mMockListener);
+
+        assertThat(entry.updateScanResultInfo(Arrays.asList(
+                buildScanResult("ssid", "bssid1", 1, TestUtils.BAD_RSSI),
+                buildScanResult("ssid", "bssid0", 1, TestUtils.GOOD_RSSI)))).isFalse();
+        mTestLooper.dispatchAll();
+
+        verify(mMockListener, never()).onUpdated();
+
+        assertThat(entry.updateScanResultInfo(Arrays.asList(
+                buildScanResult("ssid", "bssid0", 2, TestUtils.GOOD_RSSI),
+                buildScanResult("ssid", "bssid2", 2, TestUtils.BAD_RSSI)))).isTrue();
+        mTestLooper.dispatchAll();
+
+        verify(mMockListener).onUpdated();
+    }
+
+    /**
+     * Tests that the scan description lists the scans of each band sorted by descending level.
+     */
+    @Test
+    public void testGetScanResultDescription_groupsScansByBandSortedByLevel() {
+        final ScanResult scan24Bad = buildScanResult("ssid", "bssid0", 0, TestUtils.BAD_RSSI);
+        scan24Bad.frequency = 2412;
+        final ScanResult scan24Good = buildScanResult("ssid", "bssid1", 0, TestUtils.GOOD_RSSI);
+        scan24Good.frequency = 2437;
+        final ScanResult scan5 = buildScanResult("ssid", "bssid2", 0, TestUtils.OKAY_RSSI);
+        scan5.frequency = 5180;
+        final StandardWifiEntry entry = new StandardWifiEntry(
+                mMockInjector, mTestHandler,
+                ssidAndSecurityTypeToStandardWifiEntryKey("ssid", SECURITY_TYPE_OPEN),
+                null, Arrays.asList(scan24Bad, scan5, scan24Good),
+                mMockWifiManager, false /* forSavedNetworksPage */);
+
+        final String description = entry.getScanResultDescription();
+
+        assertThat(description).startsWith("[(2) \n{bssid1=2437");
+        assertThat(description.indexOf("bssid1")).isLessThan(description.indexOf("bssid0"));
+        assertThat(description).contains(";(1) \n{bssid2=5180");
+        assertThat(description).endsWith(";;]");
+
+        entry.updateScanResultInfo(Arrays.asList(scan5));
+
+        assertThat(entry.getScanResultDescription()).startsWith("[;(1) \n{bssid2=5180");
+    }
+
     /**
      * Tests that the level is updated after an update to the scan results
      */
@@ -730,6 +853,51 @@ public class StandardWifiEntryTest {
         assertThat(entry.getConnectedInfo()).isNotNull();
     }
 
+    @Test
+    public void testUpdateLinkProperties_unchanged_doesNotNotify() {
+        final WifiConfiguration config = new WifiConfiguration();
+        config.SSID = "\"ssid\"";
+        config.networkId = 1;
+        final StandardWifiEntry entry = new StandardWifiEntry(
+                mMockInjector, mTestHandler,
+                ssidAndSecurityTypeToStandardWifiEntryKey("ssid", SECURITY_TYPE_OPEN),
+                Collections.singletonList(config), null, mMockWifiManager,
+                false /* forSavedNetworksPage */);
+        when(mMockWifiInfo.getNetworkId()).thenReturn(1);
+        when(mMockWifiInfo.getRssi()).thenReturn(TestUtils.GOOD_RSSI);
+        entry.onNetworkCapabilitiesChanged(mMockNetwork, mMockNetworkCapabilities);
+        final LinkProperties linkProperties = new LinkProperties();
+        linkProperties.setLinkAddresses(Collections.singletonList(
+                new LinkAddress(InetAddresses.parseNumericAddress("192.168.1.2"), 24)));
+        linkProperties.setDnsServers(Collections.singletonList(
+                InetAddresses.parseNumericAddress("8.8.8.8")));
+
+        entry.updateLinkProperties(mMockNetwork, linkProperties);
+        final WifiEntry.ConnectedInfo connectedInfo = entry.getConnectedInfo();
+        entry.setListener(mMockListener);
+        entry.updateLinkProperties(mMockNetwork, new LinkProperties(linkProperties));
+        mTestLooper.dispatchAll();
+
+        verify(mMockListener, never()).onUpdated();
+        assertThat(connectedInfo.ipAddress).isEqualTo("192.168.1.2");
+        assertThat(connectedInfo.subnetMask).isEqualTo("255.255.255.0");
+        assertThat(connectedInfo.dnsServers).containsExactly("8.8.8.8");
+        assertThat(new WifiEntry.ConnectedInfo(connectedInfo).dnsServers)
+                .containsExactly("8.8.8.8");
+
+        // The returned info is a copy which the caller may modify.
+        connectedInfo.dnsServers.clear();
+        assertThat(entry.getConnectedInfo().dnsServers).containsExactly("8.8.8.8");
+
+        linkProperties.setDnsServers(Collections.singletonList(
+                InetAddresses.parseNumericAddress("8.8.4.4")));
+        entry.updateLinkProperties(mMockNetwork, linkProperties);
+        mTestLooper.dispatchAll();
+
+        verify(mMockListener).onUpdated();
+        assertThat(entry.getConnectedInfo().dnsServers).containsExactly("8.8.4.4");
+    }
+
     private StandardWifiEntry getSavedStandardWifiEntry(int wifiConfigurationSecureType) {
         final WifiConfiguration config = new WifiConfiguration();
         config.SSID = "\"ssid\"";
@@ -816,6 +984,77 @@ public class StandardWifiEntryTest {
         assertThat(entry.getSummary()).isEqualTo("");
     }
 
+    @Test
+    public void testGetSummary_withListener_cachedUntilNextUpdate() {
+        final String summarySeparator = " / ";
+        final String[] wifiStatusArray = new String[]{"", "Scanning", "Connecting",
+                "Authenticating", "Obtaining IP address", "Connected"};
+        when(mMockContext.getString(R.string.wifitrackerlib_summary_separator))
+                .thenReturn(summarySeparator);
+        when(mMockResources.getStringArray(R.array.wifitrackerlib_wifi_status))
+                .thenReturn(wifiStatusArray);
+        when(mMockNetworkCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED))
+                .thenReturn(true);
+        final WifiConfiguration config = new WifiConfiguration();
+        config.SSID = "\"ssid\"";
+        config.networkId = 1;
+        final StandardWifiEntry entry = new StandardWifiEntry(
+                mMockInjector, mTestHandler,
+                ssidAndSecurityTypeToStandardWifiEntryKey("ssid", SECURITY_TYPE_OPEN),
+                Collections.singletonList(config), null, mMockWifiManager,
+                false /* forSavedNetworksPage */);
+        entry.setListener(mMockListener);
+        when(mMockWifiInfo.getNetworkId()).thenReturn(1);
+        when(mMockWifiInfo.getRssi()).thenReturn(TestUtils.GOOD_RSSI);
+
+        entry.onNetworkCapabilitiesChanged(mMockNetwork, mMockNetworkCapabilities);
+        entry.onDefaultNetworkCapabilitiesChanged(mMockNetwork, mMockNetworkCapabilities);
+        Mockito.clearInvocations(mMockResources);
+
+        assertThat(entry.getSummary()).isEqualTo("Connected");
+        assertThat(entry.getSummary()).isEqualTo("Connected");
+        verify(mMockResources, times(0)).getStringArray(R.array.wifitrackerlib_wifi_status);
+
+        entry.onNetworkLost(mMockNetwork);
+
+        assertThat(entry.getSummary()).isNotEqualTo("Connected");
+    }
+
+    @Test
+    public void testGetSummary_withListenerAndLocaleChanged_rebuildsCachedSummary() {
+        final Configuration configuration = new Configuration();
+        configuration.setLocales(new LocaleList(Locale.US));
+        when(mMockResources.getConfiguration()).thenReturn(configuration);
+        when(mMockResources.getString(anyInt())).thenReturn("");
+        when(mMockResources.getStringArray(R.array.wifitrackerlib_wifi_status))
+                .thenReturn(new String[]{"", "Scanning", "Connecting", "Authenticating",
+                        "Obtaining IP address", "Connected"});
+        when(mMockNetworkCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED))
+                .thenReturn(true);
+        final WifiConfiguration config = new WifiConfiguration();
+        config.SSID = "\"ssid\"";
+        config.networkId = 1;
+        final StandardWifiEntry entry = new StandardWifiEntry(
+                mMockInjector, mTestHandler,
+                ssidAndSecurityTypeToStandardWifiEntryKey("ssid", SECURITY_TYPE_OPEN),
+                Collections.singletonList(config), null, mMockWifiManager,
+                false /* forSavedNetworksPage */);
+        entry.setListener(mMockListener);
+        when(mMockWifiInfo.getNetworkId()).thenReturn(1);
+        when(mMockWifiInfo.getRssi()).thenReturn(TestUtils.GOOD_RSSI);
+        entry.onNetworkCapabilitiesChanged(mMockNetwork, mMockNetworkCapabilities);
+        entry.onDefaultNetworkCapabilitiesChanged(mMockNetwork, mMockNetworkCapabilities);
+
+        assertThat(entry.getSummary()).isEqualTo("Connected");
+
+        configuration.setLocales(new LocaleList(Locale.FRANCE));
+        when(mMockResources.getStringArray(R.array.wifitrackerlib_wifi_status))
+                .thenReturn(new String[]{"", "Recherche…", "Connexion…", "Authentification…",
+                        "Obtention de l'adresse IP…", "Connecté"});
+
+        assertThat(entry.getSummary()).isEqualTo("Connecté");
+    }
+
     @Test
     public void testShouldShowXLevelIcon_unvalidatedOrNotDefault_returnsTrue() {
         final int networkId = 1;
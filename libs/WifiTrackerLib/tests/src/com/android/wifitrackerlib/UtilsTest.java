@@ -162,6 +162,8 @@ public class UtilsTest {
 
         TestLooper testLooper = new TestLooper();
         mTestHandler = new Handler(testLooper.getLooper());
+        when(mMockInjector.getWifiEntryUpdateBatcher(any()))
+                .thenReturn(new WifiEntryUpdateBatcher(mTestHandler));
         when(mMockContext.getResources()).thenReturn(mMockResources);
         when(mMockContext.getText(R.string.wifitrackerlib_imsi_protection_warning))
                 .thenReturn("IMSI");
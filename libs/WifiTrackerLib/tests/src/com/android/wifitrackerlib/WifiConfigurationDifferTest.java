@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import static android.net.wifi.WifiManager.CHANGE_REASON_ADDED;
+import static android.net.wifi.WifiManager.CHANGE_REASON_CONFIG_CHANGE;
+import static android.net.wifi.WifiManager.CHANGE_REASON_REMOVED;
+
+import static com.android.wifitrackerlib.TestUtils.buildWifiConfiguration;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.wifi.WifiConfiguration;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class WifiConfigurationDifferTest {
+    private final WifiConfigurationDiffer mDiffer = new WifiConfigurationDiffer();
+
+    private static WifiConfiguration buildConfig(String ssid, int networkId) {
+        final WifiConfiguration config = buildWifiConfiguration(ssid);
+        config.networkId = networkId;
+        config.setSecurityParams(WifiConfiguration.SECURITY_TYPE_PSK);
+        return config;
+    }
+
+    /**
+     * Verifies that the first update has no previous configs to diff against.
+     */
+    @Test
+    public void testUpdate_firstUpdate_returnsNull() {
+        assertThat(mDiffer.update(Collections.singletonList(buildConfig("ssid", 1)))).isNull();
+    }
+
+    /**
+     * Verifies that equal copies of the previous configs are not reported as changed.
+     */
+    @Test
+    public void testUpdate_unchangedConfigs_returnsEmptyDiff() {
+        mDiffer.update(Arrays.asList(buildConfig("ssid1", 1), buildConfig("ssid2", 2)));
+
+        final WifiConfigurationDiffer.Diff diff =
+                mDiffer.update(Arrays.asList(buildConfig("ssid2", 2), buildConfig("ssid1", 1)));
+
+        assertThat(diff.isEmpty()).isTrue();
+        assertThat(diff.removedConfigs).isEmpty();
+        assertThat(diff.addedConfigs).isEmpty();
+    }
+
+    /**
+     * Verifies that added, removed and changed configs are reported with their reasons.
+     */
+    @Test
+    public void testUpdate_changedConfigs_reportsChangeReasons() {
+        final WifiConfiguration removed = buildConfig("removed", 1);
+        final WifiConfiguration changedBefore = buildConfig("changed", 2);
+        mDiffer.update(Arrays.asList(removed, changedBefore, buildConfig("unchanged", 3)));
+        final WifiConfiguration changedAfter = buildConfig("changed", 2);
+        changedAfter.meteredOverride = WifiConfiguration.METERED_OVERRIDE_METERED;
+        final WifiConfiguration added = buildConfig("added", 4);
+
+        final WifiConfigurationDiffer.Diff diff = mDiffer.update(
+                Arrays.asList(changedAfter, buildConfig("unchanged", 3), added));
+
+        assertThat(diff.changeReasons).containsExactly(
+                1, CHANGE_REASON_REMOVED,
+                2, CHANGE_REASON_CONFIG_CHANGE,
+                4, CHANGE_REASON_ADDED);
+        assertThat(diff.removedConfigs).containsExactly(removed, changedBefore);
+        assertThat(diff.addedConfigs).containsExactly(changedAfter, added);
+    }
+
+    /**
+     * Verifies that configs sharing a networkId cannot be diffed.
+     */
+    @Test
+    public void testUpdate_duplicateNetworkIds_returnsNull() {
+        mDiffer.update(Collections.singletonList(buildConfig("ssid", 1)));
+
+        assertThat(mDiffer.update(Arrays.asList(
+                buildConfig("ssid1", WifiConfiguration.INVALID_NETWORK_ID),
+                buildConfig("ssid2", WifiConfiguration.INVALID_NETWORK_ID)))).isNull();
+    }
+
+    /**
+     * Verifies that a change to a field that entries do not display is still reported.
+     */
+    @Test
+    public void testUpdate_enterprisePasswordChanged_reportsConfigChange() {
+        final WifiConfiguration config = buildConfig("ssid", 1);
+        config.setSecurityParams(WifiConfiguration.SECURITY_TYPE_EAP);
+        config.enterpriseConfig.setPassword("password");
+        mDiffer.update(Collections.singletonList(config));
+
+        final WifiConfiguration changedConfig = new WifiConfiguration(config);
+        changedConfig.enterpriseConfig.setPassword("new password");
+        final WifiConfigurationDiffer.Diff diff =
+                mDiffer.update(Collections.singletonList(changedConfig));
+
+        assertThat(diff.changeReasons).containsExactly(1, CHANGE_REASON_CONFIG_CHANGE);
+        assertThat(diff.addedConfigs).containsExactly(changedConfig);
+    }
+}
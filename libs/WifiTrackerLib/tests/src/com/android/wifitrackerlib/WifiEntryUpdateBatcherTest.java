@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.net.wifi.WifiManager;
+import android.os.Handler;
+import android.os.test.TestLooper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Set;
+
+public class WifiEntryUpdateBatcherTest {
+    @Mock private WifiTrackerInjector mMockInjector;
+    @Mock private Context mMockContext;
+    @Mock private WifiManager mMockWifiManager;
+    @Mock private WifiEntry.WifiEntryCallback mMockListener1;
+    @Mock private WifiEntry.WifiEntryCallback mMockListener2;
+    @Mock private WifiEntryUpdateBatcher.BatchCallback mMockBatchCallback;
+
+    private TestLooper mTestLooper;
+    private Handler mTestHandler;
+    private WifiEntryUpdateBatcher mBatcher;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        mTestLooper = new TestLooper();
+        mTestHandler = new Handler(mTestLooper.getLooper());
+        mBatcher = new WifiEntryUpdateBatcher(mTestHandler);
+        when(mMockInjector.getContext()).thenReturn(mMockContext);
+        when(mMockInjector.getWifiEntryUpdateBatcher(any())).thenReturn(mBatcher);
+    }
+
+    private MergedCarrierEntry createWifiEntry(String key) {
+        return new MergedCarrierEntry(mMockInjector, mTestHandler, mMockWifiManager,
+                false /* forSavedNetworksPage */, key.hashCode());
+    }
+
+    /**
+     * Verifies that updates of multiple entries are delivered with a single message.
+     */
+    @Test
+    public void testEnqueue_multipleEntries_deliveredInOneMessage() {
+        final WifiEntry entry1 = createWifiEntry("1");
+        final WifiEntry entry2 = createWifiEntry("2");
+        entry1.setListener(mMockListener1);
+        entry2.setListener(mMockListener2);
+
+        mBatcher.enqueue(entry1);
+        mBatcher.enqueue(entry2);
+        mBatcher.enqueue(entry1);
+
+        assertThat(mTestLooper.dispatchAll()).isEqualTo(1);
+        verify(mMockListener1, times(1)).onUpdated();
+        verify(mMockListener2, times(1)).onUpdated();
+    }
+
+    /**
+     * Verifies that the batch callback receives every updated entry, including entries without a
+     * listener of their own.
+     */
+    @Test
+    public void testBatchCallback_receivesUpdatedEntries() {
+        mBatcher.setBatchCallback(mMockBatchCallback);
+        final WifiEntry entry1 = createWifiEntry("1");
+        final WifiEntry entry2 = createWifiEntry("2");
+        entry1.setListener(mMockListener1);
+
+        mBatcher.enqueue(entry1);
+        mBatcher.enqueue(entry2);
+        mTestLooper.dispatchAll();
+
+        final ArgumentCaptor<Set<WifiEntry>> captor = ArgumentCaptor.forClass(Set.class);
+        verify(mMockBatchCallback).onWifiEntriesUpdated(captor.capture());
+        assertThat(captor.getValue()).containsExactly(entry1, entry2);
+        verify(mMockListener1).onUpdated();
+    }
+
+    /**
+     * Verifies that entries without a listener are not queued if there is no batch callback.
+     */
+    @Test
+    public void testNotifyOnUpdated_noListenerOrBatchCallback_doesNotPost() {
+        final MergedCarrierEntry entry = createWifiEntry("1");
+
+        entry.notifyOnUpdated();
+
+        assertThat(mTestLooper.dispatchAll()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import static android.net.wifi.WifiInfo.SECURITY_TYPE_PSK;
+import static android.net.wifi.WifiInfo.SECURITY_TYPE_SAE;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+
+public class WifiPickerSnapshotStoreTest {
+    @Rule public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private static WifiPickerSnapshot buildSnapshot(long timestampMillis, int level) {
+        return buildSnapshot(timestampMillis, level, true /* isSaved */);
+    }
+
+    private static WifiPickerSnapshot buildSnapshot(long timestampMillis, int level,
+            boolean isSaved) {
+        return new WifiPickerSnapshot(timestampMillis, Arrays.asList(
+                new WifiPickerSnapshot.Entry("key1", "ssid1", level,
+                        Arrays.asList(SECURITY_TYPE_PSK, SECURITY_TYPE_SAE), isSaved),
+                new WifiPickerSnapshot.Entry("key2", "ssid2", 1,
+                        Collections.emptyList(), false /* isSaved */)));
+    }
+
+    /**
+     * Verifies that a written snapshot is read back by a new store for the same file.
+     */
+    @Test
+    public void testRead_afterWrite_returnsWrittenSnapshot() throws Exception {
+        final File file = new File(mTemporaryFolder.getRoot(), "snapshot");
+        final WifiPickerSnapshot snapshot = buildSnapshot(1000, 4);
+
+        new WifiPickerSnapshotStore(file, Runnable::run).write(snapshot);
+        final WifiPickerSnapshot readSnapshot =
+                new WifiPickerSnapshotStore(file, Runnable::run).read();
+
+        assertThat(readSnapshot.getTimestampMillis()).isEqualTo(1000);
+        assertThat(readSnapshot.getEntries()).isEqualTo(snapshot.getEntries());
+    }
+
+    /**
+     * Verifies that a missing or unreadable file is read as no snapshot.
+     */
+    @Test
+    public void testRead_missingOrCorruptFile_returnsNull() throws Exception {
+        final File file = new File(mTemporaryFolder.getRoot(), "snapshot");
+        assertThat(new WifiPickerSnapshotStore(file, Runnable::run).read()).isNull();
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[] {1, 2, 3});
+        }
+
+        assertThat(new WifiPickerSnapshotStore(file, Runnable::run).read()).isNull();
+    }
+
+    /**
+     * Verifies that snapshots with unchanged entries are not written again.
+     */
+    @Test
+    public void testWrite_sameEntries_skipsWrite() {
+        final Executor executor = mock(Executor.class);
+        final WifiPickerSnapshotStore store = new WifiPickerSnapshotStore(
+                new File(mTemporaryFolder.getRoot(), "snapshot"), executor);
+
+        store.write(buildSnapshot(1000, 4));
+        store.write(buildSnapshot(2000, 4));
+
+        verify(executor, times(1)).execute(any());
+    }
+
+    /**
+     * Verifies that snapshots differing only in signal level are not written again.
+     */
+    @Test
+    public void testWrite_onlyLevelChanged_skipsWrite() {
+        final Executor executor = mock(Executor.class);
+        final WifiPickerSnapshotStore store = new WifiPickerSnapshotStore(
+                new File(mTemporaryFolder.getRoot(), "snapshot"), executor);
+
+        store.write(buildSnapshot(1000, 4));
+        store.write(buildSnapshot(2000, 3));
+
+        verify(executor, times(1)).execute(any());
+    }
+
+    /**
+     * Verifies that snapshots submitted while a write is pending are conflated into that write.
+     */
+    @Test
+    public void testWrite_pendingWrite_writesLatestSnapshot() {
+        final Executor executor = mock(Executor.class);
+        final File file = new File(mTemporaryFolder.getRoot(), "snapshot");
+        final WifiPickerSnapshotStore store = new WifiPickerSnapshotStore(file, executor);
+
+        store.write(buildSnapshot(1000, 4, true /* isSaved */));
+        store.write(buildSnapshot(2000, 4, false /* isSaved */));
+        final ArgumentCaptor<Runnable> writeCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, times(1)).execute(writeCaptor.capture());
+        writeCaptor.getValue().run();
+
+        assertThat(new WifiPickerSnapshotStore(file, Runnable::run).read().getTimestampMillis())
+                .isEqualTo(2000);
+    }
+}
@@ -38,16 +38,21 @@ import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 
+import android.Manifest;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
 import android.content.res.Resources;
+import android.location.LocationManager;
 import android.net.ConnectivityDiagnosticsManager;
 import android.net.ConnectivityManager;
 import android.net.LinkProperties;
@@ -85,11 +90,13 @@ import androidx.lifecycle.Lifecycle;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.mockito.MockitoSession;
 
+import java.io.File;
 import java.time.Clock;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -116,6 +123,7 @@ public class WifiPickerTrackerTest {
     @Mock private ConnectivityDiagnosticsManager mMockConnectivityDiagnosticsManager;
     @Mock private TelephonyManager mMockTelephonyManager;
     @Mock private SubscriptionManager mMockSubscriptionManager;
+    @Mock private LocationManager mMockLocationManager;
     @Mock private Clock mMockClock;
     @Mock private WifiPickerTracker.WifiPickerTrackerCallback mMockCallback;
     @Mock private WifiInfo mMockWifiInfo;
@@ -161,6 +169,8 @@ public class WifiPickerTrackerTest {
         MockitoAnnotations.initMocks(this);
 
         mTestLooper = new TestLooper();
+        when(mInjector.getWifiEntryUpdateBatcher(any())).thenReturn(
+                new WifiEntryUpdateBatcher(new Handler(mTestLooper.getLooper())));
 
         when(mMockWifiManager.getScanResults()).thenReturn(new ArrayList<>());
         when(mMockWifiManager.getCurrentNetwork()).thenReturn(mMockNetwork);
@@ -218,6 +228,11 @@ public class WifiPickerTrackerTest {
         when(mMockContext.getSystemService(WifiScanner.class)).thenReturn(mWifiScanner);
         when(mMockContext.getSystemService(SharedConnectivityManager.class))
                 .thenReturn(mMockSharedConnectivityManager);
+        when(mMockContext.getSystemService(LocationManager.class))
+                .thenReturn(mMockLocationManager);
+        when(mMockLocationManager.isLocationEnabled()).thenReturn(true);
+        when(mMockContext.checkSelfPermission(Manifest.permission.ACCESS_FINE_LOCATION))
+                .thenReturn(PackageManager.PERMISSION_GRANTED);
         when(mMockContext.getString(anyInt())).thenReturn("");
         when(mMockResources.getStringArray(R.array.wifitrackerlib_wifi_status)).thenReturn(
                 new String[]{"", "Scanning", "Connecting", "Authenticating", "Obtaining IP address",
@@ -270,6 +285,72 @@ public class WifiPickerTrackerTest {
         verify(mMockCallback, atLeastOnce()).onWifiStateChanged();
     }
 
+    /**
+     * Tests that trackers sharing a WifiTrackerHub make a single set of registrations and a single
+     * scan results fetch, and that each of them handles the broadcasts the hub receives.
+     */
+    @Test
+    public void testWifiTrackerHub_multipleTrackers_shareRegistrationsAndBroadcasts() {
+        when(mInjector.getWifiTrackerHub()).thenReturn(new WifiTrackerHub(mMockContext,
+                mMockWifiManager, mMockConnectivityManager, mMockConnectivityDiagnosticsManager,
+                new Handler(mTestLooper.getLooper())));
+        final WifiPickerTracker wifiPickerTracker1 = createTestWifiPickerTracker();
+        final WifiPickerTracker wifiPickerTracker2 = createTestWifiPickerTracker();
+        wifiPickerTracker1.onStart();
+        wifiPickerTracker2.onStart();
+        mTestLooper.dispatchAll();
+
+        verify(mMockContext, times(1)).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        verify(mMockConnectivityManager, times(1)).registerNetworkCallback(any(), any(),
+                any(Handler.class));
+        verify(mMockWifiManager, times(1)).getScanResults();
+
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.WIFI_STATE_CHANGED_ACTION)
+                        .putExtra(WifiManager.EXTRA_WIFI_STATE, WifiManager.WIFI_STATE_DISABLED));
+        mTestLooper.dispatchAll();
+
+        assertThat(wifiPickerTracker1.getWifiState()).isEqualTo(WifiManager.WIFI_STATE_DISABLED);
+        assertThat(wifiPickerTracker2.getWifiState()).isEqualTo(WifiManager.WIFI_STATE_DISABLED);
+
+        wifiPickerTracker1.onStop();
+        mTestLooper.dispatchAll();
+        verify(mMockContext, never()).unregisterReceiver(any());
+        wifiPickerTracker2.onStop();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).unregisterReceiver(mBroadcastReceiverCaptor.getValue());
+    }
+
+    /**
+     * Tests that a tracker started with verbose logging after another tracker attached to the
+     * shared WifiTrackerHub gets the RSSI_CHANGED broadcasts registered for.
+     */
+    @Test
+    public void testWifiTrackerHub_verboseTrackerAttachesLater_registersRssiChanged() {
+        when(mInjector.getWifiTrackerHub()).thenReturn(new WifiTrackerHub(mMockContext,
+                mMockWifiManager, mMockConnectivityManager, mMockConnectivityDiagnosticsManager,
+                new Handler(mTestLooper.getLooper())));
+        final ArgumentCaptor<IntentFilter> filterCaptor =
+                ArgumentCaptor.forClass(IntentFilter.class);
+        final WifiPickerTracker wifiPickerTracker1 = createTestWifiPickerTracker();
+        final WifiPickerTracker wifiPickerTracker2 = createTestWifiPickerTracker();
+        when(mInjector.isVerboseLoggingEnabled()).thenReturn(false);
+        wifiPickerTracker1.onStart();
+        mTestLooper.dispatchAll();
+        when(mInjector.isVerboseLoggingEnabled()).thenReturn(true);
+        wifiPickerTracker2.onStart();
+        mTestLooper.dispatchAll();
+
+        verify(mMockContext, times(2)).registerReceiver(any(), filterCaptor.capture(), any(),
+                any());
+        assertThat(filterCaptor.getAllValues().get(0)
+                .hasAction(WifiManager.RSSI_CHANGED_ACTION)).isFalse();
+        assertThat(filterCaptor.getAllValues().get(1).countActions()).isEqualTo(1);
+        assertThat(filterCaptor.getAllValues().get(1)
+                .hasAction(WifiManager.RSSI_CHANGED_ACTION)).isTrue();
+    }
+
     /**
      * Tests that a CONFIGURED_NETWORKS_CHANGED broadcast notifies the listener for
      * numSavedNetworksChanged.
@@ -363,6 +444,39 @@ public class WifiPickerTrackerTest {
         assertThat(seenTitles).containsExactly("Open Network", "Secure Network");
     }
 
+    /**
+     * Tests that getNumDroppedEntryScanUpdates() counts the entries whose scans were unchanged in
+     * the last scan update cycle.
+     */
+    @Test
+    public void testGetNumDroppedEntryScanUpdates_unchangedScans_countsDroppedUpdates() {
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        when(mMockWifiManager.getScanResults()).thenReturn(Arrays.asList(
+                buildScanResult("ssid0", "bssid0", START_MILLIS),
+                buildScanResult("ssid1", "bssid1", START_MILLIS)));
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+
+        assertThat(wifiPickerTracker.getNumDroppedEntryScanUpdates()).isEqualTo(0);
+
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+
+        assertThat(wifiPickerTracker.getNumDroppedEntryScanUpdates()).isEqualTo(2);
+
+        when(mMockWifiManager.getScanResults()).thenReturn(Arrays.asList(
+                buildScanResult("ssid0", "bssid0", START_MILLIS),
+                buildScanResult("ssid1", "bssid2", START_MILLIS)));
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+
+        assertThat(wifiPickerTracker.getNumDroppedEntryScanUpdates()).isEqualTo(1);
+    }
+
     /**
      * Tests that old WifiEntries are timed out if their scans are older than the max scan age.
      */
@@ -534,6 +648,39 @@ public class WifiPickerTrackerTest {
         assertThat(entry.isSaved()).isFalse();
     }
 
+    /**
+     * Tests that a CONFIGURED_NETWORKS_CHANGED broadcast with unchanged configs leaves the entries
+     * untouched and does not report a config change.
+     */
+    @Test
+    public void testGetWifiEntries_configuredNetworksUnchanged_doesNotUpdateEntries() {
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        final WifiConfiguration config = new WifiConfiguration();
+        config.SSID = "\"ssid\"";
+        config.networkId = 1;
+        when(mMockWifiManager.getPrivilegedConfiguredNetworks())
+                .thenReturn(Collections.singletonList(config));
+        when(mMockWifiManager.getScanResults()).thenReturn(Arrays.asList(
+                buildScanResult("ssid", "bssid", START_MILLIS)));
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        final WifiEntry entry = wifiPickerTracker.getWifiEntries().get(0);
+        assertThat(entry.getWifiConfiguration()).isSameInstanceAs(config);
+
+        final WifiConfiguration sameConfig = new WifiConfiguration(config);
+        when(mMockWifiManager.getPrivilegedConfiguredNetworks())
+                .thenReturn(Collections.singletonList(sameConfig));
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION));
+        mTestLooper.dispatchAll();
+
+        assertThat(entry.getWifiConfiguration()).isSameInstanceAs(config);
+        assertThat(wifiPickerTracker.getNumSavedNetworks()).isEqualTo(1);
+        verify(mMockCallback, never()).onWifiConfigurationsChanged(any());
+    }
+
     /**
      * Tests that a CONFIGURED_NETWORKS_CHANGED broadcast does not create WifiEntries based on
      * cached scan results if Wi-Fi is disabled.
@@ -586,6 +733,459 @@ public class WifiPickerTrackerTest {
         assertThat(wifiPickerTracker.getConnectedWifiEntry()).isNotNull();
     }
 
+    /**
+     * Tests that a tracker in connected-only mode tracks the connected WifiEntry without fetching
+     * or processing scans.
+     */
+    @Test
+    public void testEnableConnectedOnlyMode_tracksConnectedEntryWithoutScans() {
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        wifiPickerTracker.enableConnectedOnlyMode();
+        final WifiConfiguration config = new WifiConfiguration();
+        config.SSID = "\"ssid\"";
+        config.networkId = 1;
+        when(mMockWifiManager.getPrivilegedConfiguredNetworks())
+                .thenReturn(Collections.singletonList(config));
+        when(mMockWifiManager.getScanResults()).thenReturn(Arrays.asList(
+                buildScanResult("ssid", "bssid", START_MILLIS),
+                buildScanResult("other", "bssid1", START_MILLIS)));
+        when(mMockWifiInfo.getNetworkId()).thenReturn(1);
+        when(mMockWifiInfo.getRssi()).thenReturn(-50);
+
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        final ArgumentCaptor<IntentFilter> filterCaptor =
+                ArgumentCaptor.forClass(IntentFilter.class);
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                filterCaptor.capture(), any(), any());
+        assertThat(filterCaptor.getValue().hasAction(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION))
+                .isFalse();
+        assertThat(filterCaptor.getValue().hasAction(WifiManager.NETWORK_STATE_CHANGED_ACTION))
+                .isTrue();
+        verify(mInjector, never()).disableVerboseLogging();
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.WIFI_STATE_CHANGED_ACTION).putExtra(
+                        WifiManager.EXTRA_WIFI_STATE, WifiManager.WIFI_STATE_ENABLED));
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+        mTestLooper.dispatchAll();
+
+        assertThat(wifiPickerTracker.getConnectedWifiEntry()).isNotNull();
+        assertThat(wifiPickerTracker.getConnectedWifiEntry().getSsid()).isEqualTo("ssid");
+        assertThat(wifiPickerTracker.getWifiEntries()).isEmpty();
+        verify(mMockWifiManager, never()).getScanResults();
+        verify(mMockWifiManager, never()).getAllMatchingWifiConfigs(any());
+        verify(mMockWifiManager, never()).startScan();
+        verify(mWifiScanner, never()).startScan(any(), any());
+    }
+
+    /**
+     * Tests that enableConnectedOnlyMode() cannot be called once the tracker was started.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testEnableConnectedOnlyMode_afterOnStart_throwsIllegalStateException() {
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+
+        wifiPickerTracker.enableConnectedOnlyMode();
+    }
+
+    /**
+     * Tests that onStart() publishes the standard and connected entries before matching the scans
+     * against the Passpoint providers.
+     */
+    @Test
+    public void testOnStart_publishesEntriesBeforePasspointMatching() {
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        when(mMockWifiManager.getScanResults()).thenReturn(Collections.singletonList(
+                buildScanResult("ssid", "bssid", START_MILLIS)));
+
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+
+        final InOrder inOrder = inOrder(mMockCallback, mMockWifiManager);
+        inOrder.verify(mMockCallback)
+                .onWifiEntriesChanged(WifiPickerTracker.WIFI_ENTRIES_CHANGED_REASON_GENERAL);
+        inOrder.verify(mMockWifiManager).getAllMatchingWifiConfigs(any());
+        inOrder.verify(mMockCallback)
+                .onWifiEntriesChanged(WifiPickerTracker.WIFI_ENTRIES_CHANGED_REASON_GENERAL);
+        assertThat(wifiPickerTracker.getWifiEntries()).hasSize(1);
+    }
+
+    /**
+     * Tests that callbacks of the same kind are conflated while one is pending on the main thread,
+     * and that the merged onWifiEntriesChanged() reason favors full scan results.
+     */
+    @Test
+    public void testCallbacksPending_conflatesCallbacksOfSameKind() {
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        final BroadcastReceiver receiver = mBroadcastReceiverCaptor.getValue();
+        Mockito.clearInvocations(mMockCallback);
+        final int numConflatedCallbacks = wifiPickerTracker.getNumConflatedCallbacks();
+
+        receiver.onReceive(mMockContext,
+                new Intent(WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION));
+        receiver.onReceive(mMockContext,
+                new Intent(WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION));
+        receiver.onReceive(mMockContext,
+                new Intent(WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION));
+        receiver.onReceive(mMockContext, new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+        mTestLooper.dispatchAll();
+
+        verify(mMockCallback, times(1)).onNumSavedNetworksChanged();
+        verify(mMockCallback, times(1)).onNumSavedSubscriptionsChanged();
+        verify(mMockCallback, never())
+                .onWifiEntriesChanged(WifiPickerTracker.WIFI_ENTRIES_CHANGED_REASON_GENERAL);
+        verify(mMockCallback, atLeastOnce())
+                .onWifiEntriesChanged(WifiPickerTracker.WIFI_ENTRIES_CHANGED_REASON_SCAN_RESULTS);
+        assertThat(wifiPickerTracker.getNumConflatedCallbacks() - numConflatedCallbacks)
+                .isAtLeast(6);
+    }
+
+    /**
+     * Tests that a listener added with a minimum update interval is notified on its executor at
+     * most once per interval, independently of the listener passed at construction.
+     */
+    @Test
+    public void testAddListener_minUpdateInterval_throttlesOnlyThatListener() {
+        final long minUpdateIntervalMillis = 10_000;
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        final WifiPickerTracker.WifiPickerTrackerCallback slowCallback =
+                mock(WifiPickerTracker.WifiPickerTrackerCallback.class);
+        wifiPickerTracker.addListener(Runnable::run, slowCallback, minUpdateIntervalMillis);
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        verify(slowCallback, times(1)).onWifiEntriesChanged(anyInt());
+        Mockito.clearInvocations(mMockCallback);
+
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION));
+        mTestLooper.dispatchAll();
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION));
+        mTestLooper.dispatchAll();
+
+        verify(mMockCallback, times(2)).onNumSavedNetworksChanged();
+        verify(slowCallback, times(1)).onWifiEntriesChanged(anyInt());
+        verify(slowCallback, times(1)).onNumSavedNetworksChanged();
+
+        mTestLooper.moveTimeForward(minUpdateIntervalMillis);
+        mTestLooper.dispatchAll();
+
+        verify(slowCallback, times(2)).onWifiEntriesChanged(anyInt());
+        verify(slowCallback, times(2)).onNumSavedNetworksChanged();
+
+        wifiPickerTracker.removeListener(slowCallback);
+        mTestLooper.moveTimeForward(minUpdateIntervalMillis);
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION));
+        mTestLooper.dispatchAll();
+
+        verify(slowCallback, times(2)).onNumSavedNetworksChanged();
+    }
+
+    /**
+     * Tests that a batch of WifiEntry updates is delivered to the listener passed at construction
+     * and to every added listener.
+     */
+    @Test
+    public void testAddListener_wifiEntriesUpdated_deliveredToEveryListener() {
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        final WifiPickerTracker.WifiPickerTrackerCallback addedCallback =
+                mock(WifiPickerTracker.WifiPickerTrackerCallback.class);
+        wifiPickerTracker.addListener(Runnable::run, addedCallback,
+                0 /* minUpdateIntervalMillis */);
+        when(mMockWifiManager.getScanResults()).thenReturn(Arrays.asList(
+                buildScanResult("ssid", "bssid", START_MILLIS)));
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        final WifiEntry entry = wifiPickerTracker.getWifiEntries().get(0);
+        Mockito.clearInvocations(mMockCallback, addedCallback);
+
+        entry.notifyOnUpdated();
+        mTestLooper.dispatchAll();
+
+        verify(mMockCallback).onWifiEntriesUpdated(Collections.singleton(entry));
+        verify(addedCallback).onWifiEntriesUpdated(Collections.singleton(entry));
+    }
+
+    /**
+     * Tests that the throttle timers of a listener are removed once the tracker is stopped, so
+     * that no callback held back by them is delivered afterwards.
+     */
+    @Test
+    public void testAddListener_stoppedWhileThrottled_dropsThrottledCallbacks() {
+        final long minUpdateIntervalMillis = 10_000;
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        final WifiPickerTracker.WifiPickerTrackerCallback slowCallback =
+                mock(WifiPickerTracker.WifiPickerTrackerCallback.class);
+        wifiPickerTracker.addListener(Runnable::run, slowCallback, minUpdateIntervalMillis);
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION));
+        mTestLooper.dispatchAll();
+        verify(slowCallback, times(1)).onWifiEntriesChanged(anyInt());
+
+        wifiPickerTracker.onStop();
+        mTestLooper.moveTimeForward(minUpdateIntervalMillis);
+        mTestLooper.dispatchAll();
+
+        verify(slowCallback, times(1)).onWifiEntriesChanged(anyInt());
+    }
+
+    /**
+     * Tests that getWifiEntryColumns() describes the published WifiEntries and marks only the rows
+     * which changed since the previous update.
+     */
+    @Test
+    public void testGetWifiEntryColumns_marksChangedRows() {
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        when(mMockWifiManager.getScanResults()).thenReturn(Arrays.asList(
+                buildScanResult("ssid1", "bssid1", START_MILLIS, GOOD_RSSI),
+                buildScanResult("ssid2", "bssid2", START_MILLIS, GOOD_RSSI)));
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+
+        WifiEntryColumns columns = wifiPickerTracker.getWifiEntryColumns();
+        final List<WifiEntry> wifiEntries = wifiPickerTracker.getWifiEntries();
+        assertThat(columns.getRowCount()).isEqualTo(2);
+        assertThat(columns.getActiveRowCount()).isEqualTo(0);
+        for (int row = 0; row < columns.getRowCount(); row++) {
+            assertThat(columns.getKey(row)).isEqualTo(wifiEntries.get(row).getKey());
+            assertThat(columns.getTitle(row)).isEqualTo(wifiEntries.get(row).getTitle());
+            assertThat(columns.getLevel(row)).isEqualTo(GOOD_LEVEL);
+            assertThat(columns.getFlags(row) & WifiEntryColumns.FLAG_SAVED).isEqualTo(0);
+            assertThat(columns.isRowChanged(row)).isTrue();
+        }
+
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+        mTestLooper.dispatchAll();
+
+        columns = wifiPickerTracker.getWifiEntryColumns();
+        assertThat(columns.hasChangedRows()).isFalse();
+
+        when(mMockWifiManager.getScanResults()).thenReturn(Arrays.asList(
+                buildScanResult("ssid1", "bssid1", START_MILLIS + 1, GOOD_RSSI),
+                buildScanResult("ssid2", "bssid2", START_MILLIS + 1, BAD_RSSI)));
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+        mTestLooper.dispatchAll();
+
+        columns = wifiPickerTracker.getWifiEntryColumns();
+        for (int row = 0; row < columns.getRowCount(); row++) {
+            assertThat(columns.isRowChanged(row))
+                    .isEqualTo(columns.getTitle(row).equals("ssid2"));
+        }
+    }
+
+    /**
+     * Tests that getChangedRows() marks the rows which changed since given columns older than the
+     * previous update, e.g. the ones bound by a listener whose callbacks were conflated.
+     */
+    @Test
+    public void testGetWifiEntryColumns_changedRowsSinceOlderColumns() {
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        when(mMockWifiManager.getScanResults()).thenReturn(Arrays.asList(
+                buildScanResult("ssid1", "bssid1", START_MILLIS, GOOD_RSSI),
+                buildScanResult("ssid2", "bssid2", START_MILLIS, GOOD_RSSI)));
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        final WifiEntryColumns boundColumns = wifiPickerTracker.getWifiEntryColumns();
+        assertThat(boundColumns.getChangedRows(boundColumns).isEmpty()).isTrue();
+
+        when(mMockWifiManager.getScanResults()).thenReturn(Arrays.asList(
+                buildScanResult("ssid1", "bssid1", START_MILLIS + 1, GOOD_RSSI),
+                buildScanResult("ssid2", "bssid2", START_MILLIS + 1, BAD_RSSI)));
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+        mTestLooper.dispatchAll();
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+        mTestLooper.dispatchAll();
+
+        final WifiEntryColumns columns = wifiPickerTracker.getWifiEntryColumns();
+        assertThat(columns.hasChangedRows()).isFalse();
+        final BitSet changedRows = columns.getChangedRows(boundColumns);
+        for (int row = 0; row < columns.getRowCount(); row++) {
+            assertThat(changedRows.get(row)).isEqualTo(columns.getTitle(row).equals("ssid2"));
+        }
+    }
+
+    /**
+     * Tests that searchWifiEntries() returns the entries whose title starts with the prefix in
+     * picker order, and that the results of the search query are pushed as the scans change.
+     */
+    @Test
+    public void testSearchWifiEntries_matchesTitlePrefixAndPushesUpdates() {
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        when(mMockWifiManager.getScanResults()).thenReturn(Arrays.asList(
+                buildScanResult("Corp-Guest", "bssid1", START_MILLIS, BAD_RSSI),
+                buildScanResult("corp-secure", "bssid2", START_MILLIS, GOOD_RSSI),
+                buildScanResult("Home", "bssid3", START_MILLIS, GOOD_RSSI)));
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+
+        assertThat(wifiPickerTracker.searchWifiEntries("CORP").stream()
+                .map(WifiEntry::getTitle)
+                .collect(Collectors.toList()))
+                .containsExactly("corp-secure", "Corp-Guest").inOrder();
+        assertThat(wifiPickerTracker.searchWifiEntries("Work")).isEmpty();
+
+        wifiPickerTracker.setSearchQuery("home");
+        mTestLooper.dispatchAll();
+
+        verify(mMockCallback, times(1)).onSearchResultsChanged();
+        assertThat(wifiPickerTracker.getSearchResults().stream()
+                .map(WifiEntry::getTitle)
+                .collect(Collectors.toList()))
+                .containsExactly("Home");
+
+        when(mMockWifiManager.getScanResults()).thenReturn(Arrays.asList(
+                buildScanResult("Corp-Guest", "bssid1", START_MILLIS + 1, BAD_RSSI),
+                buildScanResult("corp-secure", "bssid2", START_MILLIS + 1, GOOD_RSSI),
+                buildScanResult("Home", "bssid3", START_MILLIS + 1, GOOD_RSSI),
+                buildScanResult("HomeOffice", "bssid4", START_MILLIS + 1, GOOD_RSSI)));
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+        mTestLooper.dispatchAll();
+
+        verify(mMockCallback, times(2)).onSearchResultsChanged();
+        assertThat(wifiPickerTracker.getSearchResults().stream()
+                .map(WifiEntry::getTitle)
+                .collect(Collectors.toList()))
+                .containsExactly("Home", "HomeOffice");
+    }
+
+    /**
+     * Tests that searchWifiEntries() folds the case of titles fully, and still finds the entries
+     * once entries are added and removed.
+     */
+    @Test
+    public void testSearchWifiEntries_caseFoldedTitlesAcrossAddedAndRemovedEntries() {
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        when(mMockWifiManager.getScanResults()).thenReturn(Arrays.asList(
+                buildScanResult("Corp", "bssid1", START_MILLIS, GOOD_RSSI),
+                buildScanResult("Straße", "bssid2", START_MILLIS, GOOD_RSSI),
+                buildScanResult("Home", "bssid3", START_MILLIS, GOOD_RSSI)));
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+
+        assertThat(wifiPickerTracker.searchWifiEntries("STRASSE").stream()
+                .map(WifiEntry::getTitle)
+                .collect(Collectors.toList()))
+                .containsExactly("Straße");
+
+        when(mMockWifiManager.getScanResults()).thenReturn(Arrays.asList(
+                buildScanResult("Corp", "bssid1", START_MILLIS + 1, GOOD_RSSI),
+                buildScanResult("Straße", "bssid2", START_MILLIS + 1, GOOD_RSSI),
+                buildScanResult("Cafe", "bssid4", START_MILLIS + 1, GOOD_RSSI),
+                buildScanResult("Strand", "bssid5", START_MILLIS + 1, GOOD_RSSI)));
+        when(mMockClock.millis()).thenReturn(START_MILLIS + MAX_SCAN_AGE_MILLIS + 1);
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+        mTestLooper.dispatchAll();
+
+        assertThat(wifiPickerTracker.searchWifiEntries("c").stream()
+                .map(WifiEntry::getTitle)
+                .collect(Collectors.toList()))
+                .containsExactly("Cafe", "Corp");
+        assertThat(wifiPickerTracker.searchWifiEntries("str").stream()
+                .map(WifiEntry::getTitle)
+                .collect(Collectors.toList()))
+                .containsExactly("Straße", "Strand");
+        assertThat(wifiPickerTracker.searchWifiEntries("home")).isEmpty();
+    }
+
+    /**
+     * Tests that a snapshot persisted by one tracker is restored as the stale snapshot on the cold
+     * start of the next tracker, and is cleared once live entries are published.
+     */
+    @Test
+    public void testOnStart_snapshotPersisted_restoresStaleSnapshotUntilLiveEntries()
+            throws Exception {
+        final File snapshotFile = File.createTempFile("snapshot", null);
+        snapshotFile.delete();
+        try {
+            when(mMockWifiManager.getScanResults()).thenReturn(Collections.singletonList(
+                    buildScanResult("ssid", "bssid", START_MILLIS)));
+            final WifiPickerTracker firstTracker = createTestWifiPickerTracker();
+            firstTracker.enableSnapshotPersistence(snapshotFile);
+            firstTracker.onStart();
+            mTestLooper.dispatchAll();
+            firstTracker.onStop();
+            mTestLooper.dispatchAll();
+            Mockito.clearInvocations(mMockCallback);
+
+            final WifiPickerTracker secondTracker = createTestWifiPickerTracker();
+            secondTracker.enableSnapshotPersistence(snapshotFile);
+            secondTracker.onStart();
+            mTestLooper.dispatchAll();
+
+            final ArgumentCaptor<WifiPickerSnapshot> snapshotCaptor =
+                    ArgumentCaptor.forClass(WifiPickerSnapshot.class);
+            final InOrder inOrder = inOrder(mMockCallback);
+            inOrder.verify(mMockCallback).onStaleSnapshotRestored(snapshotCaptor.capture());
+            inOrder.verify(mMockCallback, atLeastOnce())
+                    .onWifiEntriesChanged(WifiPickerTracker.WIFI_ENTRIES_CHANGED_REASON_GENERAL);
+            assertThat(snapshotCaptor.getValue().getTimestampMillis()).isEqualTo(START_MILLIS);
+            assertThat(snapshotCaptor.getValue().getEntries()).hasSize(1);
+            assertThat(snapshotCaptor.getValue().getEntries().get(0).getKey())
+                    .isEqualTo(firstTracker.getWifiEntries().get(0).getKey());
+            assertThat(secondTracker.getStaleSnapshot()).isNull();
+        } finally {
+            snapshotFile.delete();
+        }
+    }
+
+    /**
+     * Tests that a persisted snapshot is not restored while location is off, since the app could
+     * not read the scans it lists.
+     */
+    @Test
+    public void testOnStart_locationDisabled_doesNotRestoreSnapshot() throws Exception {
+        final File snapshotFile = File.createTempFile("snapshot", null);
+        snapshotFile.delete();
+        try {
+            when(mMockWifiManager.getScanResults()).thenReturn(Collections.singletonList(
+                    buildScanResult("ssid", "bssid", START_MILLIS)));
+            final WifiPickerTracker firstTracker = createTestWifiPickerTracker();
+            firstTracker.enableSnapshotPersistence(snapshotFile);
+            firstTracker.onStart();
+            mTestLooper.dispatchAll();
+            firstTracker.onStop();
+            mTestLooper.dispatchAll();
+
+            when(mMockLocationManager.isLocationEnabled()).thenReturn(false);
+            final WifiPickerTracker secondTracker = createTestWifiPickerTracker();
+            secondTracker.enableSnapshotPersistence(snapshotFile);
+            secondTracker.onStart();
+            mTestLooper.dispatchAll();
+
+            verify(mMockCallback, never()).onStaleSnapshotRestored(any());
+        } finally {
+            snapshotFile.delete();
+        }
+    }
+
     /**
      * Tests that connecting to a network will update getConnectedEntry() to return the connected
      * WifiEntry and remove that entry from getWifiEntries().
@@ -1319,6 +1919,69 @@ public class WifiPickerTrackerTest {
         assertThat(wifiPickerTracker.getConnectedWifiEntry()).isEqualTo(entry);
     }
 
+    /**
+     * Tests that the Passpoint matching of a scan results batch waits behind the events already
+     * queued on the worker thread, and is dropped if newer scan results arrive in the meantime.
+     */
+    @Test
+    public void testScanResultsAvailableAction_pendingEvents_defersPasspointMatching() {
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        when(mMockWifiManager.getScanResults()).thenReturn(Collections.singletonList(
+                buildScanResult("ssid", "bssid", START_MILLIS)));
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        Mockito.clearInvocations(mMockWifiManager);
+        final Runnable pendingEvent = mock(Runnable.class);
+        new Handler(mTestLooper.getLooper()).post(pendingEvent);
+
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+
+        // The standard entries are published without waiting for the Passpoint matching.
+        assertThat(wifiPickerTracker.getWifiEntries()).hasSize(1);
+        verify(mMockWifiManager, never()).getAllMatchingWifiConfigs(any());
+
+        mTestLooper.dispatchAll();
+
+        final InOrder inOrder = inOrder(pendingEvent, mMockWifiManager);
+        inOrder.verify(pendingEvent).run();
+        inOrder.verify(mMockWifiManager, times(1)).getAllMatchingWifiConfigs(any());
+    }
+
+    /**
+     * Tests that the remaining stages of a scan processing cycle are cancelled once newer scan
+     * results arrive, so that only the newest cycle completes.
+     */
+    @Test
+    public void testScanResultsAvailableAction_newerScanResults_cancelsRemainingStages() {
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        final BroadcastReceiver receiver = mBroadcastReceiverCaptor.getValue();
+        final Handler handler = new Handler(mTestLooper.getLooper());
+        Mockito.clearInvocations(mMockWifiManager);
+        // Deliver newer scan results while the first cycle is matching Passpoint providers.
+        when(mMockWifiManager.getAllMatchingWifiConfigs(any()))
+                .thenAnswer(invocation -> {
+                    handler.post(() -> receiver.onReceive(mMockContext,
+                            new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION)));
+                    return Collections.emptyList();
+                })
+                .thenReturn(Collections.emptyList());
+
+        receiver.onReceive(mMockContext, new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+        mTestLooper.dispatchAll();
+
+        verify(mMockWifiManager, times(2)).getAllMatchingWifiConfigs(any());
+        verify(mMockWifiManager, times(1)).getMatchingOsuProviders(any());
+    }
+
     /**
      * Tests that a PasspointWifiEntry will disappear from getWifiEntries() once it is out of range.
      */
@@ -2313,6 +2976,211 @@ public class WifiPickerTrackerTest {
         verify(mMockWifiManager).startScan();
     }
 
+    /**
+     * Tests that the BaseWifiTracker.Scanner backs off to the interval of the scheduling policy
+     * when successive scan results are identical, up to the max scan age.
+     */
+    @Test
+    public void testScanner_identicalScanResults_backsOffScanIntervalUpToMaxScanAge() {
+        when(mInjector.createScanSchedulingPolicy(anyLong()))
+                .thenReturn(new AdaptiveScanSchedulingPolicy(SCAN_INTERVAL_MILLIS,
+                        false /* isScanThrottled */));
+        when(mMockWifiManager.getScanResults()).thenReturn(Collections.singletonList(
+                buildScanResult("ssid", "bssid", START_MILLIS, GOOD_RSSI)));
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.WIFI_STATE_CHANGED_ACTION).putExtra(
+                        WifiManager.EXTRA_WIFI_STATE, WifiManager.WIFI_STATE_ENABLED));
+        ArgumentCaptor<WifiScanner.ScanListener> mScanListenerCaptor =
+                ArgumentCaptor.forClass(WifiScanner.ScanListener.class);
+        verify(mWifiScanner).startScan(any(), mScanListenerCaptor.capture());
+        mScanListenerCaptor.getValue().onFailure(0, "Reason");
+        mTestLooper.dispatchAll();
+        verify(mMockWifiManager).startScan();
+
+        for (int i = 0; i < 2; i++) {
+            mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                    new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION)
+                            .putExtra(WifiManager.EXTRA_RESULTS_UPDATED, true));
+        }
+        mTestLooper.dispatchAll();
+
+        // The policy backs off to twice the default interval, which exceeds the max scan age.
+        assertThat(wifiPickerTracker.getScanIntervalMillis()).isEqualTo(MAX_SCAN_AGE_MILLIS);
+        assertThat(wifiPickerTracker.getScanIntervalReason())
+                .isEqualTo(ScanSchedulingPolicy.SCAN_INTERVAL_REASON_STABLE);
+        verify(mMockCallback).onScanIntervalChanged();
+        mTestLooper.moveTimeForward(SCAN_INTERVAL_MILLIS);
+        mTestLooper.dispatchAll();
+        verify(mMockWifiManager, times(1)).startScan();
+        mTestLooper.moveTimeForward(SCAN_INTERVAL_MILLIS);
+        mTestLooper.dispatchAll();
+        verify(mMockWifiManager, times(2)).startScan();
+    }
+
+    /**
+     * Tests that the BaseWifiTracker.Scanner refreshes the channels of the displayed networks with
+     * a partial WifiScanner scan between full scans, which are issued less often.
+     */
+    @Test
+    public void testScanner_refreshScanEnabled_scansTrackedChannelsBetweenFullScans() {
+        when(mInjector.isRefreshScanEnabled()).thenReturn(true);
+        final ScanResult scan24Ghz = buildScanResult("ssid1", "bssid1", START_MILLIS);
+        scan24Ghz.frequency = 2412;
+        final ScanResult scan5Ghz = buildScanResult("ssid2", "bssid2", START_MILLIS);
+        scan5Ghz.frequency = 5180;
+        when(mMockWifiManager.getScanResults()).thenReturn(Arrays.asList(scan24Ghz, scan5Ghz));
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.WIFI_STATE_CHANGED_ACTION).putExtra(
+                        WifiManager.EXTRA_WIFI_STATE, WifiManager.WIFI_STATE_ENABLED));
+        ArgumentCaptor<WifiScanner.ScanListener> mScanListenerCaptor =
+                ArgumentCaptor.forClass(WifiScanner.ScanListener.class);
+        verify(mWifiScanner).startScan(any(), mScanListenerCaptor.capture());
+        mScanListenerCaptor.getValue().onFailure(0, "Reason");
+        mTestLooper.dispatchAll();
+        verify(mMockWifiManager).startScan();
+
+        mTestLooper.moveTimeForward(SCAN_INTERVAL_MILLIS);
+        mTestLooper.dispatchAll();
+
+        ArgumentCaptor<WifiScanner.ScanSettings> scanSettingsCaptor =
+                ArgumentCaptor.forClass(WifiScanner.ScanSettings.class);
+        verify(mWifiScanner, times(2)).startScan(scanSettingsCaptor.capture(), any());
+        final WifiScanner.ScanSettings refreshScanSettings = scanSettingsCaptor.getValue();
+        assertThat(refreshScanSettings.band).isEqualTo(WifiScanner.WIFI_BAND_UNSPECIFIED);
+        assertThat(Arrays.stream(refreshScanSettings.channels)
+                .map(channel -> channel.frequency)
+                .collect(Collectors.toList()))
+                .containsExactly(2412, 5180);
+        verify(mMockWifiManager, times(1)).startScan();
+
+        mTestLooper.moveTimeForward(SCAN_INTERVAL_MILLIS);
+        mTestLooper.dispatchAll();
+
+        verify(mMockWifiManager, times(2)).startScan();
+    }
+
+    /**
+     * Tests that the BaseWifiTracker.Scanner only refreshes the channels of the displayed networks,
+     * not those of every tracked scan result.
+     */
+    @Test
+    public void testScanner_refreshScanEnabled_scansOnlyDisplayedChannels() {
+        when(mInjector.isRefreshScanEnabled()).thenReturn(true);
+        final ScanResult displayedScan = buildScanResult("ssid1", "bssid1", START_MILLIS);
+        displayedScan.frequency = 2412;
+        final ScanResult hiddenScan = buildScanResult("", "bssid2", START_MILLIS);
+        hiddenScan.frequency = 5180;
+        when(mMockWifiManager.getScanResults()).thenReturn(
+                Arrays.asList(displayedScan, hiddenScan));
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.WIFI_STATE_CHANGED_ACTION).putExtra(
+                        WifiManager.EXTRA_WIFI_STATE, WifiManager.WIFI_STATE_ENABLED));
+        ArgumentCaptor<WifiScanner.ScanListener> mScanListenerCaptor =
+                ArgumentCaptor.forClass(WifiScanner.ScanListener.class);
+        verify(mWifiScanner).startScan(any(), mScanListenerCaptor.capture());
+        mScanListenerCaptor.getValue().onFailure(0, "Reason");
+        mTestLooper.dispatchAll();
+
+        mTestLooper.moveTimeForward(SCAN_INTERVAL_MILLIS);
+        mTestLooper.dispatchAll();
+
+        ArgumentCaptor<WifiScanner.ScanSettings> scanSettingsCaptor =
+                ArgumentCaptor.forClass(WifiScanner.ScanSettings.class);
+        verify(mWifiScanner, times(2)).startScan(scanSettingsCaptor.capture(), any());
+        assertThat(Arrays.stream(scanSettingsCaptor.getValue().channels)
+                .map(channel -> channel.frequency)
+                .collect(Collectors.toList()))
+                .containsExactly(2412);
+    }
+
+    /**
+     * Tests that the BaseWifiTracker.Scanner issues a full scan instead of a refresh scan if there
+     * are no displayed networks to refresh.
+     */
+    @Test
+    public void testScanner_refreshScanEnabledWithoutTrackedChannels_scansFully() {
+        when(mInjector.isRefreshScanEnabled()).thenReturn(true);
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.WIFI_STATE_CHANGED_ACTION).putExtra(
+                        WifiManager.EXTRA_WIFI_STATE, WifiManager.WIFI_STATE_ENABLED));
+        ArgumentCaptor<WifiScanner.ScanListener> mScanListenerCaptor =
+                ArgumentCaptor.forClass(WifiScanner.ScanListener.class);
+        verify(mWifiScanner).startScan(any(), mScanListenerCaptor.capture());
+        mScanListenerCaptor.getValue().onFailure(0, "Reason");
+        mTestLooper.dispatchAll();
+        verify(mMockWifiManager).startScan();
+
+        mTestLooper.moveTimeForward(SCAN_INTERVAL_MILLIS);
+        mTestLooper.dispatchAll();
+
+        verify(mWifiScanner, times(1)).startScan(any(), any());
+        verify(mMockWifiManager, times(2)).startScan();
+    }
+
+    /**
+     * Tests that the results of the first WifiScanner scan are published as they arrive, at most
+     * once per PARTIAL_SCAN_UPDATE_INTERVAL_MILLIS.
+     */
+    @Test
+    public void testScanner_firstScanFullResults_publishesPartialEntriesAtBoundedRate() {
+        final WifiPickerTracker wifiPickerTracker = createTestWifiPickerTracker();
+        wifiPickerTracker.onStart();
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.WIFI_STATE_CHANGED_ACTION).putExtra(
+                        WifiManager.EXTRA_WIFI_STATE, WifiManager.WIFI_STATE_ENABLED));
+        ArgumentCaptor<WifiScanner.ScanListener> mScanListenerCaptor =
+                ArgumentCaptor.forClass(WifiScanner.ScanListener.class);
+        verify(mWifiScanner).startScan(any(), mScanListenerCaptor.capture());
+
+        mScanListenerCaptor.getValue().onFullResult(
+                buildScanResult("ssid1", "bssid1", START_MILLIS));
+        mTestLooper.dispatchAll();
+
+        verify(mMockCallback).onWifiEntriesChanged(
+                WifiPickerTracker.WIFI_ENTRIES_CHANGED_REASON_PARTIAL_SCAN_RESULTS);
+        assertThat(wifiPickerTracker.getWifiEntries().stream()
+                .map(WifiEntry::getSsid)
+                .collect(Collectors.toList()))
+                .containsExactly("ssid1");
+
+        mScanListenerCaptor.getValue().onFullResult(
+                buildScanResult("ssid2", "bssid2", START_MILLIS));
+        mScanListenerCaptor.getValue().onFullResult(
+                buildScanResult("ssid3", "bssid3", START_MILLIS));
+        mTestLooper.dispatchAll();
+        verify(mMockCallback, times(1)).onWifiEntriesChanged(
+                WifiPickerTracker.WIFI_ENTRIES_CHANGED_REASON_PARTIAL_SCAN_RESULTS);
+
+        mTestLooper.moveTimeForward(BaseWifiTracker.PARTIAL_SCAN_UPDATE_INTERVAL_MILLIS);
+        mTestLooper.dispatchAll();
+        verify(mMockCallback, times(2)).onWifiEntriesChanged(
+                WifiPickerTracker.WIFI_ENTRIES_CHANGED_REASON_PARTIAL_SCAN_RESULTS);
+        assertThat(wifiPickerTracker.getWifiEntries()).hasSize(3);
+    }
+
     /**
      * Tests that the BaseWifiTracker.Scanner does not scan if scanning was disabled.
      */
@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wifitrackerlib;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityDiagnosticsManager;
+import android.net.ConnectivityManager;
+import android.net.wifi.ScanResult;
+import android.net.wifi.WifiManager;
+import android.os.Handler;
+import android.os.test.TestLooper;
+import android.telephony.TelephonyManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class WifiTrackerHubTest {
+    private static final long SCAN_INTERVAL_MILLIS = 10_000;
+
+    @Mock private Context mMockContext;
+    @Mock private WifiManager mMockWifiManager;
+    @Mock private ConnectivityManager mMockConnectivityManager;
+    @Mock private ConnectivityDiagnosticsManager mMockConnectivityDiagnosticsManager;
+    @Mock private BroadcastReceiver mMockReceiver1;
+    @Mock private BroadcastReceiver mMockReceiver2;
+
+    private TestLooper mTestLooper;
+    private Handler mTestHandler;
+    private WifiTrackerHub mHub;
+    private BaseWifiTracker mTracker1;
+    private BaseWifiTracker mTracker2;
+
+    private final ArgumentCaptor<BroadcastReceiver> mBroadcastReceiverCaptor =
+            ArgumentCaptor.forClass(BroadcastReceiver.class);
+
+    private BaseWifiTracker createMockTracker(BroadcastReceiver receiver) {
+        final BaseWifiTracker tracker = mock(BaseWifiTracker.class);
+        when(tracker.getWorkerHandler()).thenReturn(mTestHandler);
+        when(tracker.getBroadcastReceiver()).thenReturn(receiver);
+        when(tracker.getIntentFilter()).thenReturn(
+                BaseWifiTracker.createIntentFilter(false /* includeRssiChanged */));
+        return tracker;
+    }
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        mTestLooper = new TestLooper();
+        mTestHandler = new Handler(mTestLooper.getLooper());
+        mHub = new WifiTrackerHub(mMockContext, mMockWifiManager, mMockConnectivityManager,
+                mMockConnectivityDiagnosticsManager, mTestHandler);
+        mTracker1 = createMockTracker(mMockReceiver1);
+        mTracker2 = createMockTracker(mMockReceiver2);
+    }
+
+    /**
+     * Verifies that attached trackers share a single registration and each receive its broadcasts.
+     */
+    @Test
+    public void testAttach_multipleTrackers_registersOnceAndDispatchesToAll() {
+        mHub.attach(mTracker1);
+        mHub.attach(mTracker2);
+        mTestLooper.dispatchAll();
+
+        verify(mMockContext, times(1)).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        verify(mMockConnectivityManager, times(1)).registerNetworkCallback(any(), any(),
+                any(Handler.class));
+        final Intent intent = new Intent(WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION);
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext, intent);
+        mTestLooper.dispatchAll();
+
+        verify(mMockReceiver1).onReceive(mMockContext, intent);
+        verify(mMockReceiver2).onReceive(mMockContext, intent);
+    }
+
+    /**
+     * Verifies that a tracker attaching later is replayed the sticky Wi-Fi state broadcast.
+     */
+    @Test
+    public void testAttach_lateTracker_replaysWifiState() {
+        mHub.attach(mTracker1);
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        final Intent intent = new Intent(WifiManager.WIFI_STATE_CHANGED_ACTION)
+                .putExtra(WifiManager.EXTRA_WIFI_STATE, WifiManager.WIFI_STATE_ENABLED);
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext, intent);
+        mTestLooper.dispatchAll();
+
+        mHub.attach(mTracker2);
+        mTestLooper.dispatchAll();
+
+        verify(mMockReceiver2).onReceive(any(), eq(intent));
+    }
+
+    /**
+     * Verifies that a tracker attaching later is replayed the sticky default data subscription
+     * broadcast.
+     */
+    @Test
+    public void testAttach_lateTracker_replaysDefaultDataSubscription() {
+        mHub.attach(mTracker1);
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        final Intent intent = new Intent(TelephonyManager.ACTION_DEFAULT_DATA_SUBSCRIPTION_CHANGED)
+                .putExtra("subscription", 1);
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext, intent);
+        mTestLooper.dispatchAll();
+
+        mHub.attach(mTracker2);
+        mTestLooper.dispatchAll();
+
+        verify(mMockReceiver2).onReceive(any(), eq(intent));
+    }
+
+    /**
+     * Verifies that a tracker attaching later with additional actions gets a receiver registered
+     * for just those actions, and that each broadcast is only forwarded to the trackers whose
+     * IntentFilter has its action.
+     */
+    @Test
+    public void testAttach_lateTrackerWithRssiChanged_registersAndDispatchesByAction() {
+        when(mTracker2.getIntentFilter()).thenReturn(
+                BaseWifiTracker.createIntentFilter(true /* includeRssiChanged */));
+        final ArgumentCaptor<IntentFilter> filterCaptor =
+                ArgumentCaptor.forClass(IntentFilter.class);
+        mHub.attach(mTracker1);
+        mTestLooper.dispatchAll();
+        mHub.attach(mTracker2);
+        mTestLooper.dispatchAll();
+
+        verify(mMockContext, times(2)).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                filterCaptor.capture(), any(), any());
+        final IntentFilter rssiFilter = filterCaptor.getAllValues().get(1);
+        assertThat(rssiFilter.countActions()).isEqualTo(1);
+        assertThat(rssiFilter.hasAction(WifiManager.RSSI_CHANGED_ACTION)).isTrue();
+
+        final Intent intent = new Intent(WifiManager.RSSI_CHANGED_ACTION);
+        mBroadcastReceiverCaptor.getAllValues().get(1).onReceive(mMockContext, intent);
+        mTestLooper.dispatchAll();
+
+        verify(mMockReceiver1, never()).onReceive(any(), any());
+        verify(mMockReceiver2).onReceive(mMockContext, intent);
+
+        mHub.detach(mTracker1);
+        mHub.detach(mTracker2);
+        mTestLooper.dispatchAll();
+        verify(mMockContext).unregisterReceiver(mBroadcastReceiverCaptor.getAllValues().get(0));
+        verify(mMockContext).unregisterReceiver(mBroadcastReceiverCaptor.getAllValues().get(1));
+    }
+
+    /**
+     * Verifies that the registrations are removed only once the last tracker detaches, and that
+     * detached trackers no longer receive events.
+     */
+    @Test
+    public void testDetach_lastTracker_unregisters() {
+        mHub.attach(mTracker1);
+        mHub.attach(mTracker2);
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+
+        mHub.detach(mTracker1);
+        mTestLooper.dispatchAll();
+        verify(mMockContext, never()).unregisterReceiver(any());
+        final Intent intent = new Intent(WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION);
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext, intent);
+        mTestLooper.dispatchAll();
+        verify(mMockReceiver1, never()).onReceive(any(), any());
+
+        mHub.detach(mTracker2);
+        mTestLooper.dispatchAll();
+        verify(mMockContext).unregisterReceiver(mBroadcastReceiverCaptor.getValue());
+    }
+
+    /**
+     * Verifies that scan results are fetched once until the next scan results broadcast.
+     */
+    @Test
+    public void testGetScanResults_sharedUntilScanResultsAvailable() {
+        when(mMockWifiManager.getScanResults()).thenReturn(
+                Collections.singletonList(new ScanResult()));
+        mHub.attach(mTracker1);
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+
+        mHub.getScanResults();
+        mHub.getScanResults();
+        verify(mMockWifiManager, times(1)).getScanResults();
+
+        mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+        mHub.getScanResults();
+        verify(mMockWifiManager, times(2)).getScanResults();
+    }
+
+    /**
+     * Verifies that scan results fetched while a scan results broadcast invalidated them are
+     * returned to the caller but not shared with later callers.
+     */
+    @Test
+    public void testGetScanResults_invalidatedDuringFetch_notShared() {
+        mHub.attach(mTracker1);
+        mTestLooper.dispatchAll();
+        verify(mMockContext).registerReceiver(mBroadcastReceiverCaptor.capture(),
+                any(), any(), any());
+        final ScanResult scanResult = new ScanResult();
+        when(mMockWifiManager.getScanResults()).thenAnswer(invocation -> {
+            mBroadcastReceiverCaptor.getValue().onReceive(mMockContext,
+                    new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+            return Collections.singletonList(scanResult);
+        });
+
+        assertThat(mHub.getScanResults()).containsExactly(scanResult);
+        mHub.getScanResults();
+
+        verify(mMockWifiManager, times(2)).getScanResults();
+    }
+
+    /**
+     * Verifies that a tracker attaching before the removal of the registrations of the last
+     * detached tracker runs keeps the registrations instead of registering them again.
+     */
+    @Test
+    public void testDetach_reattachBeforeUnregister_keepsRegistrations() {
+        mHub.attach(mTracker1);
+        mTestLooper.dispatchAll();
+
+        mHub.detach(mTracker1);
+        mHub.attach(mTracker1);
+        mTestLooper.dispatchAll();
+
+        verify(mMockConnectivityManager, times(1)).registerNetworkCallback(any(), any(),
+                any(Handler.class));
+        verify(mMockConnectivityManager, never()).unregisterNetworkCallback(
+                any(ConnectivityManager.NetworkCallback.class));
+        assertThat(mHub.isAttached(mTracker1)).isTrue();
+    }
+
+    /**
+     * Verifies that the hub's own handler thread outlives the last tracker, so that a detach
+     * followed by a re-attach runs the registrations and their removal in order on one thread.
+     */
+    @Test
+    public void testDetach_reattachWithoutInjectedHandler_registersOnceOnSameThread()
+            throws Exception {
+        final WifiTrackerHub hub = new WifiTrackerHub(mMockContext, mMockWifiManager,
+                mMockConnectivityManager, mMockConnectivityDiagnosticsManager,
+                null /* handler */);
+        hub.attach(mTracker1);
+        final Handler handler = hub.getHandler();
+        waitForIdle(handler);
+
+        hub.detach(mTracker1);
+        hub.attach(mTracker1);
+        waitForIdle(handler);
+
+        assertThat(hub.getHandler()).isSameInstanceAs(handler);
+        verify(mMockConnectivityManager, times(1)).registerNetworkCallback(any(), any(),
+                any(Handler.class));
+        verify(mMockConnectivityManager, never()).unregisterNetworkCallback(
+                any(ConnectivityManager.NetworkCallback.class));
+
+        hub.detach(mTracker1);
+        waitForIdle(handler);
+
+        verify(mMockConnectivityManager, times(2)).unregisterNetworkCallback(
+                any(ConnectivityManager.NetworkCallback.class));
+        handler.getLooper().quitSafely();
+    }
+
+    private static void waitForIdle(Handler handler) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        handler.post(latch::countDown);
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    /**
+     * Verifies that only one scan request is allowed per scan interval.
+     */
+    @Test
+    public void testRequestScan_withinInterval_returnsFalse() {
+        assertThat(mHub.requestScan(SCAN_INTERVAL_MILLIS)).isTrue();
+        assertThat(mHub.requestScan(SCAN_INTERVAL_MILLIS)).isFalse();
+        assertThat(mHub.requestScan(0)).isTrue();
+    }
+
+    /**
+     * Verifies that refresh scan requests are de-duplicated separately from full scan requests.
+     */
+    @Test
+    public void testRequestScan_refreshScan_deduplicatedSeparately() {
+        assertThat(mHub.requestScan(SCAN_INTERVAL_MILLIS)).isTrue();
+        assertThat(mHub.requestScan(SCAN_INTERVAL_MILLIS, true /* isRefreshScan */)).isTrue();
+        assertThat(mHub.requestScan(SCAN_INTERVAL_MILLIS, true /* isRefreshScan */)).isFalse();
+        assertThat(mHub.requestScan(SCAN_INTERVAL_MILLIS)).isFalse();
+    }
+}